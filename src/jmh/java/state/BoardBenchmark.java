@@ -0,0 +1,56 @@
+package state;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the board rules.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-bench.xml")
+public class BoardBenchmark {
+    private Board board;
+    private Piece king;
+    private Piece knight;
+    private Position empty;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        board = new Board();
+        board.play();
+        king = board.getPieceList().get(0);
+        knight = board.getPieceList().get(1);
+        empty = new Position(7, 7);
+    }
+
+    /**
+     * Selects a piece and deselects it by clicking an unreachable square.
+     */
+    @Benchmark
+    public Piece select() {
+        board.select(knight.getPosition());
+        board.select(empty);
+        return knight;
+    }
+
+    @Benchmark
+    public Object getNextMoves() {
+        return board.getNextMoves(king, board.getPieceList());
+    }
+
+    @Benchmark
+    public boolean isMovable() {
+        return board.isMovable(knight);
+    }
+
+    @Benchmark
+    public Board updateState() {
+        board.updateState();
+        return board;
+    }
+}
@@ -0,0 +1,50 @@
+package state;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of pieces, positions and scoring.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-bench.xml")
+public class PieceBenchmark {
+    private final Piece knight = new Piece(PieceType.KNIGHT, 4, 4);
+    private final Position position = new Position(3, 3);
+    private final Position offset = new Position(1, 2);
+    private int moves = 12;
+    private long time = 42_000;
+    private int square = Bitboard.square(3, 3);
+    private long occupancy = 0x0024_0081_0000_2400L;
+
+    @Benchmark
+    public List<Position> pieceGetNextMoves() {
+        return knight.getNextMoves();
+    }
+
+    @Benchmark
+    public Position positionMovedBy() {
+        return position.movedBy(offset);
+    }
+
+    @Benchmark
+    public long queenAttacksMagic() {
+        return PieceType.QUEEN.getAttacks(square, occupancy);
+    }
+
+    @Benchmark
+    public long queenAttacksRays() {
+        return Magic.walk(square, occupancy, Magic.ROOK_DIRECTIONS) | Magic.walk(square, occupancy, Magic.BISHOP_DIRECTIONS);
+    }
+
+    @Benchmark
+    public int scorerCalculate() {
+        return Scorer.calculate(moves, time);
+    }
+}
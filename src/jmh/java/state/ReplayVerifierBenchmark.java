@@ -0,0 +1,32 @@
+package state;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of verifying the record of a solved game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-bench.xml")
+public class ReplayVerifierBenchmark {
+    private final ReplayVerifier verifier = new ReplayVerifier();
+    private MoveRecord record;
+
+    @Setup
+    public void setUp() {
+        var builder = new MoveRecord.Builder();
+        for (var move : new Solver().solve(Board.initialPieces).getMoves())
+            builder.move(move.getPieceIndex(), Bitboard.square(move.getTo()), 1500);
+        record = builder.end(0).build();
+    }
+
+    @Benchmark
+    public int verify() {
+        return verifier.verify(record).getScore();
+    }
+}
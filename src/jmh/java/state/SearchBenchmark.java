@@ -0,0 +1,34 @@
+package state;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the search modes on a 1000x1000 board.
+ * The nodes per second of each mode are in {@link Search.Result#getNodesPerSecond()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-bench.xml")
+public class SearchBenchmark {
+    @Param({"BFS", "BIDIRECTIONAL", "IDA_STAR"})
+    private Search.Mode mode;
+    private Search search;
+    private int[] start;
+
+    @Setup
+    public void setUp() {
+        var g = Geometry.of(1000, 1000);
+        search = new Search(new SparseSolver(g, GameEngine.DEFAULT_TYPES, g.square(40, 995)));
+        start = new int[]{g.square(2, 990), g.square(2, 991)};
+    }
+
+    @Benchmark
+    public long solve() {
+        return search.solve(start, mode).getNodes();
+    }
+}
@@ -0,0 +1,50 @@
+package util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of opening binary leaderboards of various sizes, to compare with {@link JsonIOBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-bench.xml")
+public class BinaryScoreFileBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    private int rows;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        var list = new ArrayList<BinaryScoreFile.Entry>(rows);
+        for (int i = 0; i < rows; i++)
+            list.add(new BinaryScoreFile.Entry("player" + i, 2000 - i % 2000, i));
+        file = Files.createTempFile("scores", ".bin");
+        BinaryScoreFile.write(file, list);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<BinaryScoreFile.Entry> openTop10() throws IOException {
+        return BinaryScoreFile.open(file).top(10);
+    }
+
+    @Benchmark
+    public int openRankOf() throws IOException {
+        return BinaryScoreFile.open(file).rankOf(1000);
+    }
+}
@@ -0,0 +1,62 @@
+package util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of reading and writing leaderboards of various sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-bench.xml")
+public class JsonIOBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    private int rows;
+
+    private List<Row> list;
+    private byte[] json;
+
+    /**
+     * Leaderboard row, shaped like the score file of the game.
+     */
+    public static class Row {
+        private final String name;
+        private final int score;
+
+        Row(String name, int score) {
+            this.name = name;
+            this.score = score;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        list = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++)
+            list.add(new Row("player" + i, 2000 - i % 2000));
+        var out = new ByteArrayOutputStream();
+        JsonIO.writeJsonStream(out, list);
+        json = out.toByteArray();
+    }
+
+    @Benchmark
+    public List<Row> readJsonStream() throws IOException {
+        return JsonIO.readJsonStream(new ByteArrayInputStream(json), Row.class);
+    }
+
+    @Benchmark
+    public int writeJsonStream() throws IOException {
+        JsonIO.writeJsonStream(OutputStream.nullOutputStream(), list);
+        return list.size();
+    }
+}
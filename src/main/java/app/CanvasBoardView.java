@@ -0,0 +1,227 @@
+package app;
+
+import javafx.scene.Cursor;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import state.Board;
+import state.BoardChange;
+import state.Geometry;
+import state.Piece;
+import state.PieceType;
+import state.Position;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Board drawn on a single {@link Canvas}, an alternative to one pane per square.
+ * <p>
+ * Clicks are mapped to squares by arithmetic. Changes of the board only mark the affected
+ * squares dirty, and the next layout pass repaints those squares, so one pulse paints
+ * each square at most once. Piece images are decoded once per tile size, already scaled.
+ * Each piece type is drawn with its own image, see {@link #imagePath}.
+ */
+public class CanvasBoardView extends Region {
+    private static final Color LIGHT = Color.web("#FFEDC8");
+    private static final Color DARK = Color.web("#9C5000");
+    private static final Color HIGHLIGHT = Color.web("#5F9EA0", .5);
+    private static final Color GOAL = Color.RED;
+    private static final Color HINT = Color.web("#2E8B57");
+    private static final double PADDING = 6;
+
+    private final Board board;
+    private final Geometry geometry;
+    private final Canvas canvas = new Canvas();
+    /**
+     * Piece on each square, or null.
+     */
+    private final Piece[] occupants;
+    private final BitSet highlighted = new BitSet();
+    private final BitSet hinted = new BitSet();
+    private final BitSet dirty = new BitSet();
+    /**
+     * Images scaled to the current tile size, by resource path.
+     */
+    private final Map<String, Image> sprites = new HashMap<>();
+    private double tileWidth;
+    private double tileHeight;
+
+    /**
+     * Creates a view of the board.
+     * @param board Board to show
+     * @throws IllegalArgumentException if a piece type has no image
+     */
+    public CanvasBoardView(Board board) {
+        this.board = board;
+        this.geometry = board.getGeometry();
+        this.occupants = new Piece[geometry.squares()];
+        getChildren().add(canvas);
+
+        for (var piece : board.getPieceList()) {
+            imagePath(piece.getType());
+            occupants[index(piece.getPosition())] = piece;
+        }
+        board.addChangeListener(this::onBoardChanged);
+
+        canvas.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
+            var pos = squareAt(e.getX(), e.getY());
+            if (pos != null)
+                board.select(pos);
+        });
+        canvas.addEventHandler(MouseEvent.MOUSE_MOVED, e -> {
+            var pos = squareAt(e.getX(), e.getY());
+            boolean active = pos != null && (occupants[index(pos)] != null || highlighted.get(index(pos)));
+            canvas.setCursor(active ? Cursor.HAND : Cursor.DEFAULT);
+        });
+        setPrefSize(50.0 * geometry.getCols(), 50.0 * geometry.getRows());
+        dirty.set(0, occupants.length);
+    }
+
+    private void onBoardChanged(BoardChange change) {
+        for (var move : change.getMoves()) {
+            int from = index(move.getFrom());
+            if (occupants[from] == board.getPieceList().get(move.getPiece()))
+                occupants[from] = null;
+            invalidate(from);
+        }
+        for (var move : change.getMoves()) {
+            occupants[index(move.getTo())] = board.getPieceList().get(move.getPiece());
+            invalidate(index(move.getTo()));
+        }
+        if (change.isNextPositionsChanged()) {
+            for (var p : change.getPreviousNextPositions())
+                invalidate(index(p));
+            highlighted.clear();
+            for (var p : change.getNextPositions()) {
+                highlighted.set(index(p));
+                invalidate(index(p));
+            }
+        }
+    }
+
+    /**
+     * Outlines squares, e.g. the piece and the destination of a hint.
+     * @param squares Squares to outline, empty to remove the outlines
+     */
+    public void setHint(List<Position> squares) {
+        for (int i = hinted.nextSetBit(0); i >= 0; i = hinted.nextSetBit(i + 1))
+            invalidate(i);
+        hinted.clear();
+        for (var p : squares) {
+            hinted.set(index(p));
+            invalidate(index(p));
+        }
+    }
+
+    /**
+     * Returns the square under a point of the view.
+     * @param x X coordinate in the view
+     * @param y Y coordinate in the view
+     * @return position of the square, or null if the point is outside the board
+     */
+    public Position squareAt(double x, double y) {
+        return squareAt(x, y, getWidth(), getHeight(), geometry);
+    }
+
+    /**
+     * Returns the square under a point of a board of the size, row 0 at the bottom.
+     */
+    static Position squareAt(double x, double y, double width, double height, Geometry geometry) {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return null;
+        int col = (int) (x * geometry.getCols() / width);
+        int row = geometry.getRows() - 1 - (int) (y * geometry.getRows() / height);
+        return Position.of(row, col);
+    }
+
+    /**
+     * Returns the squares waiting to be repainted.
+     */
+    BitSet getDirty() {
+        return (BitSet) dirty.clone();
+    }
+
+    private int index(Position p) {
+        return geometry.square(p.getRow(), p.getCol());
+    }
+
+    private void invalidate(int square) {
+        if (dirty.isEmpty())
+            requestLayout();
+        dirty.set(square);
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double width = getWidth();
+        double height = getHeight();
+        if (width != canvas.getWidth() || height != canvas.getHeight()) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+            tileWidth = width / geometry.getCols();
+            tileHeight = height / geometry.getRows();
+            sprites.clear();
+            dirty.set(0, occupants.length);
+        }
+        if (tileWidth <= 0 || tileHeight <= 0)
+            return;
+        var gc = canvas.getGraphicsContext2D();
+        for (int sq = dirty.nextSetBit(0); sq >= 0; sq = dirty.nextSetBit(sq + 1))
+            paint(gc, sq);
+        dirty.clear();
+    }
+
+    private void paint(GraphicsContext gc, int square) {
+        int row = geometry.row(square);
+        int col = geometry.col(square);
+        double x = col * tileWidth;
+        double y = (geometry.getRows() - 1 - row) * tileHeight;
+
+        gc.setFill((row + col) % 2 == 0 ? LIGHT : DARK);
+        gc.fillRect(x, y, tileWidth, tileHeight);
+        if (highlighted.get(square)) {
+            gc.setFill(HIGHLIGHT);
+            gc.fillRect(x, y, tileWidth, tileHeight);
+        }
+        var goal = board.getGoal();
+        if (goal.getRow() == row && goal.getCol() == col)
+            outline(gc, x, y, GOAL, 5);
+        if (hinted.get(square))
+            outline(gc, x, y, HINT, 4);
+        var piece = occupants[square];
+        if (piece != null) {
+            var image = sprite(piece.getType());
+            gc.drawImage(image, x + (tileWidth - image.getWidth()) / 2, y + (tileHeight - image.getHeight()) / 2);
+        }
+    }
+
+    private void outline(GraphicsContext gc, double x, double y, Color color, double width) {
+        gc.setStroke(color);
+        gc.setLineWidth(width);
+        gc.strokeRect(x + width / 2, y + width / 2, tileWidth - width, tileHeight - width);
+    }
+
+    /**
+     * Returns the resource of the image of a piece type, e.g. /images/king.png.
+     * @throws IllegalArgumentException if there is no image of the type
+     */
+    static String imagePath(PieceType type) {
+        var path = "/images/" + type.name().toLowerCase(Locale.ROOT) + ".png";
+        if (CanvasBoardView.class.getResource(path) == null)
+            throw new IllegalArgumentException("No image of " + type);
+        return path;
+    }
+
+    private Image sprite(PieceType type) {
+        var path = imagePath(type);
+        return sprites.computeIfAbsent(path, p -> new Image(getClass().getResourceAsStream(p),
+                Math.max(1, tileWidth - 2 * PADDING), Math.max(1, tileHeight - 2 * PADDING), true, true));
+    }
+}
@@ -5,22 +5,52 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import lombok.extern.slf4j.Slf4j;
+import util.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JavaFX Application of ChessPuzzle.
+ * With the {@code --canvas} argument, the board is drawn by {@link CanvasBoardView}.
+ * With {@code --metrics <file>}, metrics are written to the file every few seconds and on exit.
+ * With {@code --table <file>}, the distance table of the hints is loaded from the file instead of
+ * the one next to the score file.
  */
+@Slf4j
 public class ChessApp extends Application {
 
     @Override
     public void start(Stage primaryStage) throws Exception{
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/chess.fxml"));
+        var args = getParameters().getRaw();
+        boolean canvas = args.contains("--canvas");
+        int t = args.indexOf("--table");
+        var tableFile = t >= 0 && t + 1 < args.size() ? Path.of(args.get(t + 1)) : null;
+        loader.setControllerFactory(c -> new Controller(canvas, tableFile));
         Parent root = loader.load();
         Controller controller = loader.getController();
         primaryStage.setTitle("Chess Puzzle");
         Scene scene = new Scene(root);
         scene.getStylesheets().add("/styles.css");
         primaryStage.setScene(scene);
-        primaryStage.setOnHidden(e -> controller.onExit());
+        Metrics.DEFAULT.registerMBean(Main.METRICS_NAME);
+        int i = args.indexOf("--metrics");
+        var metricsFile = i >= 0 && i + 1 < args.size() ? Path.of(args.get(i + 1)) : null;
+        if (metricsFile != null)
+            Metrics.DEFAULT.dumpEvery(metricsFile, 10, TimeUnit.SECONDS);
+        primaryStage.setOnHidden(e -> {
+            controller.onExit();
+            if (metricsFile != null) {
+                try {
+                    Metrics.DEFAULT.dump(metricsFile);
+                } catch (IOException ex) {
+                    log.error("Failed to write metrics to {}", metricsFile, ex);
+                }
+            }
+        });
         primaryStage.show();
     }
 }
@@ -4,6 +4,11 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import state.Board;
+import state.BoardChange;
+import state.GameEngine;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.event.ActionEvent;
@@ -18,13 +23,18 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
 import javafx.util.Callback;
+import javafx.util.Duration;
 
 import state.Piece;
-import state.PieceType;
-import util.JsonIO;
+import util.Leaderboard;
+import util.ScoreStore;
 import state.Position;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -32,6 +42,8 @@ import java.util.List;
  */
 @Slf4j
 public class Controller {
+    private static final Comparator<ScoreRow> SCORE_ORDER = Comparator.comparingInt(ScoreRow::getScore).reversed();
+
     @FXML
     private Label msg;
     @FXML
@@ -58,25 +70,71 @@ public class Controller {
     private Label moveLabel;
 
     private Pane[][] tiles;
+    /**
+     * Board drawn on a canvas instead of the tiles, or null.
+     */
+    private CanvasBoardView boardView;
+    private final boolean canvas;
+    /**
+     * File of the distance table of the hints, loaded on launch if present.
+     */
+    private final Path tableFile;
+    /**
+     * Tiles of the shown hint, the piece and its destination.
+     */
+    private final List<Pane> hintTiles = new ArrayList<>();
+    /**
+     * Image of each piece on the tiles, in the order of the piece list.
+     */
+    private final List<ImageView> pieceViews = new ArrayList<>();
+    private Timeline clockView;
     private final Board board = new Board();
     private final File scoreFile = new File(getClass().getProtectionDomain().getCodeSource().getLocation().getPath() + "-score.json");
+    private final ScoreStore<ScoreRow> scoreStore = new ScoreStore<>(scoreFile.toPath(), ScoreRow.class, SCORE_ORDER, 10);
+    private final Leaderboard<ScoreRow> leaderboard = new Leaderboard<>(10, SCORE_ORDER);
+
+    /**
+     * Creates a controller drawing the board with one pane per square.
+     */
+    public Controller() {
+        this(false, null);
+    }
+
+    /**
+     * Creates a controller.
+     * @param canvas true to draw the board on a single canvas
+     * @param tableFile File of the distance table, or null for the one next to the score file
+     */
+    public Controller(boolean canvas, Path tableFile) {
+        this.canvas = canvas;
+        this.tableFile = tableFile != null ? tableFile
+                : Path.of(getClass().getProtectionDomain().getCodeSource().getLocation().getPath() + "-distance.bin");
+    }
 
     /**
      * Initialize the components on launch.
      */
     public void initialize() {
-        initTiles();
-
-        // set pieces
         var pieceList = board.getPieceList();
-        for (var p : pieceList)
-            initPiece(p);
+        if (canvas) {
+            var geometry = board.getGeometry();
+            boardView = new CanvasBoardView(board);
+            grid.add(boardView, 0, 0, geometry.getCols(), geometry.getRows());
+        } else {
+            initTiles();
+            for (var p : pieceList)
+                initPiece(p);
+        }
 
         initScoreTable();
 
+        // a missing table is computed on the first hint
+        var table = Main.loadTable(tableFile);
+        if (table != null)
+            board.setDistanceTable(table);
+
         // set bindings
-        board.nextPositionsProperty().addListener((obs, oldVal, newVal) -> updateNextPositions(oldVal, newVal));
-        board.stateProperty().addListener((obs, old, newVal) -> onStateChanged(newVal));
+        board.addChangeListener(this::onBoardChanged);
         playBtn.disableProperty().bind(nameField.textProperty().isEmpty());
 
         msg.textProperty().bind(board.messageProperty());
@@ -84,6 +142,10 @@ public class Controller {
         timeLabel.textProperty().bind(board.getScorer().timeProperty().asString("%1$tM:%1$tS"));
         moveLabel.textProperty().bind(board.getScorer().moveProperty().asString());
 
+        // the scorer has no timer; refresh the time label only while playing
+        clockView = new Timeline(new KeyFrame(Duration.millis(250), e -> board.getScorer().refreshTime()));
+        clockView.setCycleCount(Animation.INDEFINITE);
+
         startPromptPane.setVisible(true);
         Platform.runLater(() -> nameField.requestFocus());
     }
@@ -92,12 +154,13 @@ public class Controller {
      * Creates grid tiles and add event handler to each tile.
      */
     private void initTiles() {
-        tiles = new StackPane[Board.ROW_SIZE][Board.COL_SIZE];
+        var geometry = board.getGeometry();
+        tiles = new StackPane[geometry.getRows()][geometry.getCols()];
         for (int i = 0; i < tiles.length; i++) {
             for (int j = 0; j < tiles[i].length; j++) {
                 var pane = new StackPane();
                 tiles[i][j] = pane;
-                grid.add(pane, j, Board.ROW_SIZE - i - 1);
+                grid.add(pane, j, geometry.getRows() - i - 1);
                 if ((i + j) % 2 == 0)
                     pane.getStyleClass().add("tile1");
                 else
@@ -110,7 +173,8 @@ public class Controller {
                 });
             }
         }
-        tiles[Board.GOAL_POS.getRow()][Board.GOAL_POS.getCol()].getStyleClass().add("goal_pane");
+        var goal = board.getGoal();
+        tiles[goal.getRow()][goal.getCol()].getStyleClass().add("goal_pane");
     }
 
     /**
@@ -132,18 +196,42 @@ public class Controller {
      * @param piece Piece
      */
     private void initPiece(Piece piece) {
-        var imgPath = (piece.getType() == PieceType.KING) ? "/images/king.png" : "/images/knight.png";
+        var imgPath = CanvasBoardView.imagePath(piece.getType());
         var view = createImageView(imgPath);
         var tile = tiles[piece.getPosition().getRow()][piece.getPosition().getCol()];
         tile.getChildren().add(view);
         tile.setCursor(Cursor.HAND);
-        piece.positionProperty().addListener((obs, oldVal, newVal) -> {
-            var prevTile = tiles[oldVal.getRow()][oldVal.getCol()];
-            var newTile = tiles[newVal.getRow()][newVal.getCol()];
-            newTile.getChildren().add(view);
-            prevTile.setCursor(Cursor.DEFAULT);
-            newTile.setCursor(Cursor.HAND);
-        });
+        pieceViews.add(view);
+    }
+
+    /**
+     * Moves the image of a piece to its new tile.
+     * @param move Move of the piece
+     */
+    private void movePiece(BoardChange.PieceMove move) {
+        var prevTile = tiles[move.getFrom().getRow()][move.getFrom().getCol()];
+        var newTile = tiles[move.getTo().getRow()][move.getTo().getCol()];
+        newTile.getChildren().add(pieceViews.get(move.getPiece()));
+        prevTile.setCursor(Cursor.DEFAULT);
+        newTile.setCursor(Cursor.HAND);
+    }
+
+    /**
+     * Updates the GUI once per change of the board.
+     * @param change Changes of one operation
+     */
+    private void onBoardChanged(BoardChange change) {
+        if (!change.getMoves().isEmpty())
+            clearHint();
+        if (boardView == null) {
+            // highlights first, so that the cursor of a moved piece is not reset
+            if (change.isNextPositionsChanged())
+                updateNextPositions(change.getPreviousNextPositions(), change.getNextPositions());
+            for (var move : change.getMoves())
+                movePiece(move);
+        }
+        if (change.isStateChanged())
+            onStateChanged(change.getNewState());
     }
 
     /**
@@ -153,10 +241,10 @@ public class Controller {
      * @return Position of the pane
      */
     private Position searchPanesPosition(Pane pane) {
-        for (int i = 0; i < Board.ROW_SIZE; i++) {
-            for (int j = 0; j < Board.COL_SIZE; j++) {
+        for (int i = 0; i < tiles.length; i++) {
+            for (int j = 0; j < tiles[i].length; j++) {
                 if (tiles[i][j] == pane)
-                    return new Position(i, j);
+                    return Position.of(i, j);
             }
         }
         return null;
@@ -213,16 +301,25 @@ public class Controller {
             }
         });
 
+        // the table shows the leaderboard and receives only its changes
+        leaderboard.addListener(this::onLeaderboardChanged);
+
         // load scores if present
-        try (var is = new FileInputStream(scoreFile)) {
-            log.info("Score file found. Adding entries to the table");
-            var list = JsonIO.readJsonStream(is, ScoreRow.class);
+        var event = new ScoreFileEvent();
+        event.begin();
+        event.operation = "load";
+        event.file = scoreFile.getName();
+        try {
+            var list = scoreStore.load();
+            event.rows = list.size();
+            event.success = true;
             log.debug("Adding {} items", list.size());
-            for (var item : list) scoreTable.getItems().add(item);
-            scoreTable.sort();
-        } catch (IOException | NullPointerException e) {
-            log.trace("No score file found");
-            System.out.println("score file not found");
+            for (var row : list)
+                leaderboard.offer(row);
+        } catch (IOException e) {
+            log.error("Failed to load scores from {}", scoreFile.getName(), e);
+        } finally {
+            event.commit();
         }
     }
 
@@ -233,11 +330,26 @@ public class Controller {
      */
     private void addScoreRow(String name, int score) {
         log.debug("Player: {}, score: {}", name, score);
-        scoreTable.getItems().add(new ScoreRow(name, score));
-        scoreTable.sort();
-        int size = scoreTable.getItems().size();
-        if (size > 10)
-            scoreTable.getItems().remove(size - 1);
+        var row = new ScoreRow(name, score);
+        try {
+            scoreStore.append(row);
+        } catch (IOException e) {
+            log.error("Failed to save score", e);
+        }
+        leaderboard.offer(row);
+    }
+
+    private void onLeaderboardChanged(ScoreRow added, ScoreRow evicted) {
+        var items = scoreTable.getItems();
+        if (evicted != null)
+            items.remove(evicted);
+        // insert after equal scores, as the leaderboard ranks earlier results higher
+        int i = Collections.binarySearch(items, added, SCORE_ORDER);
+        if (i < 0)
+            i = -i - 1;
+        while (i < items.size() && SCORE_ORDER.compare(items.get(i), added) == 0)
+            i++;
+        items.add(i, added);
     }
 
     /**
@@ -257,6 +369,7 @@ public class Controller {
     public void reset() {
         log.info("Restarting game...");
         board.play();
+        clockView.play();
     }
 
     /**
@@ -268,6 +381,7 @@ public class Controller {
         log.info("Starting game...");
         startPromptPane.setVisible(false);
         board.play();
+        clockView.play();
     }
 
     /**
@@ -283,15 +397,53 @@ public class Controller {
         nameField.requestFocus();
     }
 
+    /**
+     * Hint button action. Highlights the piece and the destination of the next optimal move.
+     * @param e
+     */
+    @FXML
+    public void onHintButtonPressed(ActionEvent e) {
+        clearHint();
+        if (board.stateProperty().get() != GameEngine.State.RUNNING)
+            return;
+        var move = board.hint();
+        if (move == null) {
+            log.info("No hint");
+            return;
+        }
+        log.debug("Hint: {}", move);
+        var from = board.getPieceList().get(move.getPieceIndex()).getPosition();
+        var to = move.getTo();
+        if (boardView != null) {
+            boardView.setHint(List.of(from, to));
+            return;
+        }
+        hintTiles.add(tiles[from.getRow()][from.getCol()]);
+        hintTiles.add(tiles[to.getRow()][to.getCol()]);
+        for (var tile : hintTiles)
+            tile.getStyleClass().add("hint_pane");
+    }
+
+    private void clearHint() {
+        if (boardView != null)
+            boardView.setHint(List.of());
+        for (var tile : hintTiles)
+            tile.getStyleClass().remove("hint_pane");
+        hintTiles.clear();
+    }
+
     /**
      * Change GUI on state change.
      * @param newState New state
      */
-    public void onStateChanged(Board.State newState) {
-        if (newState == Board.State.RUNNING)
+    public void onStateChanged(GameEngine.State newState) {
+        if (newState == GameEngine.State.RUNNING)
             return;
 
-        if (newState == Board.State.GOAL) {
+        clockView.stop();
+        clearHint();
+
+        if (newState == GameEngine.State.GOAL) {
             log.info("Goal");
             board.end();
             int score = board.getScorer().getScore();
@@ -307,16 +459,26 @@ public class Controller {
     }
 
     /**
-     * Save score on exit.
+     * Compact the score log on exit.
      */
     public void onExit() {
         log.info("Saving scores to {}...", scoreFile.getName());
+        var event = new ScoreFileEvent();
+        event.begin();
+        event.operation = "save";
+        event.file = scoreFile.getName();
         try {
-            scoreFile.createNewFile();
-            JsonIO.writeJsonStream(new FileOutputStream(scoreFile), scoreTable.getItems());
+            try {
+                event.rows = scoreStore.compact();
+            } finally {
+                scoreStore.close();
+            }
+            event.success = true;
         } catch (IOException e) {
             log.error("Failed.");
             e.printStackTrace();
+        } finally {
+            event.commit();
         }
         log.info("Exiting app...");
     }
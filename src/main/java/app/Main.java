@@ -1,11 +1,235 @@
 package app;
 
 import javafx.application.Application;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import server.GameServer;
+import server.Journal;
+import server.SessionManager;
+import state.Bitboard;
+import state.DistanceTable;
+import state.GameEngine;
+import state.Geometry;
+import state.HintEngine;
+import state.PieceType;
+import state.PuzzleGenerator;
+import state.Sweep;
+import util.Metrics;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main class.
+ * <p>
+ * Without arguments, launches the game, with {@code --canvas} drawing the board on a single canvas.
+ * With {@code --sweep <file.csv> [--all-goals]}, solves every start placement
+ * and writes the report to the file.
+ * With {@code --generate <file.csv> [--pieces king,knight] [--moves min-max] [--branching min-max] [--limit n]},
+ * writes puzzles of the requested difficulty to the file.
+ * With {@code --write-table <file>}, computes the distance table of the default puzzle and writes it to the file.
+ * With {@code --server [port] [--journal <dir>] [--table <file>]}, serves games over HTTP without the GUI,
+ * optionally journaling the games to recover them after a restart.
+ * <p>
+ * The game and the server load the distance table of the hints from {@code --table <file>} when the file exists,
+ * and otherwise compute it on the first hint.
+ * <p>
+ * Metrics are registered over JMX as {@value #METRICS_NAME}. The server also serves them at {@code /metrics},
+ * and the game writes them to a file every few seconds with {@code --metrics <file>}.
+ * <p>
+ * In every mode, {@code --jfr <file.jfr>} starts a continuous flight recording with the bundled
+ * {@code chess.jfc}, keeping the last hour and writing it to the file on exit.
  */
+@Slf4j
 public class Main {
+    /**
+     * JMX object name of the metrics.
+     */
+    public static final String METRICS_NAME = "chess:type=Metrics";
+
+    public static void main(String[] args) throws IOException {
+        args = startRecording(args);
+        if (args.length > 0 && args[0].equals("--sweep")) {
+            sweep(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--generate")) {
+            generate(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--write-table")) {
+            writeTable(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            serve(args);
+            return;
+        }
+        Application.launch(ChessApp.class, args);
+    }
+
+    /**
+     * Starts a flight recording if the arguments contain {@code --jfr <file.jfr>}.
+     * @param args Command line arguments
+     * @return arguments without the option
+     * @throws IOException if the bundled configuration cannot be read
+     */
+    static String[] startRecording(String[] args) throws IOException {
+        var list = new ArrayList<>(List.of(args));
+        int i = list.indexOf("--jfr");
+        if (i < 0 || i + 1 >= list.size())
+            return args;
+        var file = Path.of(list.get(i + 1));
+        list.subList(i, i + 2).clear();
+
+        Configuration configuration;
+        try (var reader = new InputStreamReader(Main.class.getResourceAsStream("/chess.jfc"), StandardCharsets.UTF_8)) {
+            configuration = Configuration.create(reader);
+        } catch (ParseException e) {
+            throw new IOException("Invalid chess.jfc", e);
+        }
+        var recording = new Recording(configuration);
+        recording.setName("chess");
+        recording.setToDisk(true);
+        recording.setMaxAge(Duration.ofHours(1));
+        recording.setDestination(file);
+        recording.setDumpOnExit(true);
+        recording.start();
+        log.info("Recording to {}", file);
+        return list.toArray(new String[0]);
+    }
+
+    private static void serve(String[] args) throws IOException {
+        int port = 8080;
+        Journal journal = null;
+        DistanceTable table = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--journal") && i + 1 < args.length)
+                journal = Journal.open(Path.of(args[++i]));
+            else if (args[i].equals("--table") && i + 1 < args.length)
+                table = loadTable(Path.of(args[++i]));
+            else
+                port = Integer.parseInt(args[i]);
+        }
+        if (table != null)
+            HintEngine.shared(Geometry.DEFAULT, GameEngine.DEFAULT_TYPES, GameEngine.DEFAULT_GOAL).setTable(table);
+        Metrics.DEFAULT.registerMBean(METRICS_NAME);
+        var sessions = new SessionManager(GameEngine::new, System::nanoTime, 30, TimeUnit.MINUTES, journal);
+        sessions.startEviction(1, TimeUnit.MINUTES);
+        var server = new GameServer(new InetSocketAddress(port), sessions, Runtime.getRuntime().availableProcessors() * 4);
+        var closeJournal = journal;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            sessions.close();
+            if (closeJournal != null)
+                closeJournal.close();
+        }));
+        server.start();
+    }
+
+    /**
+     * Loads the distance table of the default puzzle if the file exists.
+     * @param file Table file written with {@code --write-table}
+     * @return loaded table, or null if it is missing, unreadable or of another puzzle
+     */
+    static DistanceTable loadTable(Path file) {
+        if (!Files.exists(file))
+            return null;
+        try {
+            var table = DistanceTable.load(file);
+            if (!table.getTypes().equals(GameEngine.DEFAULT_TYPES)
+                    || Bitboard.square(table.getGoal()) != GameEngine.DEFAULT_GOAL) {
+                log.warn("Distance table {} is of another puzzle", file);
+                return null;
+            }
+            log.info("Loaded the distance table {}", file);
+            return table;
+        } catch (IOException e) {
+            log.warn("Failed to load the distance table {}", file, e);
+            return null;
+        }
+    }
+
+    private static void writeTable(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: --write-table <file>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        var table = DistanceTable.compute(GameEngine.DEFAULT_TYPES, Bitboard.toPosition(GameEngine.DEFAULT_GOAL));
+        table.write(Path.of(args[1]));
+        log.info("Wrote the distance table to {} in {} ms", args[1], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void sweep(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: --sweep <file.csv> [--all-goals]");
+            System.exit(2);
+        }
+        boolean allGoals = args.length > 2 && args[2].equals("--all-goals");
+        var goals = allGoals ? Sweep.allSquares() : List.of(Bitboard.toPosition(GameEngine.DEFAULT_GOAL));
+
+        long start = System.nanoTime();
+        var report = Sweep.run(GameEngine.DEFAULT_TYPES, goals);
+        try (var out = new BufferedWriter(new FileWriter(args[1], StandardCharsets.UTF_8))) {
+            report.writeCsv(out);
+        }
+        log.info("Solved {} starts ({} solvable) for {} goals in {} ms",
+                report.count(), report.countSolvable(), goals.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void generate(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: --generate <file.csv> [--pieces king,knight] [--moves min-max] "
+                    + "[--branching min-max] [--limit n]");
+            System.exit(2);
+        }
+        var types = GameEngine.DEFAULT_TYPES;
+        var criteria = PuzzleGenerator.Criteria.builder();
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            var value = args[i + 1];
+            var range = value.split("-");
+            switch (args[i]) {
+                case "--pieces":
+                    var list = new ArrayList<PieceType>();
+                    for (var name : value.split(","))
+                        list.add(PieceType.valueOf(name.toUpperCase()));
+                    types = list;
+                    break;
+                case "--moves":
+                    criteria.minMoves(Integer.parseInt(range[0])).maxMoves(Integer.parseInt(range[range.length - 1]));
+                    break;
+                case "--branching":
+                    criteria.minBranching(Double.parseDouble(range[0]))
+                            .maxBranching(Double.parseDouble(range[range.length - 1]));
+                    break;
+                case "--limit":
+                    criteria.limit(Long.parseLong(value));
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
 
-    public static void main(String[] args) { Application.launch(ChessApp.class, args); }
+        long start = System.nanoTime();
+        PuzzleGenerator.Stats stats;
+        try (var out = new BufferedWriter(new FileWriter(args[1], StandardCharsets.UTF_8))) {
+            stats = new PuzzleGenerator(types, criteria.build()).generate(out);
+        }
+        log.info("Generated {} puzzles from {} candidates in {} ms",
+                stats.getAccepted(), stats.getCandidates(), (System.nanoTime() - start) / 1_000_000);
+    }
 }
@@ -0,0 +1,31 @@
+package app;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of loading or saving the score file in {@link Controller}.
+ */
+@Name("chess.ScoreFile")
+@Label("Score File")
+@Description("Load of the scores on launch or compaction on exit")
+@Category({"Chess Puzzle", "I/O"})
+@StackTrace(false)
+class ScoreFileEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    @Description("load or save")
+    String operation;
+
+    @Label("File")
+    String file;
+
+    @Label("Rows")
+    @Description("Number of loaded scores, or of scores written to the snapshot on save")
+    int rows;
+
+    @Label("Success")
+    boolean success;
+}
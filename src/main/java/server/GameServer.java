@@ -0,0 +1,242 @@
+package server;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import state.Bitboard;
+import state.MoveRecord;
+import state.ReplayVerifier;
+import util.Metrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP API hosting many independent games on one JVM.
+ * <p>
+ * Routes (responses are JSON views of the session):
+ * <pre>
+ * POST   /sessions                       create a session
+ * GET    /sessions/{id}                  state and score
+ * POST   /sessions/{id}/play             start a new game
+ * POST   /sessions/{id}/select?square=g1 select a square, 409 unless the game is running
+ * GET    /sessions/{id}/hint             next optimal move, 204 if none
+ * DELETE /sessions/{id}                  close the session
+ * POST   /verify                         replay a Base64 move record in the body
+ * GET    /metrics                        metrics in the Prometheus text format
+ * </pre>
+ * Requests run on virtual threads when the JDK provides them,
+ * otherwise on a bounded thread pool.
+ */
+@Slf4j
+public class GameServer implements AutoCloseable {
+    private static final String PREFIX = "/sessions";
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    private final Gson gson = new Gson();
+    private final SessionManager sessions;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ThreadLocal<ReplayVerifier> verifiers = ThreadLocal.withInitial(ReplayVerifier::new);
+
+    /**
+     * Creates a new server. Call {@link #start()} to accept requests.
+     * @param address Address to bind, port 0 for any free port
+     * @param sessions Sessions of the server
+     * @param maxThreads Size of the fallback thread pool
+     * @throws IOException if the address cannot be bound
+     */
+    public GameServer(InetSocketAddress address, SessionManager sessions, int maxThreads) throws IOException {
+        this.sessions = sessions;
+        this.executor = createExecutor(maxThreads);
+        this.server = HttpServer.create(address, 0);
+        server.createContext(PREFIX, this::handle);
+        server.createContext("/verify", this::handleVerify);
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Returns an executor of virtual threads if available, or a bounded pool.
+     * @param maxThreads Size of the fallback pool
+     * @return executor
+     */
+    static ExecutorService createExecutor(int maxThreads) {
+        try {
+            var method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            log.info("Handling requests on virtual threads");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.info("Handling requests on {} threads", maxThreads);
+            var count = new AtomicInteger();
+            return new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(maxThreads * 64), r -> {
+                        var t = new Thread(r, "http-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+        log.info("Listening on {}", server.getAddress());
+    }
+
+    /**
+     * Gets the bound address.
+     * @return address
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops the server.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            var method = exchange.getRequestMethod();
+            var parts = exchange.getRequestURI().getPath().substring(PREFIX.length()).split("/");
+            // parts: "", id, action
+            if (parts.length <= 1) {
+                if (!method.equals("POST")) {
+                    send(exchange, 405, "Method not allowed");
+                    return;
+                }
+                send(exchange, 201, sessions.create().view());
+                return;
+            }
+
+            var session = sessions.get(parts[1]);
+            if (session == null) {
+                send(exchange, 404, "Session not found");
+                return;
+            }
+            var action = parts.length > 2 ? parts[2] : "";
+
+            if (action.isEmpty() && method.equals("GET")) {
+                send(exchange, 200, session.view());
+            } else if (action.isEmpty() && method.equals("DELETE")) {
+                sessions.remove(session.getId());
+                send(exchange, 204, null);
+            } else if (action.equals("play") && method.equals("POST")) {
+                send(exchange, 200, session.play());
+            } else if (action.equals("hint") && method.equals("GET")) {
+                var hint = session.hint();
+                send(exchange, hint == null ? 204 : 200, hint);
+            } else if (action.equals("select") && method.equals("POST")) {
+                var query = parseQuery(exchange.getRequestURI().getRawQuery());
+                int square;
+                try {
+                    square = Bitboard.parseSquare(query.get("square"));
+                } catch (IllegalArgumentException e) {
+                    send(exchange, 400, e.getMessage());
+                    return;
+                }
+                Session.View view;
+                try {
+                    view = session.select(square);
+                } catch (IllegalStateException e) {
+                    send(exchange, 409, e.getMessage());
+                    return;
+                }
+                send(exchange, 200, view);
+            } else {
+                send(exchange, 404, "Not found");
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to handle {}", exchange.getRequestURI(), e);
+            throw e;
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleVerify(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                send(exchange, 405, "Method not allowed");
+                return;
+            }
+            var body = exchange.getRequestBody().readNBytes(MAX_RECORD_BYTES + 1);
+            if (body.length > MAX_RECORD_BYTES) {
+                send(exchange, 413, "Record too large");
+                return;
+            }
+            MoveRecord record;
+            try {
+                record = MoveRecord.fromBase64(new String(body, StandardCharsets.US_ASCII).trim());
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, "Record is not Base64");
+                return;
+            }
+            send(exchange, 200, verifiers.get().verify(record));
+        } catch (RuntimeException e) {
+            log.error("Failed to handle {}", exchange.getRequestURI(), e);
+            throw e;
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, "Method not allowed");
+                return;
+            }
+            var bytes = Metrics.DEFAULT.toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        var map = new HashMap<String, String>();
+        if (query == null)
+            return map;
+        for (var pair : query.split("&")) {
+            int i = pair.indexOf('=');
+            if (i > 0)
+                map.put(URLDecoder.decode(pair.substring(0, i), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(i + 1), StandardCharsets.UTF_8));
+        }
+        return map;
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        var bytes = (body instanceof String ? gson.toJson(Map.of("error", body)) : gson.toJson(body))
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
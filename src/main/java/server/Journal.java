@@ -0,0 +1,599 @@
+package server;
+
+import lombok.extern.slf4j.Slf4j;
+import state.GameEngine;
+import state.MoveRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of the games on the server, to recover them after a restart.
+ * <p>
+ * Every event of a session is written with the resulting state of its game to a ring
+ * of preallocated, memory-mapped segments. A background thread forces the written
+ * records to disk, so one force covers all events that arrived meanwhile (group commit);
+ * {@link #sync(long)} waits for it.
+ * <p>
+ * When a segment is full the journal moves on to the next one, overwriting the oldest,
+ * and starts it with a checkpoint: the latest state of every open session. Recovery reads
+ * the newest segment with a complete checkpoint and the segment after it, and keeps the last
+ * state of every session, so it never replays games move by move.
+ * <p>
+ * Segment format (big-endian):
+ * <pre>
+ * int    magic ("CPJN")
+ * int    version
+ * long   generation, incremented on every rotation
+ * records:
+ *   int    payload length, 0 after the last record
+ *   int    CRC-32 of the generation and the payload
+ *   byte   record type
+ *   long[2] session ID (UUID), except for checkpoints
+ *   byte   selected square of the event, or -1
+ *   state  of the game after the event, except for closes and checkpoints,
+ *          followed by the move record so far (int length, -1 if none, and bytes)
+ * </pre>
+ */
+@Slf4j
+public class Journal implements Closeable {
+    /**
+     * Default number of segments.
+     */
+    public static final int DEFAULT_SEGMENTS = 4;
+    /**
+     * Default size of a segment in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+
+    private static final int MAGIC = 0x43504A4E;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /**
+     * Type of a record.
+     */
+    public enum Type {
+        /**
+         * session is created.
+         */
+        CREATE,
+        /**
+         * new game is started.
+         */
+        PLAY,
+        /**
+         * square is selected without moving.
+         */
+        SELECT,
+        /**
+         * square is selected and a piece moved there.
+         */
+        MOVE,
+        /**
+         * session is closed.
+         */
+        CLOSE,
+        /**
+         * state of a session in a checkpoint.
+         */
+        SNAPSHOT,
+        /**
+         * end of a checkpoint.
+         */
+        CHECKPOINT
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Signalled when records are written or the journal is closed.
+     */
+    private final Condition pending = lock.newCondition();
+    /**
+     * Signalled when records are forced to disk or the journal is closed.
+     */
+    private final Condition flushed = lock.newCondition();
+    private final MappedByteBuffer[] segments;
+    private final long[] generations;
+    private final Map<UUID, byte[]> latest = new HashMap<>();
+    private final Map<UUID, SessionState> recovered;
+    private final Thread flusher;
+    private int current;
+    private long generation;
+    private long written;
+    private long durable;
+    private boolean closed;
+
+    private Journal(MappedByteBuffer[] segments, long[] generations, Map<UUID, SessionState> recovered) {
+        this.segments = segments;
+        this.generations = generations;
+        this.recovered = recovered;
+        this.flusher = new Thread(this::flushLoop, "journal-flush");
+        flusher.setDaemon(true);
+    }
+
+    /**
+     * Opens a journal with the default number and size of segments.
+     * @param dir Directory of the segments
+     * @return opened journal
+     * @throws IOException if the segments cannot be opened
+     */
+    public static Journal open(Path dir) throws IOException {
+        return open(dir, DEFAULT_SEGMENTS, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens a journal, recovering the sessions written before.
+     * @param dir Directory of the segments
+     * @param segmentCount Number of segments in the ring, at least 3
+     * @param segmentBytes Size of a segment; it must hold a checkpoint of all open sessions
+     * @return opened journal
+     * @throws IOException if the segments cannot be opened
+     */
+    public static Journal open(Path dir, int segmentCount, int segmentBytes) throws IOException {
+        if (segmentCount < 3)
+            throw new IllegalArgumentException("A journal needs at least 3 segments");
+        Files.createDirectories(dir);
+        var segments = new MappedByteBuffer[segmentCount];
+        var generations = new long[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            try (var file = new RandomAccessFile(dir.resolve("journal-" + i + ".seg").toFile(), "rw")) {
+                if (file.length() != segmentBytes)
+                    file.setLength(segmentBytes);
+                segments[i] = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            }
+            var segment = segments[i];
+            generations[i] = segment.getInt(0) == MAGIC && segment.getInt(4) == VERSION ? segment.getLong(8) : -1;
+        }
+
+        long start = System.nanoTime();
+        var journal = new Journal(segments, generations, new HashMap<>());
+        journal.recover();
+        log.info("Recovered {} sessions from {} in {} ms", journal.recovered.size(), dir,
+                (System.nanoTime() - start) / 1_000_000);
+        journal.lock.lock();
+        try {
+            journal.rotate(0);
+        } finally {
+            journal.lock.unlock();
+        }
+        journal.flusher.start();
+        return journal;
+    }
+
+    private void recover() {
+        // segments in the order of generations, newest first
+        var order = new ArrayList<Integer>();
+        for (int i = 0; i < segments.length; i++) {
+            if (generations[i] >= 0)
+                order.add(i);
+        }
+        order.sort((a, b) -> Long.compare(generations[b], generations[a]));
+        if (order.isEmpty()) {
+            current = segments.length - 1;
+            generation = -1;
+            return;
+        }
+        current = order.get(0);
+        generation = generations[current];
+
+        int from = -1;
+        for (int i = 0; i < order.size() && from < 0; i++) {
+            if (scan(order.get(i), null))
+                from = i;
+        }
+        if (from < 0) {
+            log.warn("No complete checkpoint in the journal");
+            return;
+        }
+        var states = new LinkedHashMap<UUID, byte[]>();
+        for (int i = from; i >= 0; i--)
+            scan(order.get(i), states);
+        latest.putAll(states);
+        for (var e : states.entrySet())
+            recovered.put(e.getKey(), SessionState.decode(ByteBuffer.wrap(e.getValue())));
+    }
+
+    /**
+     * Reads valid records of a segment.
+     * @param states Last state per session to update, or null to only look for a checkpoint
+     * @return true if the segment contains a complete checkpoint
+     */
+    private boolean scan(int index, Map<UUID, byte[]> states) {
+        var segment = segments[index].duplicate();
+        long gen = generations[index];
+        var crc = new CRC32();
+        boolean checkpoint = false;
+        int pos = HEADER_BYTES;
+        while (pos + RECORD_HEADER_BYTES <= segment.limit()) {
+            int length = segment.getInt(pos);
+            if (length <= 0 || length > segment.limit() - pos - RECORD_HEADER_BYTES)
+                break;
+            var payload = new byte[length];
+            segment.position(pos + RECORD_HEADER_BYTES);
+            segment.get(payload);
+            if (checksum(crc, gen, payload) != segment.getInt(pos + 4))
+                break;
+            pos += RECORD_HEADER_BYTES + length;
+
+            var type = Type.values()[payload[0]];
+            if (type == Type.CHECKPOINT) {
+                checkpoint = true;
+                continue;
+            }
+            if (states == null)
+                continue;
+            var buffer = ByteBuffer.wrap(payload);
+            buffer.get();
+            var id = new UUID(buffer.getLong(), buffer.getLong());
+            buffer.get();
+            if (type == Type.CLOSE)
+                states.remove(id);
+            else
+                states.put(id, Arrays.copyOfRange(payload, buffer.position(), payload.length));
+        }
+        return checkpoint;
+    }
+
+    private static int checksum(CRC32 crc, long generation, byte[] payload) {
+        crc.reset();
+        for (int i = 0; i < Long.BYTES; i++)
+            crc.update((int) (generation >>> (8 * i)));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns the sessions recovered when the journal was opened.
+     * @return last state of every session that was not closed
+     */
+    public Map<UUID, SessionState> getRecovered() {
+        return Collections.unmodifiableMap(recovered);
+    }
+
+    /**
+     * Writes an event of a session.
+     * @param type Type of the event
+     * @param id Session ID
+     * @param square Selected square, or -1
+     * @param engine Engine of the session after the event
+     * @return sequence number to pass to {@link #sync(long)}
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    public long append(Type type, UUID id, int square, GameEngine engine) {
+        return append(type, id, square, engine, null);
+    }
+
+    /**
+     * Writes an event of a session with the move record of its game.
+     * @param type Type of the event
+     * @param id Session ID
+     * @param square Selected square, or -1
+     * @param engine Engine of the session after the event
+     * @param record Move record of the game so far, or null
+     * @return sequence number to pass to {@link #sync(long)}
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    public long append(Type type, UUID id, int square, GameEngine engine, MoveRecord record) {
+        var state = SessionState.of(engine, record).encode();
+        var payload = payload(type, id, square, state);
+        lock.lock();
+        try {
+            long sequence = write(payload);
+            latest.put(id, state);
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the close of a session.
+     * @param id Session ID
+     * @return sequence number to pass to {@link #sync(long)}
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    public long close(UUID id) {
+        var payload = payload(Type.CLOSE, id, -1, new byte[0]);
+        lock.lock();
+        try {
+            if (!latest.containsKey(id))
+                return written;
+            long sequence = write(payload);
+            latest.remove(id);
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static byte[] payload(Type type, UUID id, int square, byte[] state) {
+        return ByteBuffer.allocate(18 + state.length)
+                .put((byte) type.ordinal())
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .put((byte) square)
+                .put(state)
+                .array();
+    }
+
+    private long write(byte[] payload) {
+        if (closed)
+            throw new IllegalStateException("Journal is closed");
+        if (segments[current].remaining() < recordBytes(payload.length))
+            rotate(recordBytes(payload.length));
+        put(payload);
+        written++;
+        pending.signal();
+        return written;
+    }
+
+    /**
+     * Returns the bytes taken by a record, including the terminating zero length.
+     */
+    private static int recordBytes(int payloadLength) {
+        return RECORD_HEADER_BYTES + payloadLength + 4;
+    }
+
+    private void put(byte[] payload) {
+        var segment = segments[current];
+        segment.putInt(payload.length);
+        segment.putInt(checksum(new CRC32(), generation, payload));
+        segment.put(payload);
+        // terminate the records; a stale record from an older generation may follow
+        segment.putInt(segment.position(), 0);
+    }
+
+    /**
+     * Moves on to the next segment and writes a checkpoint to it.
+     * Nothing changes if the checkpoint does not fit.
+     * @param reserve Bytes needed after the checkpoint for the next record
+     * @throws UncheckedIOException if a segment cannot hold the checkpoint and the reserve
+     */
+    private void rotate(int reserve) {
+        long size = HEADER_BYTES + recordBytes(1) + reserve;
+        for (var state : latest.values())
+            size += recordBytes(18 + state.length);
+        if (size > segments[0].capacity())
+            throw new UncheckedIOException(new IOException(
+                    "Journal segment is too small for a checkpoint of " + latest.size() + " sessions"));
+        if (generation >= 0)
+            segments[current].force();
+        current = (current + 1) % segments.length;
+        generation++;
+        generations[current] = generation;
+        var segment = segments[current];
+        segment.clear();
+        segment.putInt(MAGIC).putInt(VERSION).putLong(generation);
+        segment.putInt(segment.position(), 0);
+        for (var e : latest.entrySet())
+            put(payload(Type.SNAPSHOT, e.getKey(), -1, e.getValue()));
+        put(new byte[]{(byte) Type.CHECKPOINT.ordinal()});
+        log.debug("Journal generation {} with {} sessions", generation, latest.size());
+    }
+
+    /**
+     * Waits until the record of the sequence number is on disk.
+     * @param sequence Sequence number returned on write
+     */
+    public void sync(long sequence) {
+        lock.lock();
+        try {
+            while (durable < sequence && !closed)
+                flushed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long target;
+            MappedByteBuffer segment;
+            lock.lock();
+            try {
+                while (durable == written && !closed)
+                    pending.await();
+                if (durable == written)
+                    return;
+                target = written;
+                segment = segments[current];
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            // appends continue while forcing and are covered by the next force
+            segment.force();
+            lock.lock();
+            try {
+                durable = Math.max(durable, target);
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Forces the written records to disk and stops the background thread.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed)
+                return;
+            closed = true;
+            pending.signal();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            segments[current].force();
+            durable = written;
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * State of the game of a session, as written to the journal.
+     */
+    public static final class SessionState {
+        private final int[] squares;
+        private final GameEngine.State state;
+        private final int moveCount;
+        private final int selected;
+        private final long elapsedMillis;
+        private final MoveRecord record;
+
+        private SessionState(int[] squares, GameEngine.State state, int moveCount, int selected, long elapsedMillis,
+                             MoveRecord record) {
+            this.squares = squares;
+            this.state = state;
+            this.moveCount = moveCount;
+            this.selected = selected;
+            this.elapsedMillis = elapsedMillis;
+            this.record = record;
+        }
+
+        /**
+         * Captures the state of the engine.
+         * @param engine Engine to capture
+         * @return state of the engine
+         */
+        public static SessionState of(GameEngine engine) {
+            return of(engine, null);
+        }
+
+        /**
+         * Captures the state of the engine and the record of its game.
+         * @param engine Engine to capture
+         * @param record Move record of the game so far, or null
+         * @return state of the engine
+         */
+        public static SessionState of(GameEngine engine, MoveRecord record) {
+            var squares = new int[engine.getPieceCount()];
+            for (int i = 0; i < squares.length; i++)
+                squares[i] = engine.getSquare(i);
+            return new SessionState(squares, engine.getState(), engine.getMoveCount(), engine.getSelected(),
+                    engine.getClock().getElapsedMillis(), record);
+        }
+
+        /**
+         * Restores the state into the engine.
+         * @param engine Engine of the same puzzle
+         */
+        public void restore(GameEngine engine) {
+            engine.restore(squares, state, moveCount, selected, elapsedMillis);
+        }
+
+        byte[] encode() {
+            var bytes = record == null ? null : record.toBytes();
+            var buffer = ByteBuffer.allocate(19 + squares.length + (bytes == null ? 0 : bytes.length));
+            buffer.put((byte) squares.length);
+            for (int sq : squares)
+                buffer.put((byte) sq);
+            buffer.put((byte) (state == null ? -1 : state.ordinal()));
+            buffer.putInt(moveCount);
+            buffer.put((byte) selected);
+            buffer.putLong(elapsedMillis);
+            buffer.putInt(bytes == null ? -1 : bytes.length);
+            if (bytes != null)
+                buffer.put(bytes);
+            return buffer.array();
+        }
+
+        static SessionState decode(ByteBuffer buffer) {
+            var squares = new int[buffer.get()];
+            for (int i = 0; i < squares.length; i++)
+                squares[i] = buffer.get();
+            int state = buffer.get();
+            int moveCount = buffer.getInt();
+            int selected = buffer.get();
+            long elapsedMillis = buffer.getLong();
+            // states written before records were journaled end here
+            MoveRecord record = null;
+            if (buffer.remaining() >= Integer.BYTES) {
+                int length = buffer.getInt();
+                if (length >= 0) {
+                    var bytes = new byte[length];
+                    buffer.get(bytes);
+                    record = MoveRecord.fromBytes(bytes);
+                }
+            }
+            return new SessionState(squares, state < 0 ? null : GameEngine.State.values()[state],
+                    moveCount, selected, elapsedMillis, record);
+        }
+
+        /**
+         * Gets the game state.
+         * @return state, or null if no game had started
+         */
+        public GameEngine.State getState() {
+            return state;
+        }
+
+        /**
+         * Gets the number of moves.
+         * @return number of moves
+         */
+        public int getMoveCount() {
+            return moveCount;
+        }
+
+        /**
+         * Gets the elapsed time of the game.
+         * @return elapsed milliseconds
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Gets the move record of the game up to this state.
+         * @return record, or null if none was written
+         */
+        public MoveRecord getRecord() {
+            return record;
+        }
+
+        /**
+         * Gets the square of a piece.
+         * @param piece Index of the piece
+         * @return square
+         */
+        public int getSquare(int piece) {
+            return squares[piece];
+        }
+    }
+}
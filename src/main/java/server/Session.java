@@ -0,0 +1,340 @@
+package server;
+
+import state.Bitboard;
+import state.GameEngine;
+import state.Geometry;
+import state.HintEngine;
+import state.MoveRecord;
+import state.PieceType;
+import util.Histogram;
+import util.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A game of one player on the server.
+ * <p>
+ * Operations are synchronized because requests of a player may run concurrently.
+ * With a {@link Journal}, every operation is written to it and on disk before it returns.
+ */
+public class Session {
+    private static final Histogram SELECT_TIME = Metrics.DEFAULT.histogram("chess_select_seconds",
+            "Latency of a select", 1e-9, "source", "session");
+
+    private final String id;
+    private final GameEngine engine;
+    private final MoveRecord.Recorder recorder;
+    private final Journal journal;
+    private final UUID key;
+    private volatile long lastAccess;
+
+    /**
+     * Creates a new session.
+     * @param id Session ID
+     * @param engine Engine of the game
+     * @param now Current time in nanoseconds
+     */
+    public Session(String id, GameEngine engine, long now) {
+        this(id, engine, now, null);
+    }
+
+    /**
+     * Creates a new session writing its events to the journal.
+     * @param id Session ID, a UUID if a journal is given
+     * @param engine Engine of the game
+     * @param now Current time in nanoseconds
+     * @param journal Journal of the session, or null
+     */
+    public Session(String id, GameEngine engine, long now, Journal journal) {
+        this.id = id;
+        this.engine = engine;
+        this.journal = journal;
+        this.key = journal == null ? null : UUID.fromString(id);
+        this.recorder = new MoveRecord.Recorder(engine);
+        this.lastAccess = now;
+    }
+
+    /**
+     * Gets session ID.
+     * @return session ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the time of the last access.
+     * @return time in nanoseconds
+     */
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * Marks the session as accessed.
+     * @param now Current time in nanoseconds
+     */
+    public void touch(long now) {
+        lastAccess = now;
+    }
+
+    /**
+     * Starts new game.
+     * @return view of the session
+     */
+    public View play() {
+        View view;
+        long sequence;
+        synchronized (this) {
+            engine.play();
+            sequence = write(Journal.Type.PLAY, -1);
+            view = view();
+        }
+        sync(sequence);
+        return view;
+    }
+
+    /**
+     * Selects the square.
+     * @param square Square to select
+     * @return view of the session
+     * @throws IllegalStateException if the game is not running
+     */
+    public View select(int square) {
+        long start = System.nanoTime();
+        View view;
+        long sequence;
+        synchronized (this) {
+            if (engine.getState() != GameEngine.State.RUNNING)
+                throw new IllegalStateException("Game is not running");
+            int moves = engine.getMoveCount();
+            engine.select(square);
+            sequence = write(engine.getMoveCount() != moves ? Journal.Type.MOVE : Journal.Type.SELECT, square);
+            view = view();
+        }
+        sync(sequence);
+        SELECT_TIME.record(System.nanoTime() - start);
+        return view;
+    }
+
+    /**
+     * Restores the game and its move record recovered from the journal.
+     * @param state State of the session
+     */
+    synchronized void restore(Journal.SessionState state) {
+        state.restore(engine);
+        recorder.resume(state.getRecord());
+    }
+
+    /**
+     * Writes the creation of the session to the journal.
+     */
+    synchronized void created() {
+        sync(write(Journal.Type.CREATE, -1));
+    }
+
+    /**
+     * Writes the close of the session to the journal.
+     */
+    void closed() {
+        if (journal != null)
+            journal.close(key);
+    }
+
+    private long write(Journal.Type type, int square) {
+        return journal == null ? 0 : journal.append(type, key, square, engine, recorder.getProgress());
+    }
+
+    private void sync(long sequence) {
+        if (journal != null)
+            journal.sync(sequence);
+    }
+
+    /**
+     * Returns a snapshot of the session.
+     * @return view of the session
+     */
+    public synchronized View view() {
+        return new View(this);
+    }
+
+    /**
+     * Returns the next optimal move of the game.
+     * The search runs outside the lock of the session, on the hint engine shared by all sessions of the puzzle.
+     * @return hint, or null if the game is solved or cannot be solved
+     */
+    public HintView hint() {
+        var types = new ArrayList<PieceType>();
+        int[] squares;
+        int goal;
+        Geometry geometry;
+        synchronized (this) {
+            squares = new int[engine.getPieceCount()];
+            for (int i = 0; i < squares.length; i++) {
+                types.add(engine.getType(i));
+                squares[i] = engine.getSquare(i);
+            }
+            goal = engine.getGoal();
+            geometry = engine.getGeometry();
+        }
+        var move = HintEngine.shared(geometry, types, goal).hint(squares);
+        if (move == null)
+            return null;
+        int piece = move.getPieceIndex();
+        return new HintView(types.get(piece).name(), Bitboard.name(squares[piece]), Bitboard.name(Bitboard.square(move.getTo())));
+    }
+
+    /**
+     * Snapshot of a session, serialized as the response body.
+     */
+    public static final class View {
+        private final String id;
+        private final String state;
+        private final List<PieceView> pieces;
+        private final int selected;
+        private final List<String> nextMoves;
+        private final String message;
+        private final int moves;
+        private final long elapsedMillis;
+        private final int score;
+        private final String record;
+
+        private View(Session session) {
+            var engine = session.engine;
+            id = session.id;
+            state = engine.getState() == null ? null : engine.getState().name();
+            pieces = new ArrayList<>(engine.getPieceCount());
+            for (int i = 0; i < engine.getPieceCount(); i++)
+                pieces.add(new PieceView(engine.getType(i).name(), Bitboard.name(engine.getSquare(i))));
+            selected = engine.getSelected();
+            var next = engine.getNextSquares();
+            nextMoves = new ArrayList<>(next.length);
+            for (int sq : next)
+                nextMoves.add(Bitboard.name(sq));
+            message = engine.getMessage();
+            moves = engine.getMoveCount();
+            elapsedMillis = engine.getClock().getElapsedMillis();
+            score = engine.getScore();
+            var r = session.recorder.getRecord();
+            record = r == null ? null : r.toBase64();
+        }
+
+        /**
+         * Gets session ID.
+         * @return session ID
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Gets game state.
+         * @return state name, or null before the first play
+         */
+        public String getState() {
+            return state;
+        }
+
+        /**
+         * Gets number of moves.
+         * @return number of moves
+         */
+        public int getMoves() {
+            return moves;
+        }
+
+        /**
+         * Gets the score at the time of the view.
+         * @return score
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * Gets the move record of the finished game, to be checked by {@code POST /verify}.
+         * @return record in Base64, or null while the game is running
+         */
+        public String getRecord() {
+            return record;
+        }
+
+        /**
+         * Gets the pieces.
+         * @return pieces
+         */
+        public List<PieceView> getPieces() {
+            return pieces;
+        }
+    }
+
+    /**
+     * Piece in a view.
+     */
+    public static final class PieceView {
+        private final String type;
+        private final String square;
+
+        PieceView(String type, String square) {
+            this.type = type;
+            this.square = square;
+        }
+
+        /**
+         * Gets type of piece.
+         * @return type name
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Gets square of piece.
+         * @return square name, e.g. "b3"
+         */
+        public String getSquare() {
+            return square;
+        }
+    }
+
+    /**
+     * Next optimal move, serialized as the response body of a hint.
+     */
+    public static final class HintView {
+        private final String type;
+        private final String from;
+        private final String to;
+
+        HintView(String type, String from, String to) {
+            this.type = type;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Gets type of the moving piece.
+         * @return type name
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Gets square of the moving piece.
+         * @return square name, e.g. "b3"
+         */
+        public String getFrom() {
+            return from;
+        }
+
+        /**
+         * Gets destination of the moving piece.
+         * @return square name
+         */
+        public String getTo() {
+            return to;
+        }
+    }
+}
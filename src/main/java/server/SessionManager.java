@@ -0,0 +1,179 @@
+package server;
+
+import lombok.extern.slf4j.Slf4j;
+import state.GameEngine;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Holds the sessions of the server and evicts idle ones.
+ * <p>
+ * With a {@link Journal}, the sessions recovered from it are restored on creation
+ * and every change of a session is written to it.
+ */
+@Slf4j
+public class SessionManager implements AutoCloseable {
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Supplier<GameEngine> engineFactory;
+    private final LongSupplier nanoTime;
+    private final long idleNanos;
+    private final Journal journal;
+    private ScheduledExecutorService evictor;
+
+    /**
+     * Creates a new manager of default puzzles.
+     * @param idleTimeout Time after which an untouched session is evicted
+     * @param unit Unit of the timeout
+     */
+    public SessionManager(long idleTimeout, TimeUnit unit) {
+        this(GameEngine::new, System::nanoTime, idleTimeout, unit);
+    }
+
+    /**
+     * Creates a new manager.
+     * @param engineFactory Creates the engine of a new session
+     * @param nanoTime Source of monotonic time in nanoseconds
+     * @param idleTimeout Time after which an untouched session is evicted
+     * @param unit Unit of the timeout
+     */
+    public SessionManager(Supplier<GameEngine> engineFactory, LongSupplier nanoTime, long idleTimeout, TimeUnit unit) {
+        this(engineFactory, nanoTime, idleTimeout, unit, null);
+    }
+
+    /**
+     * Creates a new manager restoring the sessions of the journal.
+     * @param engineFactory Creates the engine of a new session
+     * @param nanoTime Source of monotonic time in nanoseconds
+     * @param idleTimeout Time after which an untouched session is evicted
+     * @param unit Unit of the timeout
+     * @param journal Journal of the sessions, or null
+     */
+    public SessionManager(Supplier<GameEngine> engineFactory, LongSupplier nanoTime, long idleTimeout, TimeUnit unit,
+                          Journal journal) {
+        this.engineFactory = engineFactory;
+        this.nanoTime = nanoTime;
+        this.idleNanos = unit.toNanos(idleTimeout);
+        this.journal = journal;
+        if (journal != null) {
+            long now = nanoTime.getAsLong();
+            for (var e : journal.getRecovered().entrySet()) {
+                var id = e.getKey().toString();
+                // the session records the moves, so it exists before the game is restored
+                var session = new Session(id, engineFactory.get(), now, journal);
+                session.restore(e.getValue());
+                sessions.put(id, session);
+            }
+        }
+    }
+
+    /**
+     * Creates a new session.
+     * @return created session
+     */
+    public Session create() {
+        var session = new Session(UUID.randomUUID().toString(), engineFactory.get(), nanoTime.getAsLong(), journal);
+        sessions.put(session.getId(), session);
+        session.created();
+        return session;
+    }
+
+    /**
+     * Returns the session and marks it as accessed.
+     * @param id Session ID
+     * @return session, or null if not found
+     */
+    public Session get(String id) {
+        var session = sessions.get(id);
+        if (session != null)
+            session.touch(nanoTime.getAsLong());
+        return session;
+    }
+
+    /**
+     * Removes the session.
+     * @param id Session ID
+     * @return True if removed
+     */
+    public boolean remove(String id) {
+        var session = sessions.remove(id);
+        if (session == null)
+            return false;
+        session.closed();
+        return true;
+    }
+
+    /**
+     * Returns the number of sessions.
+     * @return number of sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Removes sessions not accessed within the idle timeout.
+     * A session whose close cannot be journaled is still removed, and the error is logged,
+     * so that one failure does not stop the periodic eviction.
+     * @return number of evicted sessions
+     */
+    public int evictIdle() {
+        long now = nanoTime.getAsLong();
+        int evicted = 0;
+        for (var it = sessions.values().iterator(); it.hasNext(); ) {
+            var session = it.next();
+            if (now - session.getLastAccess() > idleNanos) {
+                it.remove();
+                evicted++;
+                try {
+                    session.closed();
+                } catch (RuntimeException e) {
+                    log.error("Failed to journal the eviction of session {}", session.getId(), e);
+                }
+            }
+        }
+        if (evicted > 0)
+            log.info("Evicted {} idle sessions", evicted);
+        return evicted;
+    }
+
+    /**
+     * Starts evicting idle sessions periodically on a background thread.
+     * @param period Period of eviction
+     * @param unit Unit of the period
+     */
+    public synchronized void startEviction(long period, TimeUnit unit) {
+        if (evictor != null)
+            return;
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, "session-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        // an exception would cancel all later runs
+        evictor.scheduleAtFixedRate(() -> {
+            try {
+                evictIdle();
+            } catch (RuntimeException e) {
+                log.error("Failed to evict idle sessions", e);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops the eviction thread.
+     */
+    @Override
+    public synchronized void close() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+            evictor = null;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Headless game server hosting many puzzle sessions.
+ */
+package server;
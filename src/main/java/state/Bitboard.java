@@ -0,0 +1,166 @@
+package state;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bitboard helpers for the chess board.
+ * <p>
+ * Each square is one bit of a {@code long}.
+ * The square index of (row, col) is {@code row * Board.COL_SIZE + col}.
+ */
+public final class Bitboard {
+    /**
+     * Number of squares on the board.
+     */
+    public static final int SQUARES = Board.ROW_SIZE * Board.COL_SIZE;
+
+    static {
+        assert SQUARES <= Long.SIZE : "board does not fit in a long";
+    }
+
+    private Bitboard() {
+    }
+
+    /**
+     * Returns true if the row and column are on the board.
+     * @param row Row index
+     * @param col Column index
+     * @return True if on board
+     */
+    public static boolean isOnBoard(int row, int col) {
+        return row >= 0 && row < Board.ROW_SIZE && col >= 0 && col < Board.COL_SIZE;
+    }
+
+    /**
+     * Returns the square index of the specified row and column.
+     * @param row Row index
+     * @param col Column index
+     * @return Square index, or -1 if off board
+     */
+    public static int square(int row, int col) {
+        return isOnBoard(row, col) ? row * Board.COL_SIZE + col : -1;
+    }
+
+    /**
+     * Returns the square index of the position.
+     * @param position Position on the board
+     * @return Square index, or -1 if off board
+     */
+    public static int square(Position position) {
+        return square(position.getRow(), position.getCol());
+    }
+
+    /**
+     * Returns the single bit mask of the position.
+     * @param position Position on the board
+     * @return Bit mask, or 0 if off board
+     */
+    public static long bit(Position position) {
+        int sq = square(position);
+        return sq < 0 ? 0L : 1L << sq;
+    }
+
+    /**
+     * Returns the row of the square.
+     * @param square Square index
+     * @return Row index
+     */
+    public static int row(int square) {
+        return square / Board.COL_SIZE;
+    }
+
+    /**
+     * Returns the column of the square.
+     * @param square Square index
+     * @return Column index
+     */
+    public static int col(int square) {
+        return square % Board.COL_SIZE;
+    }
+
+    /**
+     * Returns the position of the square.
+     * @param square Square index
+     * @return Position
+     */
+    public static Position toPosition(int square) {
+        return Position.of(row(square), col(square));
+    }
+
+    /**
+     * Returns the algebraic name of the square, e.g. "g1" for (0, 6).
+     * @param square Square index
+     * @return Square name
+     */
+    public static String name(int square) {
+        return (char) ('a' + col(square)) + Integer.toString(row(square) + 1);
+    }
+
+    /**
+     * Returns the square of the algebraic name, e.g. 6 for "g1".
+     * @param name Square name
+     * @return Square index
+     * @throws IllegalArgumentException if the name is not a square of the board
+     */
+    public static int parseSquare(String name) {
+        if (name != null && name.length() >= 2) {
+            int col = Character.toLowerCase(name.charAt(0)) - 'a';
+            try {
+                int sq = square(Integer.parseInt(name.substring(1)) - 1, col);
+                if (sq >= 0)
+                    return sq;
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+        }
+        throw new IllegalArgumentException("Invalid square: " + name);
+    }
+
+    /**
+     * Returns the positions of all set bits in ascending square order.
+     * @param mask Bit mask
+     * @return List of positions
+     */
+    public static List<Position> toPositions(long mask) {
+        var list = new ArrayList<Position>(Long.bitCount(mask));
+        while (mask != 0) {
+            list.add(toPosition(Long.numberOfTrailingZeros(mask)));
+            mask &= mask - 1;
+        }
+        return list;
+    }
+
+    /**
+     * Returns the mask of squares occupied by the pieces.
+     * @param pieces Pieces on the board
+     * @return Occupancy mask
+     */
+    public static long occupancy(List<Piece> pieces) {
+        long mask = 0L;
+        for (var p : pieces)
+            mask |= bit(p.getPosition());
+        return mask;
+    }
+
+    /**
+     * Returns the squares attacked by the piece.
+     * @param piece Piece on the board
+     * @return Attack mask, or 0 if the piece is off board
+     */
+    public static long attacks(Piece piece) {
+        int sq = square(piece.getPosition());
+        return sq < 0 ? 0L : piece.getType().getAttacks(sq);
+    }
+
+    /**
+     * Returns the squares attacked by the piece, with rays of sliding pieces blocked by occupied squares.
+     * @param piece Piece on the board
+     * @param occupancy Mask of occupied squares
+     * @return Attack mask, or 0 if the piece is off board
+     */
+    public static long attacks(Piece piece, long occupancy) {
+        int sq = square(piece.getPosition());
+        return sq < 0 ? 0L : piece.getType().getAttacks(sq, occupancy);
+    }
+}
@@ -4,22 +4,27 @@ import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
-import lombok.extern.slf4j.Slf4j;
+import util.Histogram;
+import util.Metrics;
 
 import java.util.*;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  * Board of the chess puzzle.
  * <p>
  * Initialized with a king and a knight.
  *
- * Override protected methods to change rules of the puzzle.
+ * Observable adapter of {@link GameEngine} for JavaFX.
+ * The rules live in the engine; this class mirrors its state in properties.
+ * The protected helpers only delegate to the engine and are not called by {@link #select};
+ * they are final, so a subclass cannot change the rules.
+ *
+ * The properties are updated once per operation, after the engine has settled,
+ * and each operation that changed something is reported as one {@link BoardChange}.
  *
  * Pieces are reused and not recreated on each play.
+ * Positions are on the {@link Geometry} of the engine.
  */
-@Slf4j
 public class Board {
     /**
      * Row size of the board.
@@ -32,77 +37,190 @@ public class Board {
     /**
      * Goal position.
      */
-    public static final Position GOAL_POS = new Position(0, 6);
+    public static final Position GOAL_POS = Bitboard.toPosition(GameEngine.DEFAULT_GOAL);
+
+    private static final Histogram SELECT_TIME = Metrics.DEFAULT.histogram("chess_select_seconds",
+            "Latency of a select", 1e-9, "source", "board");
 
-    protected static final List<Piece> initialPieces = List.of(
-            new Piece(PieceType.KING, 2, 1),
-            new Piece(PieceType.KNIGHT, 2, 2)
-    );
+    protected static final List<Piece> initialPieces = createPieces(Geometry.DEFAULT, GameEngine.DEFAULT_TYPES, GameEngine.defaultSquares());
 
-    private final ObjectProperty<Piece> selectedPiece = new SimpleObjectProperty<>();
-    private final ObjectProperty<List<Position>> nextPositions = new SimpleObjectProperty<>();
+    private final ObjectProperty<List<Position>> nextPositions = new SimpleObjectProperty<>(List.of());
     private final StringProperty message = new SimpleStringProperty();
-    private final Scorer scorer = new Scorer();
+    private final ObjectProperty<GameEngine.State> state = new SimpleObjectProperty<>();
+    private final Scorer scorer;
+    private final GameEngine engine;
+    private final Geometry geometry;
     private final List<Piece> pieceList;
-
+    private DistanceTable distanceTable;
+    private final List<BoardChange.Listener> changeListeners = new ArrayList<>(1);
     /**
-     * Game state.
+     * Mask of the next positions shown in the property, on the default board.
      */
-    public enum State {
-        /**
-         * game is running.
-         */
-        RUNNING,
-        /**
-         * game is over.
-         */
-        OVER,
-        /**
-         * puzzle is solved.
-         */
-        GOAL
-    }
-
-    private final ObjectProperty<State> state = new SimpleObjectProperty<>();
+    private long shownNextMoves;
+    /**
+     * Next squares shown in the property, on other boards.
+     */
+    private int[] shownNextSquares = {};
+    /**
+     * Nesting of running operations; changes are committed when it drops to zero.
+     */
+    private int depth;
 
     /**
      * Creates a new board.
      */
     public Board() {
-        pieceList = new ArrayList<>(initialPieces.size());
-        for (var p : initialPieces)
-            pieceList.add(new Piece(p.getType(), p.getPosition().getRow(), p.getPosition().getCol()));
+        this(new GameEngine());
+    }
 
-        selectedPiece.addListener((obs, oldVal, newVal) -> {
-            if (newVal == null) message.set("");
-            else { message.set(newVal.getType() + " selected"); log.info("{} selected", newVal.getType()); }
+    /**
+     * Creates a new board observing the engine, on the geometry of the engine.
+     * @param engine Engine holding the rules and state
+     */
+    public Board(GameEngine engine) {
+        this.engine = engine;
+        this.geometry = engine.getGeometry();
+        this.scorer = new Scorer(engine.getClock());
+        var types = new ArrayList<PieceType>(engine.getPieceCount());
+        var squares = new int[engine.getPieceCount()];
+        for (int i = 0; i < squares.length; i++) {
+            types.add(engine.getType(i));
+            squares[i] = engine.getSquare(i);
+        }
+        pieceList = createPieces(geometry, types, squares);
+
+        // changes of the engine made outside an operation of the board are committed one by one
+        engine.addListener(new GameEngine.Listener() {
+            @Override
+            public void nextMovesChanged(int[] squares) {
+                changed();
+            }
+
+            @Override
+            public void pieceMoved(int piece, int from, int to) {
+                changed();
+            }
+
+            @Override
+            public void stateChanged(GameEngine.State newState) {
+                changed();
+            }
+
+            @Override
+            public void messageChanged(String newMessage) {
+                changed();
+            }
         });
-        selectedPiece.addListener((observable, oldVal, newVal) -> updateNextPositions(newVal));
+    }
+
+    private void changed() {
+        if (depth == 0)
+            commit();
     }
 
     /**
-     * Starts new game.
+     * Runs an operation and commits its changes at once.
      */
-    public void play() {
-        // push all pieces to a map
-        Map<PieceType, LinkedList<Piece>> map = new HashMap<>();
-        for (var p : pieceList) {
-            map.computeIfAbsent(p.getType(), k -> new LinkedList<>());
-            map.get(p.getType()).add(p);
+    private void update(Runnable operation) {
+        depth++;
+        try {
+            operation.run();
+        } finally {
+            if (--depth == 0)
+                commit();
         }
-        pieceList.clear();
-        // set pieces
-        for (var p : initialPieces) {
-            var piece = map.get(p.getType()).poll();
-            assert piece != null;
-            piece.setPosition(p.getPosition());
-            pieceList.add(piece);
+    }
+
+    /**
+     * Mirrors the engine in the properties and notifies the change listeners.
+     */
+    private void commit() {
+        var moves = new ArrayList<BoardChange.PieceMove>(0);
+        for (int i = 0; i < pieceList.size(); i++) {
+            var from = pieceList.get(i).getPosition();
+            var to = toPosition(engine.getSquare(i));
+            if (!from.equals(to))
+                moves.add(new BoardChange.PieceMove(i, from, to));
         }
+        boolean bitboard = geometry.equals(Geometry.DEFAULT);
+        long mask = engine.getNextMoves();
+        int[] nextSquares = bitboard ? null : engine.getNextSquares();
+        List<Position> next;
+        if (bitboard)
+            next = mask == shownNextMoves ? null : Bitboard.toPositions(mask);
+        else
+            next = Arrays.equals(nextSquares, shownNextSquares) ? null : toPositions(nextSquares);
+        var newMessage = Objects.equals(engine.getMessage(), message.get()) ? null : engine.getMessage();
+        var change = new BoardChange(List.copyOf(moves), next, nextPositions.get(),
+                state.get(), engine.getState(), newMessage);
+        if (change.isEmpty())
+            return;
 
-        state.set(State.RUNNING);
-        nextPositions.set(List.of());
-        selectedPiece.set(null);
-        scorer.start();
+        for (var m : moves)
+            pieceList.get(m.getPiece()).setPosition(m.getTo());
+        if (next != null) {
+            shownNextMoves = mask;
+            if (nextSquares != null)
+                shownNextSquares = nextSquares;
+            nextPositions.set(next);
+        }
+        if (newMessage != null)
+            message.set(newMessage);
+        if (change.isStateChanged()) {
+            if (change.getNewState() == GameEngine.State.GOAL)
+                scorer.end();
+            state.set(change.getNewState());
+        }
+        for (var l : List.copyOf(changeListeners))
+            l.changed(change);
+    }
+
+    /**
+     * Adds a listener notified once per operation that changed the board.
+     * @param listener Listener
+     */
+    public void addChangeListener(BoardChange.Listener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes a change listener.
+     * @param listener Listener
+     */
+    public void removeChangeListener(BoardChange.Listener listener) {
+        changeListeners.remove(listener);
+    }
+
+    private static List<Piece> createPieces(Geometry geometry, List<PieceType> types, int[] squares) {
+        var list = new ArrayList<Piece>(types.size());
+        for (int i = 0; i < squares.length; i++)
+            list.add(new Piece(types.get(i), geometry.row(squares[i]), geometry.col(squares[i])));
+        return list;
+    }
+
+    private Position toPosition(int square) {
+        return Position.of(geometry.row(square), geometry.col(square));
+    }
+
+    private List<Position> toPositions(int[] squares) {
+        var list = new ArrayList<Position>(squares.length);
+        for (int sq : squares)
+            list.add(toPosition(sq));
+        return list;
+    }
+
+    private int toSquare(Position position) {
+        return geometry.square(position.getRow(), position.getCol());
+    }
+
+    /**
+     * Starts new game.
+     */
+    public void play() {
+        update(() -> {
+            engine.play();
+            scorer.start();
+        });
     }
 
     /**
@@ -119,62 +237,55 @@ public class Board {
      * @param position Position to select
      */
     public void select(Position position) {
-        for (var piece : pieceList) {
-            if (position.equals(piece.getPosition()))
-                selectedPiece.set(piece);
-        }
-
-        var piece = selectedPiece.get();
-
-        if (piece == null)
-            return;
-
-        // if piece is newly selected
-        if (piece.getPosition().equals(position))
-            return;
-
-        // deselect if selected position is not in next moves
-        if (!nextPositions.get().contains(position)) {
-            selectedPiece.set(null);
-            return;
+        var event = new SelectEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int selected = engine.getSelected();
+        int moves = engine.getMoveCount();
+        update(() -> {
+            engine.select(toSquare(position));
+            if (engine.getMoveCount() != moves)
+                scorer.addMove();
+        });
+        SELECT_TIME.record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.square = toSquare(position);
+            event.moved = engine.getMoveCount() != moves;
+            int piece = event.moved ? selected : engine.getSelected();
+            event.pieceType = piece < 0 ? null : engine.getType(piece).name();
+            event.state = engine.getState() == null ? null : engine.getState().name();
+            event.commit();
         }
-
-        // move
-        selectedPiece.set(null);
-        move(piece, position);
-        updateState();
-        scorer.addMove();
     }
 
     /**
-     * Move a piece to the specified position.
+     * Move a piece to the specified position, without checking the rules.
      * @param piece Piece to move
      * @param position Position where piece move to
      */
-    protected void move(Piece piece, Position position) {
-        log.info("Moving {}", piece.getType());
-        piece.setPosition(position);
+    protected final void move(Piece piece, Position position) {
+        update(() -> engine.move(pieceList.indexOf(piece), toSquare(position)));
     }
 
     /**
-     * Returns list of next possible positions of the specified piece.
+     * Returns list of next possible positions of the specified piece on the default board.
      * A piece cannot move to other pieces' position.
      * @param piece Current piece selection. Cannot be null.
      * @param pieceList List of pieces on the board
      * @return List of next possible positions of the piece.
      */
-    protected List<Position> getNextMoves(Piece piece, List<Piece> pieceList) {
-        var moves = piece.getNextMoves();
-
-        Predicate<Position> isOnBoard = p ->
-                p.getRow() >= 0 && p.getRow() < Board.ROW_SIZE && p.getCol() >= 0 && p.getCol() < Board.COL_SIZE;
-
-        moves = moves.stream().filter(isOnBoard).collect(Collectors.toList());
-
-        for (var p : pieceList)
-            moves.remove(p.getPosition());
+    protected final List<Position> getNextMoves(Piece piece, List<Piece> pieceList) {
+        return Bitboard.toPositions(getNextMoveMask(piece, Bitboard.occupancy(pieceList)));
+    }
 
-        return moves;
+    /**
+     * Returns the mask of next possible squares of the specified piece on the default board.
+     * @param piece Current piece selection. Cannot be null.
+     * @param occupancy Mask of occupied squares
+     * @return Mask of next possible squares of the piece.
+     */
+    protected final long getNextMoveMask(Piece piece, long occupancy) {
+        return Bitboard.attacks(piece, occupancy) & ~occupancy;
     }
 
     /**
@@ -182,54 +293,55 @@ public class Board {
      * @param piece Piece to test
      * @return True if movable
      */
-    protected boolean isMovable(Piece piece) {
-        for (var p : pieceList) {
-            if (p == piece) continue;
-            if (p.getNextMoves().contains(piece.getPosition()))
-                return true;
-        }
-        return false;
+    protected final boolean isMovable(Piece piece) {
+        return engine.isMovable(pieceList.indexOf(piece));
     }
 
     /**
      * Update the current state of the game.
      */
-    protected void updateState() {
-        if (pieceList.stream().anyMatch(p -> p.getPosition().equals(GOAL_POS))) {
-            state.set(State.GOAL);
-            scorer.end();
-        } else if (pieceList.stream().noneMatch(this::isMovable)) {
-            state.set(State.OVER);
-        }
+    protected final void updateState() {
+        engine.updateState();
     }
 
-    private void updateNextPositions(Piece piece) {
+    /**
+     * Gets list of pieces on the board.
+     * @return list of pieces
+     */
+    public List<Piece> getPieceList() {
+        return pieceList;
+    }
 
-        if (piece == null) {
-            nextPositions.set(List.of());
-            return;
-        }
-        if (!isMovable(piece)) {
-            nextPositions.set(List.of());
-            message.set(selectedPiece.get().getType() + " is not movable");
-            return;
-        }
+    /**
+     * Gets the engine holding the rules and state.
+     * @return engine
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
 
-        var moves = getNextMoves(piece, pieceList);
-        nextPositions.set(moves);
+    /**
+     * Gets the geometry of the board.
+     * @return geometry
+     */
+    public Geometry getGeometry() {
+        return geometry;
+    }
 
-        if (moves.size() == 0)
-            message.set(selectedPiece.get().getType() + " is not movable");
-        else
-            log.debug("Next positions: {}", nextPositions.get());
+    /**
+     * Gets the Zobrist key of the placement, updated incrementally on every move.
+     * @return key
+     */
+    public long getKey() {
+        return engine.getKey();
     }
 
     /**
-     * Gets list of pieces on the board.
-     * @return list of pieces
+     * Gets the goal position.
+     * @return goal position
      */
-    public List<Piece> getPieceList() {
-        return pieceList;
+    public Position getGoal() {
+        return toPosition(engine.getGoal());
     }
 
     /**
@@ -252,10 +364,54 @@ public class Board {
      * Gets game state property.
      * @return state property
      */
-    public ObjectProperty<State> stateProperty() {
+    public ObjectProperty<GameEngine.State> stateProperty() {
         return state;
     }
 
+    /**
+     * Returns the optimal number of remaining moves from the current placement.
+     * Unless set beforehand, the distance table is the one of the {@link HintEngine} of the puzzle,
+     * computed on first use.
+     * @return Number of moves, or {@link DistanceTable#UNSOLVABLE}
+     */
+    public int getDistanceToGoal() {
+        if (distanceTable == null)
+            distanceTable = hints().getTable();
+        return distanceTable.distance(pieceList);
+    }
+
+    /**
+     * Returns the next optimal move from the current placement.
+     * Hints come from the {@link HintEngine} shared by all boards of the puzzle.
+     * @return move, or null if the puzzle is solved or cannot be solved from here
+     */
+    public Move hint() {
+        var squares = new int[engine.getPieceCount()];
+        for (int i = 0; i < squares.length; i++)
+            squares[i] = engine.getSquare(i);
+        return hints().hint(squares);
+    }
+
+    /**
+     * Sets the distance table, e.g. one loaded with {@link DistanceTable#load}.
+     * Hints of the puzzle use the table too, instead of computing it.
+     * @param distanceTable table for the pieces of this board
+     */
+    public void setDistanceTable(DistanceTable distanceTable) {
+        if (!distanceTable.getTypes().equals(Solver.typesOf(pieceList))
+                || Bitboard.square(distanceTable.getGoal()) != engine.getGoal())
+            throw new IllegalArgumentException("Distance table does not match the board");
+        this.distanceTable = distanceTable;
+        hints().setTable(distanceTable);
+    }
+
+    private HintEngine hints() {
+        var types = new ArrayList<PieceType>(engine.getPieceCount());
+        for (int i = 0; i < engine.getPieceCount(); i++)
+            types.add(engine.getType(i));
+        return HintEngine.shared(geometry, types, engine.getGoal());
+    }
+
     /**
      * Gets scorer object.
      * @return scorer
@@ -0,0 +1,94 @@
+package state;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Changes of a {@link Board} made by one operation, e.g. a select.
+ * <p>
+ * Intermediate values within the operation are not reported:
+ * a piece selected and deselected again, or a message overwritten, only shows its final value.
+ */
+@Value
+public class BoardChange {
+    /**
+     * Moved pieces, one entry per piece that ended on another square.
+     */
+    List<PieceMove> moves;
+    /**
+     * Next positions of the selected piece, or null if unchanged.
+     */
+    List<Position> nextPositions;
+    /**
+     * Next positions before the change.
+     */
+    List<Position> previousNextPositions;
+    /**
+     * State before the change.
+     */
+    GameEngine.State oldState;
+    /**
+     * State after the change.
+     */
+    GameEngine.State newState;
+    /**
+     * New message, or null if unchanged.
+     */
+    String message;
+
+    /**
+     * Move of a piece.
+     */
+    @Value
+    public static class PieceMove {
+        /**
+         * Index of the piece in the piece list.
+         */
+        int piece;
+        /**
+         * Previous position.
+         */
+        Position from;
+        /**
+         * New position.
+         */
+        Position to;
+    }
+
+    /**
+     * Listener of board changes.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called once after each operation that changed the board.
+         * @param change Changes of the operation
+         */
+        void changed(BoardChange change);
+    }
+
+    /**
+     * Returns true if the next positions changed.
+     * @return true if changed
+     */
+    public boolean isNextPositionsChanged() {
+        return nextPositions != null;
+    }
+
+    /**
+     * Returns true if the game state changed.
+     * @return true if changed
+     */
+    public boolean isStateChanged() {
+        return oldState != newState;
+    }
+
+    /**
+     * Returns true if nothing changed.
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return moves.isEmpty() && nextPositions == null && !isStateChanged() && message == null;
+    }
+}
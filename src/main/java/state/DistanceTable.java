@@ -0,0 +1,212 @@
+package state;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exact number of remaining moves to the goal for every placement of the pieces.
+ * <p>
+ * The table is computed by retrograde analysis: a breadth-first search backwards
+ * from every solved placement. States are packed as in {@link Solver}.
+ * <p>
+ * Binary format (big-endian):
+ * <pre>
+ * int    magic ("KNDT")
+ * int    version
+ * int    goal square
+ * int    number of pieces n
+ * int[n] piece type ordinals
+ * byte[1 &lt;&lt; (6 * n)] distance per state, 0xFF if unsolvable
+ * </pre>
+ * A loaded table is memory-mapped and read without parsing.
+ */
+public final class DistanceTable {
+    /**
+     * Distance of unsolvable or invalid placements.
+     */
+    public static final int UNSOLVABLE = -1;
+
+    private static final int MAGIC = 0x4B4E4454;
+    private static final int VERSION = 1;
+    private static final int NONE = 0xFF;
+
+    private final List<PieceType> types;
+    private final int goal;
+    private final ByteBuffer buffer;
+    private final int offset;
+
+    private DistanceTable(List<PieceType> types, int goal, ByteBuffer buffer, int offset) {
+        this.types = types;
+        this.goal = goal;
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    /**
+     * Computes the table for the specified pieces and goal.
+     * @param types Types of pieces, in the order of the piece list
+     * @param goal Goal position
+     * @return computed table
+     */
+    public static DistanceTable compute(List<PieceType> types, Position goal) {
+        var rules = new Solver(types, goal);
+        int n = types.size();
+        int size = 1 << (Solver.SQUARE_BITS * n);
+
+        // count predecessors of each state
+        int[] start = new int[size + 1];
+        forEachMove(rules, n, size, (from, to) -> start[to + 1]++);
+        for (int i = 0; i < size; i++)
+            start[i + 1] += start[i];
+
+        // fill predecessor lists
+        int[] preds = new int[start[size]];
+        int[] fill = new int[size];
+        forEachMove(rules, n, size, (from, to) -> preds[start[to] + fill[to]++] = from);
+
+        // backward breadth-first search from solved states
+        byte[] dist = new byte[size];
+        Arrays.fill(dist, (byte) NONE);
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int s = 0; s < size; s++) {
+            if (isValid(rules, n, s) && rules.isGoal(s)) {
+                dist[s] = 0;
+                queue[tail++] = s;
+            }
+        }
+        while (head < tail) {
+            int s = queue[head++];
+            int d = (dist[s] & 0xFF) + 1;
+            if (d >= NONE)
+                throw new IllegalStateException("Distance does not fit in a byte");
+            for (int i = start[s]; i < start[s + 1]; i++) {
+                int p = preds[i];
+                if ((dist[p] & 0xFF) == NONE) {
+                    dist[p] = (byte) d;
+                    queue[tail++] = p;
+                }
+            }
+        }
+
+        return new DistanceTable(List.copyOf(types), Bitboard.square(goal), ByteBuffer.wrap(dist), 0);
+    }
+
+    private interface MoveConsumer {
+        void accept(int from, int to);
+    }
+
+    private static boolean isValid(Solver rules, int n, int state) {
+        return Long.bitCount(rules.occupancy(state)) == n;
+    }
+
+    private static void forEachMove(Solver rules, int n, int size, MoveConsumer consumer) {
+        for (int s = 0; s < size; s++) {
+            if (!isValid(rules, n, s) || rules.isGoal(s))
+                continue;
+            for (int i = 0; i < n; i++) {
+                if (!rules.isMovable(s, i))
+                    continue;
+                long moves = rules.nextMoves(s, i);
+                while (moves != 0) {
+                    consumer.accept(s, Solver.withSquare(s, i, Long.numberOfTrailingZeros(moves)));
+                    moves &= moves - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a table by memory-mapping the file.
+     * @param path Table file
+     * @return loaded table
+     * @throws IOException if the file cannot be read or is not a distance table
+     */
+    public static DistanceTable load(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 16 || buffer.getInt() != MAGIC)
+                throw new IOException("Not a distance table: " + path);
+            if (buffer.getInt() != VERSION)
+                throw new IOException("Unsupported distance table version: " + path);
+            int goal = buffer.getInt();
+            int n = buffer.getInt();
+            if (n < 1 || n > Solver.MAX_PIECES || goal < 0 || goal >= Bitboard.SQUARES)
+                throw new IOException("Corrupt distance table: " + path);
+            var types = new ArrayList<PieceType>(n);
+            for (int i = 0; i < n; i++) {
+                int ordinal = buffer.getInt();
+                if (ordinal < 0 || ordinal >= PieceType.values().length)
+                    throw new IOException("Corrupt distance table: " + path);
+                types.add(PieceType.values()[ordinal]);
+            }
+            int offset = buffer.position();
+            if (buffer.limit() - offset != 1 << (Solver.SQUARE_BITS * n))
+                throw new IOException("Corrupt distance table: " + path);
+            return new DistanceTable(List.copyOf(types), goal, buffer, offset);
+        }
+    }
+
+    /**
+     * Writes the table to the file.
+     * @param path Destination
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        int size = 1 << (Solver.SQUARE_BITS * types.size());
+        var header = ByteBuffer.allocate(16 + 4 * types.size());
+        header.putInt(MAGIC).putInt(VERSION).putInt(goal).putInt(types.size());
+        for (var t : types)
+            header.putInt(t.ordinal());
+        header.flip();
+        var data = buffer.duplicate();
+        data.position(offset).limit(offset + size);
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining() || data.hasRemaining())
+                channel.write(new ByteBuffer[]{header, data});
+        }
+    }
+
+    /**
+     * Returns the optimal number of remaining moves.
+     * @param state Packed state
+     * @return Number of moves, or {@link #UNSOLVABLE}
+     */
+    public int distance(int state) {
+        int d = buffer.get(offset + state) & 0xFF;
+        return d == NONE ? UNSOLVABLE : d;
+    }
+
+    /**
+     * Returns the optimal number of remaining moves.
+     * @param pieces Pieces on the board
+     * @return Number of moves, or {@link #UNSOLVABLE}
+     */
+    public int distance(List<Piece> pieces) {
+        return distance(Solver.encode(pieces));
+    }
+
+    /**
+     * Returns the types of the pieces.
+     * @return piece types
+     */
+    public List<PieceType> getTypes() {
+        return types;
+    }
+
+    /**
+     * Returns the goal position.
+     * @return goal
+     */
+    public Position getGoal() {
+        return Bitboard.toPosition(goal);
+    }
+}
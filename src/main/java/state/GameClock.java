@@ -0,0 +1,79 @@
+package state;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Monotonic game clock without periodic timers.
+ * <p>
+ * Records {@link System#nanoTime()} on start and stop, and computes
+ * the elapsed time only when asked.
+ */
+public class GameClock {
+    private final LongSupplier nanoTime;
+    private long startNanos;
+    private long stopNanos;
+    private boolean running;
+
+    /**
+     * Creates a new clock on {@link System#nanoTime()}.
+     */
+    public GameClock() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Creates a new clock on the specified time source.
+     * @param nanoTime Source of monotonic time in nanoseconds
+     */
+    public GameClock(LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Starts the clock from zero.
+     */
+    public void start() {
+        startNanos = nanoTime.getAsLong();
+        stopNanos = startNanos;
+        running = true;
+    }
+
+    /**
+     * Stops the clock. Does nothing if already stopped.
+     */
+    public void stop() {
+        if (!running)
+            return;
+        stopNanos = nanoTime.getAsLong();
+        running = false;
+    }
+
+    /**
+     * Sets the clock to the elapsed time, e.g. of a game recovered after a restart.
+     * @param elapsedMillis Elapsed milliseconds
+     * @param running True to keep the clock running from the elapsed time
+     */
+    public void restore(long elapsedMillis, boolean running) {
+        long now = nanoTime.getAsLong();
+        startNanos = now - elapsedMillis * 1_000_000;
+        stopNanos = now;
+        this.running = running;
+    }
+
+    /**
+     * Returns true if the clock is running.
+     * @return True if running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the elapsed time between start and stop, or until now if running.
+     * @return Elapsed milliseconds
+     */
+    public long getElapsedMillis() {
+        long end = running ? nanoTime.getAsLong() : stopNanos;
+        return (end - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,674 @@
+package state;
+
+import lombok.extern.slf4j.Slf4j;
+import util.Histogram;
+import util.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rules and state of the chess puzzle in plain Java.
+ * <p>
+ * Does not depend on JavaFX, so it can run on a headless server.
+ * Pieces are referred to by their index and squares by their {@link Geometry} square index,
+ * which is the {@link Bitboard} square index on the default board.
+ * Changes are reported to the registered {@link Listener}s.
+ * <p>
+ * On the default board, moves and attacks are computed on bitboards. On other boards,
+ * they are computed from the offsets of the pieces with {@link PieceType#getTargets}.
+ * <p>
+ * Override protected methods to change rules of the puzzle.
+ * An engine is not thread-safe.
+ */
+@Slf4j
+public class GameEngine {
+    /**
+     * Piece types of the default puzzle.
+     */
+    public static final List<PieceType> DEFAULT_TYPES = List.of(PieceType.KING, PieceType.KNIGHT);
+    /**
+     * Start squares of the default puzzle, in the order of {@link #DEFAULT_TYPES}.
+     */
+    private static final int[] DEFAULT_SQUARES = {Bitboard.square(2, 1), Bitboard.square(2, 2)};
+    /**
+     * Goal square of the default puzzle.
+     */
+    public static final int DEFAULT_GOAL = Bitboard.square(0, 6);
+    /**
+     * Score of a solution in no moves and no time.
+     */
+    public static final int MAX_SCORE = 2000;
+
+    /**
+     * Game state.
+     */
+    public enum State {
+        /**
+         * game is running.
+         */
+        RUNNING,
+        /**
+         * game is over.
+         */
+        OVER,
+        /**
+         * puzzle is solved.
+         */
+        GOAL
+    }
+
+    /**
+     * Receives changes of the engine. All methods do nothing by default.
+     */
+    public interface Listener {
+        /**
+         * Called when a new game has started and the pieces are back on their start squares.
+         */
+        default void gameStarted() {
+        }
+
+        /**
+         * Called when the selected piece changes.
+         * @param piece Index of the selected piece, or -1 if none
+         */
+        default void selectionChanged(int piece) {
+        }
+
+        /**
+         * Called when the next moves of the selected piece change.
+         * @param squares Next squares, in ascending order
+         */
+        default void nextMovesChanged(int[] squares) {
+        }
+
+        /**
+         * Called when a piece changes its square.
+         * @param piece Index of the piece
+         * @param from Previous square
+         * @param to New square
+         */
+        default void pieceMoved(int piece, int from, int to) {
+        }
+
+        /**
+         * Called when the game state changes.
+         * @param state New state
+         */
+        default void stateChanged(State state) {
+        }
+
+        /**
+         * Called when the message changes.
+         * @param message New message
+         */
+        default void messageChanged(String message) {
+        }
+    }
+
+    private static final LongAdder MOVES = Metrics.DEFAULT.counter("chess_moves_total", "Moves made by players");
+    private static final LongAdder GOALS = Metrics.DEFAULT.counter("chess_games_total", "Finished games by outcome",
+            "state", "goal");
+    private static final LongAdder OVERS = Metrics.DEFAULT.counter("chess_games_total", "Finished games by outcome",
+            "state", "over");
+    private static final Histogram SOLVE_TIME = Metrics.DEFAULT.histogram("chess_solve_seconds",
+            "Play time of solved games", 1e-3);
+    private static final Histogram SOLVE_MOVES = Metrics.DEFAULT.histogram("chess_solve_moves",
+            "Number of moves of solved games", 1);
+
+    private static final int[] NO_SQUARES = {};
+
+    private final Geometry geometry;
+    /**
+     * True on the default board, where moves are computed on bitboards.
+     */
+    private final boolean bitboard;
+    private final PieceType[] types;
+    private final int[] initialSquares;
+    private final int[] squares;
+    private final int goal;
+    /**
+     * Zobrist key of the placement, updated on every move.
+     */
+    private long key;
+    private final List<Listener> listeners = new ArrayList<>(1);
+    private final GameClock clock = new GameClock();
+    private int selected = -1;
+    /**
+     * Mask of the next squares on the default board.
+     */
+    private long nextMoves;
+    /**
+     * Next squares in ascending order.
+     */
+    private int[] nextSquares = NO_SQUARES;
+    /**
+     * Buffer of the targets of a piece on other boards.
+     */
+    private final int[] targets;
+    private State state;
+    private int moveCount;
+    private String message = "";
+
+    /**
+     * Creates a new engine of the default puzzle.
+     */
+    public GameEngine() {
+        this(DEFAULT_TYPES, DEFAULT_SQUARES, DEFAULT_GOAL);
+    }
+
+    /**
+     * Creates a new engine on the default board.
+     * @param types Types of pieces
+     * @param initialSquares Start square of each piece
+     * @param goal Goal square
+     */
+    public GameEngine(List<PieceType> types, int[] initialSquares, int goal) {
+        this(Geometry.DEFAULT, types, initialSquares, goal);
+    }
+
+    /**
+     * Creates a new engine.
+     * @param geometry Geometry of the board
+     * @param types Types of pieces
+     * @param initialSquares Start square of each piece
+     * @param goal Goal square
+     * @throws IllegalArgumentException if the numbers of types and squares differ or a square is off board
+     */
+    public GameEngine(Geometry geometry, List<PieceType> types, int[] initialSquares, int goal) {
+        if (types.size() != initialSquares.length)
+            throw new IllegalArgumentException("Number of types and squares differ");
+        for (int sq : initialSquares) {
+            if (sq < 0 || sq >= geometry.squares())
+                throw new IllegalArgumentException("Square " + sq + " is off the " + geometry + " board");
+        }
+        if (goal < 0 || goal >= geometry.squares())
+            throw new IllegalArgumentException("Goal " + goal + " is off the " + geometry + " board");
+        this.geometry = geometry;
+        this.bitboard = geometry.equals(Geometry.DEFAULT);
+        this.types = types.toArray(new PieceType[0]);
+        int maxTargets = 0;
+        for (var t : this.types)
+            maxTargets = Math.max(maxTargets, t.getMaxTargets(geometry));
+        this.targets = bitboard ? NO_SQUARES : new int[maxTargets];
+        this.initialSquares = initialSquares.clone();
+        this.squares = initialSquares.clone();
+        this.goal = goal;
+        this.key = Zobrist.of(squares);
+    }
+
+    /**
+     * Returns the score of a solution.
+     * @param moves Number of moves
+     * @param time Elapsed milliseconds
+     * @return calculated score, between 0 and {@link #MAX_SCORE}
+     */
+    public static int calculateScore(int moves, long time) {
+        long score = MAX_SCORE - (Math.max(0, time) >> 7) - Math.max(0, moves) * 50L;
+        return (int) Math.max(0, Math.min(MAX_SCORE, score));
+    }
+
+    /**
+     * Returns the start squares of the default puzzle.
+     * @return start squares, in the order of {@link #DEFAULT_TYPES}
+     */
+    public static int[] defaultSquares() {
+        return DEFAULT_SQUARES.clone();
+    }
+
+    /**
+     * Adds a listener.
+     * @param listener Listener to add
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     * @param listener Listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts new game.
+     */
+    public void play() {
+        for (int i = 0; i < squares.length; i++) {
+            if (squares[i] != initialSquares[i])
+                setSquare(i, initialSquares[i]);
+        }
+        moveCount = 0;
+        clock.start();
+        setState(State.RUNNING);
+        setNextMoves(0L, NO_SQUARES);
+        setSelected(-1);
+        for (var l : listeners)
+            l.gameStarted();
+    }
+
+    /**
+     * Restores a game, e.g. after a restart of the server.
+     * Listeners are notified of the changes.
+     * @param squares Square of each piece
+     * @param state Game state, or null if no game has started
+     * @param moveCount Number of moves
+     * @param selected Index of the selected piece, or -1 if none
+     * @param elapsedMillis Elapsed time of the game
+     */
+    public void restore(int[] squares, State state, int moveCount, int selected, long elapsedMillis) {
+        if (squares.length != this.squares.length)
+            throw new IllegalArgumentException("Expected " + this.squares.length + " squares");
+        for (int i = 0; i < squares.length; i++) {
+            if (this.squares[i] != squares[i])
+                setSquare(i, squares[i]);
+        }
+        this.moveCount = moveCount;
+        clock.restore(elapsedMillis, state == State.RUNNING);
+        setState(state);
+        setSelected(-1);
+        setSelected(selected);
+    }
+
+    /**
+     * Selects the specified square on the board.
+     * The consequences are either piece selection, deselection,
+     * or piece movement. Ignored unless the game is running.
+     * @param square Square to select, or -1 for a square off board
+     */
+    public void select(int square) {
+        if (state != State.RUNNING)
+            return;
+        for (int i = 0; i < squares.length; i++) {
+            if (squares[i] == square)
+                setSelected(i);
+        }
+
+        int piece = selected;
+
+        if (piece < 0)
+            return;
+
+        // if piece is newly selected
+        if (squares[piece] == square)
+            return;
+
+        // deselect if selected square is not in next moves
+        if (!isNextSquare(square)) {
+            setSelected(-1);
+            return;
+        }
+
+        // move
+        setSelected(-1);
+        move(piece, square);
+        var previous = state;
+        updateState();
+        moveCount++;
+        MOVES.increment();
+        // count a finished game once, when the move finishes it
+        if (state == previous)
+            return;
+        if (state == State.GOAL) {
+            GOALS.increment();
+            SOLVE_TIME.record(clock.getElapsedMillis());
+            SOLVE_MOVES.record(moveCount);
+        } else if (state == State.OVER) {
+            OVERS.increment();
+        }
+    }
+
+    /**
+     * Moves a piece if the rules allow it, without selection, messages or logging.
+     * Used to replay recorded games.
+     * @param piece Index of the piece
+     * @param square Destination square
+     * @return true if the move was legal and made
+     */
+    boolean replay(int piece, int square) {
+        if (state != State.RUNNING || piece < 0 || piece >= squares.length || square < 0 || square >= geometry.squares())
+            return false;
+        if (!isMovable(piece) || Arrays.binarySearch(getNextSquares(piece), square) < 0)
+            return false;
+        setSquare(piece, square);
+        updateState();
+        moveCount++;
+        return true;
+    }
+
+    /**
+     * Move a piece to the specified square.
+     * @param piece Index of the piece to move
+     * @param square Square where piece move to
+     */
+    protected void move(int piece, int square) {
+        log.debug("Moving {}", types[piece]);
+        var event = new MoveEvent();
+        event.begin();
+        int from = squares[piece];
+        setSquare(piece, square);
+        if (event.shouldCommit()) {
+            event.pieceType = types[piece].name();
+            event.from = from;
+            event.to = square;
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the mask of next possible squares of the piece on the default board.
+     * A piece cannot move to other pieces' square.
+     * @param piece Index of the piece
+     * @return Mask of next squares
+     * @throws IllegalStateException if the board does not fit a bitboard
+     */
+    protected long getNextMoves(int piece) {
+        long occupancy = occupancy();
+        return types[piece].getAttacks(squares[piece], occupancy) & ~occupancy;
+    }
+
+    /**
+     * Returns the next possible squares of the piece on a board of any size.
+     * On the default board, these are the squares of {@link #getNextMoves(int)}.
+     * @param piece Index of the piece
+     * @return Next squares, in ascending order
+     */
+    protected int[] getNextSquares(int piece) {
+        if (bitboard)
+            return toSquares(getNextMoves(piece));
+        int count = types[piece].getTargets(geometry, squares[piece], this::isOccupied, targets);
+        int free = 0;
+        for (int i = 0; i < count; i++) {
+            if (!isOccupied(targets[i]))
+                targets[free++] = targets[i];
+        }
+        var next = Arrays.copyOf(targets, free);
+        Arrays.sort(next);
+        return next;
+    }
+
+    /**
+     * Returns true if the piece is under attack by other pieces.
+     * @param piece Index of the piece
+     * @return True if movable
+     */
+    protected boolean isMovable(int piece) {
+        if (!bitboard) {
+            for (int i = 0; i < squares.length; i++) {
+                if (i != piece && types[i].attacks(geometry, squares[i], squares[piece], this::isOccupied))
+                    return true;
+            }
+            return false;
+        }
+        long occupancy = occupancy();
+        long attacked = 0L;
+        for (int i = 0; i < squares.length; i++) {
+            if (i != piece)
+                attacked |= types[i].getAttacks(squares[i], occupancy);
+        }
+        return (attacked & (1L << squares[piece])) != 0;
+    }
+
+    /**
+     * Update the current state of the game.
+     */
+    protected void updateState() {
+        var event = new UpdateStateEvent();
+        event.begin();
+        try {
+            if (isOccupied(goal)) {
+                clock.stop();
+                setState(State.GOAL);
+                return;
+            }
+            for (int i = 0; i < squares.length; i++) {
+                if (isMovable(i))
+                    return;
+            }
+            clock.stop();
+            setState(State.OVER);
+        } finally {
+            if (event.shouldCommit()) {
+                event.state = state == null ? null : state.name();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Returns the mask of occupied squares on the default board.
+     * @return Occupancy mask
+     * @throws IllegalStateException if the board does not fit a bitboard
+     */
+    public long occupancy() {
+        if (!bitboard)
+            throw new IllegalStateException("The " + geometry + " board does not fit a bitboard");
+        long mask = 0L;
+        for (int sq : squares)
+            mask |= 1L << sq;
+        return mask;
+    }
+
+    /**
+     * Returns true if a piece is on the square.
+     * @param square Square to check
+     * @return true if occupied
+     */
+    public boolean isOccupied(int square) {
+        for (int sq : squares) {
+            if (sq == square)
+                return true;
+        }
+        return false;
+    }
+
+    private boolean isNextSquare(int square) {
+        if (square < 0)
+            return false;
+        if (bitboard)
+            return (nextMoves & (1L << square)) != 0;
+        return Arrays.binarySearch(nextSquares, square) >= 0;
+    }
+
+    private static int[] toSquares(long mask) {
+        var list = new int[Long.bitCount(mask)];
+        for (int i = 0; mask != 0; mask &= mask - 1)
+            list[i++] = Long.numberOfTrailingZeros(mask);
+        return list;
+    }
+
+    private void setSquare(int piece, int square) {
+        int from = squares[piece];
+        squares[piece] = square;
+        key = Zobrist.move(key, piece, from, square);
+        for (var l : listeners)
+            l.pieceMoved(piece, from, square);
+    }
+
+    private void setSelected(int piece) {
+        if (piece == selected)
+            return;
+        selected = piece;
+        if (piece < 0) {
+            setMessage("");
+        } else {
+            setMessage(types[piece] + " selected");
+            log.debug("{} selected", types[piece]);
+        }
+        for (var l : listeners)
+            l.selectionChanged(piece);
+        updateNextMoves(piece);
+    }
+
+    private void updateNextMoves(int piece) {
+        if (piece < 0) {
+            setNextMoves(0L, NO_SQUARES);
+            return;
+        }
+        if (!isMovable(piece)) {
+            setNextMoves(0L, NO_SQUARES);
+            setMessage(types[piece] + " is not movable");
+            return;
+        }
+
+        if (bitboard) {
+            long moves = getNextMoves(piece);
+            setNextMoves(moves, null);
+        } else {
+            setNextMoves(0L, getNextSquares(piece));
+        }
+
+        if (nextMoves == 0 && nextSquares.length == 0)
+            setMessage(types[piece] + " is not movable");
+        else
+            log.debug("Next squares: {}", Arrays.toString(nextSquares));
+    }
+
+    /**
+     * Sets the next moves.
+     * @param mask Mask of next squares on the default board
+     * @param list Next squares on other boards, or null to derive them from the mask
+     */
+    private void setNextMoves(long mask, int[] list) {
+        if (bitboard ? mask == nextMoves : Arrays.equals(list, nextSquares))
+            return;
+        nextMoves = mask;
+        nextSquares = list != null ? list : toSquares(mask);
+        for (var l : listeners)
+            l.nextMovesChanged(nextSquares.clone());
+    }
+
+    private void setState(State newState) {
+        if (newState == state)
+            return;
+        state = newState;
+        for (var l : listeners)
+            l.stateChanged(newState);
+    }
+
+    private void setMessage(String newMessage) {
+        if (newMessage.equals(message))
+            return;
+        message = newMessage;
+        for (var l : listeners)
+            l.messageChanged(newMessage);
+    }
+
+    /**
+     * Returns the number of pieces.
+     * @return number of pieces
+     */
+    public int getPieceCount() {
+        return squares.length;
+    }
+
+    /**
+     * Returns the type of the piece.
+     * @param piece Index of the piece
+     * @return piece type
+     */
+    public PieceType getType(int piece) {
+        return types[piece];
+    }
+
+    /**
+     * Returns the current square of the piece.
+     * @param piece Index of the piece
+     * @return square
+     */
+    public int getSquare(int piece) {
+        return squares[piece];
+    }
+
+    /**
+     * Gets the Zobrist key of the placement of the pieces, for transposition tables.
+     * @return key
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the goal square.
+     * @return goal square
+     */
+    public int getGoal() {
+        return goal;
+    }
+
+    /**
+     * Returns the index of the selected piece.
+     * @return index of the selected piece, or -1 if none
+     */
+    public int getSelected() {
+        return selected;
+    }
+
+    /**
+     * Returns the next moves of the selected piece on the default board.
+     * @return Mask of next squares, 0 on other boards
+     */
+    public long getNextMoves() {
+        return nextMoves;
+    }
+
+    /**
+     * Returns the next moves of the selected piece on a board of any size.
+     * @return Next squares, in ascending order
+     */
+    public int[] getNextSquares() {
+        return nextSquares.clone();
+    }
+
+    /**
+     * Returns the geometry of the board.
+     * @return geometry
+     */
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Returns the game state.
+     * @return state, or null before the first play
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the number of moves since the game started.
+     * @return number of moves
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Returns the clock of the game. It starts on play and stops when the game ends.
+     * @return game clock
+     */
+    public GameClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Returns the score at the current time and number of moves.
+     * @return calculated score
+     */
+    public int getScore() {
+        return calculateScore(moveCount, clock.getElapsedMillis());
+    }
+
+    /**
+     * Returns the message to show to the player.
+     * @return message
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,143 @@
+package state;
+
+/**
+ * Size of a rectangular board.
+ * <p>
+ * Squares are numbered {@code row * cols + col}, as in {@link Bitboard} for the default board.
+ * Boards of up to {@link #MAX_SIZE} x {@link #MAX_SIZE} squares are supported;
+ * only boards of at most 64 squares fit in a bitboard.
+ */
+public final class Geometry {
+    /**
+     * Maximum number of rows or columns.
+     */
+    public static final int MAX_SIZE = 1000;
+    /**
+     * Geometry of the default board.
+     */
+    public static final Geometry DEFAULT = new Geometry(Board.ROW_SIZE, Board.COL_SIZE);
+
+    private final int rows;
+    private final int cols;
+
+    private Geometry(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Returns the geometry of a board.
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @return geometry
+     * @throws IllegalArgumentException if a size is not between 1 and {@link #MAX_SIZE}
+     */
+    public static Geometry of(int rows, int cols) {
+        if (rows < 1 || cols < 1 || rows > MAX_SIZE || cols > MAX_SIZE)
+            throw new IllegalArgumentException("Unsupported board size: " + rows + "x" + cols);
+        if (rows == Board.ROW_SIZE && cols == Board.COL_SIZE)
+            return DEFAULT;
+        return new Geometry(rows, cols);
+    }
+
+    /**
+     * Parses a size such as {@code 8x8}.
+     * @param size Rows and columns separated by {@code x}
+     * @return geometry
+     * @throws IllegalArgumentException if the size is malformed or unsupported
+     */
+    public static Geometry parse(String size) {
+        int x = size.indexOf('x');
+        if (x < 0)
+            throw new IllegalArgumentException("Invalid board size: " + size);
+        return of(Integer.parseInt(size.substring(0, x)), Integer.parseInt(size.substring(x + 1)));
+    }
+
+    /**
+     * Gets the number of rows.
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns.
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the number of squares.
+     * @return number of squares
+     */
+    public int squares() {
+        return rows * cols;
+    }
+
+    /**
+     * Returns true if every square fits in a bitboard.
+     * @return true for boards of at most 64 squares
+     */
+    public boolean fitsBitboard() {
+        return squares() <= Long.SIZE;
+    }
+
+    /**
+     * Returns true if the position is on the board.
+     * @param row Row of the position
+     * @param col Column of the position
+     * @return true if on the board
+     */
+    public boolean contains(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    /**
+     * Returns the square of a position.
+     * @param row Row of the position
+     * @param col Column of the position
+     * @return square, or -1 if off board
+     */
+    public int square(int row, int col) {
+        return contains(row, col) ? row * cols + col : -1;
+    }
+
+    /**
+     * Returns the row of a square.
+     * @param square Square index
+     * @return row
+     */
+    public int row(int square) {
+        return square / cols;
+    }
+
+    /**
+     * Returns the column of a square.
+     * @param square Square index
+     * @return column
+     */
+    public int col(int square) {
+        return square % cols;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Geometry))
+            return false;
+        var g = (Geometry) obj;
+        return rows == g.rows && cols == g.cols;
+    }
+
+    @Override
+    public int hashCode() {
+        return rows * 31 + cols;
+    }
+
+    @Override
+    public String toString() {
+        return rows + "x" + cols;
+    }
+}
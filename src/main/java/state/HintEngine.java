@@ -0,0 +1,341 @@
+package state;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Next optimal move of a placement, shared by all games of one puzzle.
+ * <p>
+ * Puzzles of the default board that fit {@link Solver} are answered from a {@link DistanceTable},
+ * set when loaded from a file or computed on first use: a hint is the first move to a placement
+ * one move closer to the goal.
+ * Other puzzles are searched with {@link Search.Mode#IDA_STAR}, and the next move of every
+ * placement along the found solution is kept in a size-bounded cache, so the following
+ * hints of a game and the hints of other players on the same line are lookups.
+ * <p>
+ * The cache is split into {@link TranspositionTable}s locked separately. Entries are renewed
+ * when they are read and the cache ages every {@link #AGING_SEARCHES} searches, so entries not
+ * used for a while are evicted first. Searches run outside of any lock, so misses of different
+ * placements are searched in parallel, up to one search per processor; concurrent misses of
+ * one placement wait for a single search. A hint engine is thread-safe.
+ */
+public final class HintEngine {
+    /**
+     * Default number of cached placements of large boards.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * Maximum number of shared hint engines; the least recently used one is dropped.
+     */
+    static final int MAX_SHARED = 64;
+
+    /**
+     * Number of searches between two agings of the cache.
+     */
+    static final int AGING_SEARCHES = 16;
+
+    private static final int SEGMENTS = 1 << 4;
+    /**
+     * Cached for placements without a solution.
+     */
+    private static final int NONE = -1;
+    /**
+     * Returned for placements that are not cached.
+     */
+    private static final int MISSING = -2;
+    private static final Map<List<Object>, HintEngine> SHARED = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final SparseSolver rules;
+    private final List<PieceType> types;
+    private final boolean small;
+    private final Solver solver;
+    private volatile DistanceTable table;
+    /**
+     * Searches not in use; each has its own transposition table, released under memory pressure.
+     */
+    private final Queue<SoftReference<Search>> searches = new ConcurrentLinkedQueue<>();
+    /**
+     * Permits of running searches, which also bounds the number of searches.
+     */
+    private final Semaphore running = new Semaphore(Runtime.getRuntime().availableProcessors());
+    private final AtomicInteger searchCount = new AtomicInteger();
+    /**
+     * Packed moves by mixed packed states, each table locked on its own.
+     */
+    private final TranspositionTable[] segments;
+    private final int segmentShift;
+    private final ConcurrentMap<Long, CompletableFuture<Integer>> pending = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a new hint engine.
+     * @param geometry Geometry of the board
+     * @param types Types of pieces, in the order of the piece list
+     * @param goal Goal square
+     * @param capacity Number of cached placements of large boards, rounded up to a power of two
+     */
+    public HintEngine(Geometry geometry, List<PieceType> types, int goal, int capacity) {
+        this.rules = new SparseSolver(geometry, types, goal);
+        this.types = List.copyOf(types);
+        this.small = geometry.equals(Geometry.DEFAULT) && types.size() <= Solver.MAX_PIECES;
+        this.solver = small ? new Solver(types, Bitboard.toPosition(goal)) : null;
+        // segments of at least one bucket of four entries
+        int count = Integer.highestOneBit(Math.max(1, Math.min(SEGMENTS, capacity / 4)));
+        this.segments = new TranspositionTable[count];
+        this.segmentShift = Long.SIZE - Integer.numberOfTrailingZeros(count);
+        for (int i = 0; i < count; i++)
+            segments[i] = new TranspositionTable(Math.max(1, capacity / count));
+    }
+
+    /**
+     * Returns the hint engine of the puzzle, shared by all its games.
+     * The engines of the {@link #MAX_SHARED} most recently used puzzles are kept.
+     * @param geometry Geometry of the board
+     * @param types Types of pieces, in the order of the piece list
+     * @param goal Goal square
+     * @return shared hint engine
+     */
+    public static HintEngine shared(Geometry geometry, List<PieceType> types, int goal) {
+        synchronized (SHARED) {
+            var engine = SHARED.computeIfAbsent(List.of(geometry, List.copyOf(types), goal),
+                    k -> new HintEngine(geometry, types, goal, DEFAULT_CAPACITY));
+            if (SHARED.size() > MAX_SHARED)
+                SHARED.remove(SHARED.keySet().iterator().next());
+            return engine;
+        }
+    }
+
+    /**
+     * Returns the next optimal move.
+     * @param squares Square of each piece
+     * @return move, or null if the placement is solved or cannot be solved
+     */
+    public Move hint(int[] squares) {
+        long state = rules.encode(squares);
+        if (rules.isGoal(state))
+            return null;
+        int move = small ? fromTable(state) : fromCache(state);
+        if (move == NONE)
+            return null;
+        int sq = move & 0xFFFFFF;
+        var geometry = rules.getGeometry();
+        return new Move(move >>> 24, Position.of(geometry.row(sq), geometry.col(sq)));
+    }
+
+    private static int pack(int piece, int square) {
+        return piece << 24 | square;
+    }
+
+    /**
+     * Returns the distance table of the puzzle, computing it unless set beforehand.
+     * @return distance table
+     * @throws IllegalStateException if the puzzle does not fit a distance table
+     */
+    public DistanceTable getTable() {
+        if (!small)
+            throw new IllegalStateException("Puzzle does not fit a distance table");
+        var t = table;
+        if (t == null) {
+            synchronized (this) {
+                if (table == null)
+                    table = DistanceTable.compute(types, Bitboard.toPosition(rules.getGoal()));
+                t = table;
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Sets the distance table, e.g. one loaded with {@link DistanceTable#load}, so that it is not computed.
+     * @param table table of this puzzle
+     * @throws IllegalArgumentException if the table is of another puzzle
+     */
+    public void setTable(DistanceTable table) {
+        if (!small || !table.getTypes().equals(types) || Bitboard.square(table.getGoal()) != rules.getGoal())
+            throw new IllegalArgumentException("Distance table does not match the puzzle");
+        this.table = table;
+    }
+
+    private int fromTable(long state) {
+        var t = table;
+        if (t == null) {
+            misses.increment();
+            t = getTable();
+        } else {
+            hits.increment();
+        }
+        int s = (int) state;
+        int d = t.distance(s);
+        if (d == DistanceTable.UNSOLVABLE)
+            return NONE;
+        for (int i = 0; i < types.size(); i++) {
+            if (!solver.isMovable(s, i))
+                continue;
+            for (long moves = solver.nextMoves(s, i); moves != 0; moves &= moves - 1) {
+                int to = Long.numberOfTrailingZeros(moves);
+                if (t.distance(Solver.withSquare(s, i, to)) == d - 1)
+                    return pack(i, to);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Spreads the bits of a packed state, which is a bijection, so the result is the key.
+     */
+    private static long mix(long state) {
+        return state * 0x9E3779B97F4A7C15L;
+    }
+
+    private TranspositionTable segment(long key) {
+        // the shift is 64 for one segment, which Java takes as 0
+        return segments.length == 1 ? segments[0] : segments[(int) (key >>> segmentShift)];
+    }
+
+    private int cached(long state) {
+        long key = mix(state);
+        var segment = segment(key);
+        long value;
+        synchronized (segment) {
+            value = segment.get(key);
+            // renew the entry, so that placements in use survive aging
+            if (value != TranspositionTable.MISS)
+                segment.put(key, value, segment.getDepth(key));
+        }
+        // moves are stored plus one, so that NONE is 0
+        return value == TranspositionTable.MISS ? MISSING : (int) value - 1;
+    }
+
+    private void cache(long state, int move, int distance) {
+        long key = mix(state);
+        var segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, move + 1, Math.min(distance, TranspositionTable.MAX_DEPTH));
+        }
+    }
+
+    private int fromCache(long state) {
+        int move = cached(state);
+        if (move != MISSING) {
+            hits.increment();
+            return move;
+        }
+        misses.increment();
+        var future = new CompletableFuture<Integer>();
+        var running = pending.putIfAbsent(state, future);
+        if (running != null)
+            return running.join();
+        try {
+            int result = solve(state);
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            pending.remove(state);
+        }
+    }
+
+    /**
+     * Searches the placement and caches the next move of every placement on the solution.
+     */
+    private int solve(long state) {
+        // another search may have passed through this placement meanwhile
+        int move = cached(state);
+        if (move != MISSING)
+            return move;
+        Search.Result result;
+        running.acquireUninterruptibly();
+        try {
+            var search = idleSearch();
+            result = search.solve(state, Search.Mode.IDA_STAR);
+            searches.add(new SoftReference<>(search));
+        } finally {
+            running.release();
+        }
+        if (searchCount.incrementAndGet() % AGING_SEARCHES == 0) {
+            for (var segment : segments) {
+                synchronized (segment) {
+                    segment.newSearch();
+                }
+            }
+        }
+        if (!result.isSolvable()) {
+            // only definite answers are cached
+            if (result.isComplete())
+                cache(state, NONE, 0);
+            return NONE;
+        }
+        var geometry = rules.getGeometry();
+        var moves = result.getMoves();
+        long s = state;
+        int first = NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            var m = moves.get(i);
+            int to = geometry.square(m.getTo().getRow(), m.getTo().getCol());
+            int packed = pack(m.getPieceIndex(), to);
+            if (first == NONE)
+                first = packed;
+            // placements far from the goal are kept longer
+            cache(s, packed, moves.size() - i);
+            s = rules.withSquare(s, m.getPieceIndex(), to);
+        }
+        return first;
+    }
+
+    /**
+     * Returns an idle search that was not released, or a new one.
+     */
+    private Search idleSearch() {
+        SoftReference<Search> ref;
+        while ((ref = searches.poll()) != null) {
+            var search = ref.get();
+            if (search != null)
+                return search;
+        }
+        return new Search(rules);
+    }
+
+    /**
+     * Returns the number of hints answered without computing.
+     * @return number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of hints that needed a table or a search.
+     * @return number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of cached placements of large boards.
+     * @return number of placements
+     */
+    public int size() {
+        int size = 0;
+        for (var segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+}
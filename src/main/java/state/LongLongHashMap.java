@@ -0,0 +1,88 @@
+package state;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map of non-negative long keys to long values, without boxing.
+ * Used for search states that do not fit in an array indexed by state.
+ */
+final class LongLongHashMap {
+    /**
+     * Value returned for absent keys.
+     */
+    static final long ABSENT = -1;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int shift;
+
+    LongLongHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, ABSENT);
+        shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * Puts the value unless the key is present.
+     * @return true if the key was absent
+     */
+    boolean putIfAbsent(long key, long value) {
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (keys[i] != ABSENT) {
+            if (keys[i] == key)
+                return false;
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length)
+            grow();
+        return true;
+    }
+
+    /**
+     * Returns the value of the key, or {@link #ABSENT}.
+     */
+    long get(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (keys[i] != ABSENT) {
+            if (keys[i] == key)
+                return values[i];
+            i = (i + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        var oldKeys = keys;
+        var oldValues = values;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == ABSENT)
+                continue;
+            int i = slot(oldKeys[j]);
+            while (keys[i] != ABSENT)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package state;
+
+/**
+ * Magic bitboard tables of sliding attacks on the default board.
+ * <p>
+ * For each square, the occupied squares that can block a ray are multiplied by a magic number,
+ * and the high bits of the product index a precomputed table of attacks.
+ * A lookup is one multiplication and one array access regardless of the number of pieces.
+ * The magic numbers are precomputed constants, so loading the class only fills the table
+ * by walking the rays of every subset, about 0.1 s on a cold JVM.
+ */
+final class Magic {
+    static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    /**
+     * Magic numbers of the rook on each square, checked by {@code MagicTest}.
+     */
+    static final long[] ROOK_MAGICS = {
+            0x0080008420144000L, 0x0140001000402000L, 0x8100200100081040L, 0x0580100181040800L,
+            0x0480040002480180L, 0x020002001004C108L, 0x06002600180104ACL, 0x0A00010200804024L,
+            0x1102800320814002L, 0xC000808040002000L, 0x0202802000821000L, 0x4210800800801000L,
+            0x8008808044004800L, 0x0006002418100200L, 0x0A00800200010080L, 0x0202000208804114L,
+            0x0280044002200041L, 0x3010004020004008L, 0x0010002008040022L, 0x8000210008100102L,
+            0x60A2020004110820L, 0x0222008080040002L, 0x00C0840002085110L, 0x02004A0000810454L,
+            0x0080401080008020L, 0x0040200040100048L, 0x0006041200208040L, 0x2010100100210008L,
+            0x5090080080800400L, 0x0022002200042950L, 0x011010040002E108L, 0x0000240200009041L,
+            0x0010400020800080L, 0x0040401000402000L, 0x0200200080801000L, 0x4140080080801003L,
+            0x0000800400800800L, 0x0800040080800200L, 0x1008080284002110L, 0x00A001008A001444L,
+            0x3040002040908000L, 0x1000422010024000L, 0x0040402001010010L, 0x8000100008008080L,
+            0x0084008008028004L, 0x0002000204008080L, 0x0000088210040001L, 0x0280C12080520004L,
+            0x028700800C402B00L, 0x0180200040008080L, 0x80A0008020100080L, 0x0001012010008900L,
+            0x4000040108008180L, 0x000C000402008080L, 0x004B0002002C0900L, 0x0020D42040811200L,
+            0x8844520121004082L, 0x1109150082204001L, 0x0302000820408012L, 0x2081002208041001L,
+            0x0002000804201002L, 0x5101000A28040029L, 0x0100080112489004L, 0x02000E4400288102L
+    };
+    /**
+     * Magic numbers of the bishop on each square.
+     */
+    static final long[] BISHOP_MAGICS = {
+            0x4014281015002108L, 0x0060020882029000L, 0x1104440082102120L, 0x4004410020042802L,
+            0x0011104020140040L, 0x0006074460005020L, 0x48208E0820040201L, 0x0202050401042240L,
+            0x400C401014208AA0L, 0x01C020064A424100L, 0x0012304408424000L, 0x21008808510C0004L,
+            0x0020141420000024L, 0x0004009004202009L, 0x4002008410080450L, 0x2000088280B82000L,
+            0x4040002410828602L, 0x08448030810A1410L, 0x1010032104008110L, 0x0850810802084244L,
+            0x0804000202112040L, 0x4901008610009420L, 0x31A0402411082800L, 0x8402000107620200L,
+            0x2210311041126208L, 0x0295218018020400L, 0x2092010408104400L, 0x0004040000401080L,
+            0x0020404004010041L, 0x80448A0109080618L, 0x008084110A0A0200L, 0x204C00C000A70440L,
+            0x3010106441114400L, 0x0C94115400181000L, 0x1821403000020400L, 0x2000020082480080L,
+            0x2080408020020200L, 0x0020080040068040L, 0x20089D8888190802L, 0x000F820044408408L,
+            0x2084022006089000L, 0x22510101A0401020L, 0x40000A0802009408L, 0x140483C010420200L,
+            0x0449200208811408L, 0x0002220042000100L, 0x00281000D0800201L, 0x044200A519010200L,
+            0x0300421050080002L, 0x00C0540401080004L, 0x4801010088040034L, 0x8400000210540051L,
+            0x400400404822002CL, 0x2080070448020000L, 0x1B2082100A00A000L, 0x4002021802108000L,
+            0xC000248800901000L, 0x0000024100B01100L, 0x1902103044022100L, 0x0000004404228810L,
+            0x0101000008210100L, 0x0025000820089082L, 0x0008091010008120L, 0x9120024202040010L
+    };
+
+    private static final long[] ROOK_MASKS = new long[Bitboard.SQUARES];
+    private static final int[] ROOK_SHIFTS = new int[Bitboard.SQUARES];
+    private static final int[] ROOK_OFFSETS = new int[Bitboard.SQUARES];
+    private static final long[] BISHOP_MASKS = new long[Bitboard.SQUARES];
+    private static final int[] BISHOP_SHIFTS = new int[Bitboard.SQUARES];
+    private static final int[] BISHOP_OFFSETS = new int[Bitboard.SQUARES];
+    /**
+     * Attacks of all squares of both sliders, indexed from the offset of the square.
+     */
+    private static final long[] ATTACKS;
+
+    static {
+        int size = 0;
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+            ROOK_MASKS[sq] = relevantMask(sq, ROOK_DIRECTIONS);
+            BISHOP_MASKS[sq] = relevantMask(sq, BISHOP_DIRECTIONS);
+            size += 1 << Long.bitCount(ROOK_MASKS[sq]);
+            size += 1 << Long.bitCount(BISHOP_MASKS[sq]);
+        }
+        ATTACKS = new long[size];
+        int offset = 0;
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+            ROOK_OFFSETS[sq] = offset;
+            ROOK_SHIFTS[sq] = Long.SIZE - Long.bitCount(ROOK_MASKS[sq]);
+            offset += fill(sq, ROOK_DIRECTIONS, ROOK_MASKS[sq], ROOK_MAGICS[sq], ATTACKS, offset);
+            BISHOP_OFFSETS[sq] = offset;
+            BISHOP_SHIFTS[sq] = Long.SIZE - Long.bitCount(BISHOP_MASKS[sq]);
+            offset += fill(sq, BISHOP_DIRECTIONS, BISHOP_MASKS[sq], BISHOP_MAGICS[sq], ATTACKS, offset);
+        }
+    }
+
+    private Magic() {
+    }
+
+    /**
+     * Returns the squares attacked by a rook.
+     * @param square Square of the rook
+     * @param occupancy Mask of occupied squares
+     * @return Attack mask, including the first blocker of each ray
+     */
+    static long rook(int square, long occupancy) {
+        int index = (int) (((occupancy & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ATTACKS[ROOK_OFFSETS[square] + index];
+    }
+
+    /**
+     * Returns the squares attacked by a bishop.
+     * @param square Square of the bishop
+     * @param occupancy Mask of occupied squares
+     * @return Attack mask, including the first blocker of each ray
+     */
+    static long bishop(int square, long occupancy) {
+        int index = (int) (((occupancy & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return ATTACKS[BISHOP_OFFSETS[square] + index];
+    }
+
+    /**
+     * Returns the squares attacked by walking the rays. Used to build the tables.
+     * @param square Square of the piece
+     * @param occupancy Mask of occupied squares
+     * @param directions Row and column steps of the rays
+     * @return Attack mask
+     */
+    static long walk(int square, long occupancy, int[][] directions) {
+        long mask = 0L;
+        for (var d : directions) {
+            int row = Bitboard.row(square) + d[0];
+            int col = Bitboard.col(square) + d[1];
+            int to;
+            while ((to = Bitboard.square(row, col)) >= 0) {
+                mask |= 1L << to;
+                if ((occupancy & (1L << to)) != 0)
+                    break;
+                row += d[0];
+                col += d[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the squares that can block a ray, i.e. the rays without their last square.
+     */
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0L;
+        for (var d : directions) {
+            int row = Bitboard.row(square) + d[0];
+            int col = Bitboard.col(square) + d[1];
+            while (Bitboard.isOnBoard(row + d[0], col + d[1])) {
+                mask |= 1L << Bitboard.square(row, col);
+                row += d[0];
+                col += d[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Fills the part of the table of a square with the attacks of every subset of the mask.
+     * @return number of table entries used
+     * @throws IllegalStateException if the magic number maps two different attacks to one entry
+     */
+    static int fill(int square, int[][] directions, long mask, long magic, long[] table, int offset) {
+        int bits = Long.bitCount(mask);
+        int size = 1 << bits;
+        int shift = Long.SIZE - bits;
+        var used = new boolean[size];
+        // enumerate all subsets of the mask
+        long subset = 0L;
+        for (int i = 0; i < size; i++) {
+            long attacks = walk(square, subset, directions);
+            int index = (int) ((subset * magic) >>> shift);
+            if (used[index] && table[offset + index] != attacks)
+                throw new IllegalStateException("Invalid magic number of square " + square);
+            used[index] = true;
+            table[offset + index] = attacks;
+            subset = (subset - mask) & mask;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the squares that can block a ray of a rook.
+     */
+    static long rookMask(int square) {
+        return ROOK_MASKS[square];
+    }
+
+    /**
+     * Returns the squares that can block a ray of a bishop.
+     */
+    static long bishopMask(int square) {
+        return BISHOP_MASKS[square];
+    }
+}
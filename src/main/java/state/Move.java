@@ -0,0 +1,56 @@
+package state;
+
+/**
+ * An immutable move of a piece to a destination.
+ * Pieces are referred to by their index in the piece list of the board.
+ */
+public final class Move {
+    private final int pieceIndex;
+    private final Position to;
+
+    /**
+     * Creates a new move.
+     * @param pieceIndex Index of the moving piece
+     * @param to Destination of the piece
+     */
+    public Move(int pieceIndex, Position to) {
+        this.pieceIndex = pieceIndex;
+        this.to = to;
+    }
+
+    /**
+     * Gets index of the moving piece.
+     * @return piece index
+     */
+    public int getPieceIndex() {
+        return pieceIndex;
+    }
+
+    /**
+     * Gets destination of the piece.
+     * @return destination
+     */
+    public Position getTo() {
+        return to;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (!(obj instanceof Move))
+            return false;
+        var m = (Move) obj;
+        return pieceIndex == m.pieceIndex && to.equals(m.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return pieceIndex * 31 + to.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return pieceIndex + "->" + to;
+    }
+}
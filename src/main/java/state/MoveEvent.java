@@ -0,0 +1,28 @@
+package state;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of {@link GameEngine#move}, made by a select or by {@link Board#move}.
+ */
+@Name("chess.Move")
+@Label("Move")
+@Description("Move of a piece, including the listeners of the engine")
+@Category({"Chess Puzzle", "Game"})
+@StackTrace(false)
+class MoveEvent extends jdk.jfr.Event {
+    @Label("Piece Type")
+    String pieceType;
+
+    @Label("From")
+    @Description("Square index before the move")
+    int from;
+
+    @Label("To")
+    @Description("Square index after the move")
+    int to;
+}
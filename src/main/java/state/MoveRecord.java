@@ -0,0 +1,303 @@
+package state;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Compact record of the moves of one game, verifiable by {@link ReplayVerifier}.
+ * <p>
+ * Encoding:
+ * <pre>
+ * per move:  byte   piece index &lt;&lt; 6 | destination square
+ *            varint milliseconds since the previous move, or since the start
+ * end:       byte   0xFF
+ *            varint milliseconds from the last move to the end of the game
+ * </pre>
+ * A move fits in 7 bits for the default puzzle of two pieces, so most moves take two bytes.
+ * Up to {@link #MAX_PIECES} pieces can be recorded.
+ */
+public final class MoveRecord {
+    /**
+     * Maximum number of pieces that can be recorded.
+     */
+    public static final int MAX_PIECES = 3;
+    static final int END = 0xFF;
+
+    private final byte[] data;
+    private final int moveCount;
+    private final boolean ended;
+
+    private MoveRecord(byte[] data, int moveCount, boolean ended) {
+        this.data = data;
+        this.moveCount = moveCount;
+        this.ended = ended;
+    }
+
+    /**
+     * Wraps encoded bytes. The bytes are validated only by {@link ReplayVerifier}.
+     * @param bytes Encoded record
+     * @return record
+     */
+    public static MoveRecord fromBytes(byte[] bytes) {
+        int moves = 0;
+        int i = 0;
+        while (i < bytes.length && (bytes[i] & 0xFF) != END) {
+            moves++;
+            i++;
+            // skip the varint of the time delta
+            while (i < bytes.length && bytes[i] < 0)
+                i++;
+            i++;
+        }
+        return new MoveRecord(bytes.clone(), moves, i < bytes.length);
+    }
+
+    /**
+     * Decodes a record from Base64.
+     * @param base64 Encoded record
+     * @return record
+     * @throws IllegalArgumentException if the string is not Base64
+     */
+    public static MoveRecord fromBase64(String base64) {
+        return fromBytes(Base64.getDecoder().decode(base64));
+    }
+
+    /**
+     * Returns the encoded bytes.
+     * @return copy of the bytes
+     */
+    public byte[] toBytes() {
+        return data.clone();
+    }
+
+    /**
+     * Returns the record in Base64.
+     * @return encoded record
+     */
+    public String toBase64() {
+        return Base64.getEncoder().encodeToString(data);
+    }
+
+    byte[] data() {
+        return data;
+    }
+
+    /**
+     * Returns the number of recorded moves.
+     * @return number of moves
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Returns true if the record contains the end of the game.
+     * @return true if ended
+     */
+    public boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * Returns the sum of the recorded time deltas.
+     * @return milliseconds, up to the end of the game if ended
+     */
+    public long getElapsedMillis() {
+        long total = 0;
+        int i = 0;
+        while (i < data.length) {
+            // skip the move or the end marker, then add the varint
+            i++;
+            long delta = 0;
+            for (int shift = 0; i < data.length && shift < Long.SIZE; shift += 7) {
+                int v = data[i++];
+                delta |= (long) (v & 0x7F) << shift;
+                if (v >= 0)
+                    break;
+            }
+            total += delta;
+        }
+        return total;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof MoveRecord && Arrays.equals(data, ((MoveRecord) obj).data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(data);
+    }
+
+    @Override
+    public String toString() {
+        return "MoveRecord(" + moveCount + " moves, " + data.length + " bytes)";
+    }
+
+    /**
+     * Builds a record move by move.
+     */
+    public static final class Builder {
+        private byte[] buffer = new byte[32];
+        private int length;
+        private int moves;
+        private boolean ended;
+
+        /**
+         * Creates a new builder of an empty record.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Creates a new builder continuing a record, e.g. of a game recovered after a restart.
+         * @param prefix Record of the moves so far
+         * @throws IllegalArgumentException if the record has ended
+         */
+        public Builder(MoveRecord prefix) {
+            if (prefix.isEnded())
+                throw new IllegalArgumentException("Record has ended");
+            buffer = Arrays.copyOf(prefix.data, Math.max(32, prefix.data.length * 2));
+            length = prefix.data.length;
+            moves = prefix.moveCount;
+        }
+
+        /**
+         * Adds a move.
+         * @param piece Index of the piece
+         * @param square Destination square
+         * @param deltaMillis Milliseconds since the previous move, or since the start
+         * @return this builder
+         */
+        public Builder move(int piece, int square, long deltaMillis) {
+            if (piece < 0 || piece >= MAX_PIECES || square < 0 || square >= Bitboard.SQUARES)
+                throw new IllegalArgumentException("Cannot record move of piece " + piece + " to " + square);
+            if (ended)
+                throw new IllegalStateException("Record has ended");
+            put(piece << 6 | square);
+            putVarint(deltaMillis);
+            moves++;
+            return this;
+        }
+
+        /**
+         * Ends the game.
+         * @param deltaMillis Milliseconds from the last move to the end of the game
+         * @return this builder
+         */
+        public Builder end(long deltaMillis) {
+            if (ended)
+                throw new IllegalStateException("Record has ended");
+            put(END);
+            putVarint(deltaMillis);
+            ended = true;
+            return this;
+        }
+
+        /**
+         * Builds the record.
+         * @return record
+         */
+        public MoveRecord build() {
+            return new MoveRecord(Arrays.copyOf(buffer, length), moves, ended);
+        }
+
+        private void putVarint(long value) {
+            if (value < 0)
+                throw new IllegalArgumentException("Negative time delta: " + value);
+            while (value >= 0x80) {
+                put((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            put((int) value);
+        }
+
+        private void put(int b) {
+            if (length == buffer.length)
+                buffer = Arrays.copyOf(buffer, length * 2);
+            buffer[length++] = (byte) b;
+        }
+    }
+
+    /**
+     * Records the games of an engine.
+     * <p>
+     * Recording starts when a game starts and the record is complete when the game ends.
+     */
+    public static final class Recorder implements GameEngine.Listener {
+        private final GameEngine engine;
+        private Builder builder;
+        private long lastMillis;
+        private MoveRecord record;
+
+        /**
+         * Creates a new recorder listening to the engine.
+         * @param engine Engine to record
+         */
+        public Recorder(GameEngine engine) {
+            if (engine.getPieceCount() > MAX_PIECES)
+                throw new IllegalArgumentException("Cannot record more than " + MAX_PIECES + " pieces");
+            this.engine = engine;
+            engine.addListener(this);
+        }
+
+        @Override
+        public void gameStarted() {
+            builder = new Builder();
+            lastMillis = 0;
+            record = null;
+        }
+
+        @Override
+        public void pieceMoved(int piece, int from, int to) {
+            if (builder == null || engine.getState() != GameEngine.State.RUNNING)
+                return;
+            long now = engine.getClock().getElapsedMillis();
+            builder.move(piece, to, now - lastMillis);
+            lastMillis = now;
+        }
+
+        @Override
+        public void stateChanged(GameEngine.State state) {
+            if (builder == null || state == GameEngine.State.RUNNING)
+                return;
+            record = builder.end(engine.getClock().getElapsedMillis() - lastMillis).build();
+            builder = null;
+        }
+
+        /**
+         * Returns the record of the last finished game.
+         * @return record, or null while no game has finished since the last start
+         */
+        public MoveRecord getRecord() {
+            return record;
+        }
+
+        /**
+         * Returns the record of the current game so far, or of the last finished game.
+         * @return record, or null if no game has started
+         */
+        public MoveRecord getProgress() {
+            return builder != null ? builder.build() : record;
+        }
+
+        /**
+         * Continues recording from a record returned by {@link #getProgress()},
+         * after the engine was restored to the state at that time.
+         * @param progress Record so far, or null if no game had started
+         */
+        public void resume(MoveRecord progress) {
+            if (progress == null)
+                return;
+            if (progress.isEnded()) {
+                builder = null;
+                record = progress;
+            } else {
+                builder = new Builder(progress);
+                lastMillis = progress.getElapsedMillis();
+                record = null;
+            }
+        }
+    }
+}
@@ -4,8 +4,6 @@ import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 
 import java.util.*;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  * Piece holds pieceType and observable current position.
@@ -24,7 +22,7 @@ public final class Piece {
      * @param col Column index of the board
      */
     public Piece(PieceType type, int row, int col) {
-        this.position.set(new Position(row, col));
+        this.position.set(Position.of(row, col));
         this.type = type;
     }
 
@@ -35,9 +33,27 @@ public final class Piece {
      */
     public List<Position> getNextMoves() {
 
-        if (position.get() == null) return null;
+        var current = position.get();
+        if (current == null) return null;
 
-        return type.getMoves().stream().map(position.get()::movedBy).collect(Collectors.toList());
+        var offsets = type.getMoves();
+        if (!type.isSliding()) {
+            var moves = new ArrayList<Position>(offsets.size());
+            for (var offset : offsets)
+                moves.add(current.movedBy(offset));
+            return moves;
+        }
+        // sliding pieces: every distance along the directions that can stay on the board
+        int range = Math.max(Board.ROW_SIZE, Board.COL_SIZE) - 1;
+        var moves = new ArrayList<Position>(offsets.size() * range);
+        for (var offset : offsets) {
+            var p = current;
+            for (int k = 0; k < range; k++) {
+                p = p.movedBy(offset);
+                moves.add(p);
+            }
+        }
+        return moves;
     }
 
     /**
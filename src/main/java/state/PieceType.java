@@ -1,16 +1,23 @@
 package state;
 
 import java.util.List;
+import java.util.function.IntPredicate;
 
 /**
  * Types of chess pieces.
- * Each type holds unmodifiable list of possible moves.
+ * Each type holds unmodifiable list of possible moves
+ * and precomputed attack masks for every square of the default board.
+ * Sliding pieces move any number of squares along their directions until blocked;
+ * their attacks on the default board are looked up in magic bitboard tables,
+ * so checking attacks does not walk the rays.
+ * On boards of any {@link Geometry}, targets are computed from the move offsets
+ * with bounds checks instead of per-square tables.
  */
 public enum PieceType {
     /**
      * King piece.
      */
-    KING(new Position[]{
+    KING(false, new Position[]{
             new Position(1, 0), // top
             new Position(1, -1), // top-left
             new Position(1, 1), // top-right
@@ -23,7 +30,7 @@ public enum PieceType {
     /**
      * Knight piece.
      */
-    KNIGHT(new Position[]{
+    KNIGHT(false, new Position[]{
             new Position(2, 1), // upper top-left
             new Position(1, 2), // lower top-left
             new Position(-1, 2), // upper bottom-left
@@ -32,19 +39,186 @@ public enum PieceType {
             new Position(-1, -2), // upper bottom-right
             new Position(1, -2), // lower top-right
             new Position(2, -1) // upper top-right
+    }),
+    /**
+     * Rook piece, sliding along rows and columns.
+     */
+    ROOK(true, new Position[]{
+            new Position(1, 0), // top
+            new Position(-1, 0), // bottom
+            new Position(0, 1), // right
+            new Position(0, -1) // left
+    }),
+    /**
+     * Bishop piece, sliding along diagonals.
+     */
+    BISHOP(true, new Position[]{
+            new Position(1, 1), // top-right
+            new Position(1, -1), // top-left
+            new Position(-1, 1), // bottom-right
+            new Position(-1, -1) // bottom-left
+    }),
+    /**
+     * Queen piece, sliding along rows, columns and diagonals.
+     */
+    QUEEN(true, new Position[]{
+            new Position(1, 0), // top
+            new Position(-1, 0), // bottom
+            new Position(0, 1), // right
+            new Position(0, -1), // left
+            new Position(1, 1), // top-right
+            new Position(1, -1), // top-left
+            new Position(-1, 1), // bottom-right
+            new Position(-1, -1) // bottom-left
     });
 
+    private final boolean sliding;
     private final List<Position> moves;
+    private final int[] rowOffsets;
+    private final int[] colOffsets;
+    private final long[] attacks = new long[Bitboard.SQUARES];
 
-    PieceType(Position[] moves) {
+    PieceType(boolean sliding, Position[] moves) {
+        this.sliding = sliding;
         this.moves = List.of(moves);
+        this.rowOffsets = new int[moves.length];
+        this.colOffsets = new int[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            rowOffsets[i] = moves[i].getRow();
+            colOffsets[i] = moves[i].getCol();
+        }
+        for (int sq = 0; sq < attacks.length; sq++) {
+            for (var m : moves) {
+                int row = Bitboard.row(sq) + m.getRow();
+                int col = Bitboard.col(sq) + m.getCol();
+                int to;
+                while ((to = Bitboard.square(row, col)) >= 0) {
+                    attacks[sq] |= 1L << to;
+                    if (!sliding)
+                        break;
+                    row += m.getRow();
+                    col += m.getCol();
+                }
+            }
+        }
     }
 
     /**
      * Returns list of relative positions the piece type can move to.
+     * For sliding pieces these are the directions of one step.
      * @return next positions of piece
      */
     public List<Position> getMoves() {
         return moves;
     }
+
+    /**
+     * Returns true if the piece slides along its directions until blocked.
+     * @return true for rook, bishop and queen
+     */
+    public boolean isSliding() {
+        return sliding;
+    }
+
+    /**
+     * Returns the squares attacked from the specified square on an empty board.
+     * @param square Square index of the piece
+     * @return Attack mask
+     */
+    public long getAttacks(int square) {
+        return attacks[square];
+    }
+
+    /**
+     * Returns the squares attacked from the specified square.
+     * Rays of sliding pieces stop at the first occupied square, which is attacked.
+     * @param square Square index of the piece
+     * @param occupancy Mask of occupied squares
+     * @return Attack mask
+     */
+    public long getAttacks(int square, long occupancy) {
+        switch (this) {
+            case ROOK:
+                return Magic.rook(square, occupancy);
+            case BISHOP:
+                return Magic.bishop(square, occupancy);
+            case QUEEN:
+                return Magic.rook(square, occupancy) | Magic.bishop(square, occupancy);
+            default:
+                return attacks[square];
+        }
+    }
+
+    /**
+     * Returns the maximum number of squares a piece attacks on a board.
+     * @param geometry Geometry of the board
+     * @return size of the target array of {@link #getTargets(Geometry, int, IntPredicate, int[])}
+     */
+    public int getMaxTargets(Geometry geometry) {
+        return sliding ? moves.size() * (Math.max(geometry.getRows(), geometry.getCols()) - 1) : moves.size();
+    }
+
+    /**
+     * Writes the squares attacked from the square of a board of any size.
+     * Rays of sliding pieces are walked and stop at the first occupied square, which is attacked.
+     * @param geometry Geometry of the board
+     * @param square Square of the piece
+     * @param occupied Tells whether a square is occupied
+     * @param targets Array of at least {@link #getMaxTargets(Geometry)} elements receiving the squares
+     * @return number of attacked squares
+     */
+    public int getTargets(Geometry geometry, int square, IntPredicate occupied, int[] targets) {
+        int row = geometry.row(square);
+        int col = geometry.col(square);
+        int count = 0;
+        for (int i = 0; i < rowOffsets.length; i++) {
+            int r = row + rowOffsets[i];
+            int c = col + colOffsets[i];
+            int to;
+            while ((to = geometry.square(r, c)) >= 0) {
+                targets[count++] = to;
+                if (!sliding || occupied.test(to))
+                    break;
+                r += rowOffsets[i];
+                c += colOffsets[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns true if a piece of this type on one square attacks another square.
+     * @param geometry Geometry of the board
+     * @param from Square of the piece
+     * @param to Square to check
+     * @param occupied Tells whether a square is occupied, checked only between the squares
+     * @return true if attacked
+     */
+    public boolean attacks(Geometry geometry, int from, int to, IntPredicate occupied) {
+        int row = geometry.row(from);
+        int col = geometry.col(from);
+        int dr = geometry.row(to) - row;
+        int dc = geometry.col(to) - col;
+        if (!sliding) {
+            for (int i = 0; i < rowOffsets.length; i++) {
+                if (rowOffsets[i] == dr && colOffsets[i] == dc)
+                    return true;
+            }
+            return false;
+        }
+        if ((dr == 0 && dc == 0) || (dr != 0 && dc != 0 && Math.abs(dr) != Math.abs(dc)))
+            return false;
+        int sr = Integer.signum(dr);
+        int sc = Integer.signum(dc);
+        for (int i = 0; i < rowOffsets.length; i++) {
+            if (rowOffsets[i] == sr && colOffsets[i] == sc) {
+                for (int k = 1; k < Math.max(Math.abs(dr), Math.abs(dc)); k++) {
+                    if (occupied.test(geometry.square(row + sr * k, col + sc * k)))
+                        return false;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -2,8 +2,18 @@ package state;
 
 /**
  * An immutable object to represent a position in two dimensional array.
+ * <p>
+ * Positions on the board are preallocated: {@link #of(int, int)} and
+ * {@link #movedBy(int, int)} return the shared instance instead of allocating.
  */
 public class Position implements Comparable<Position> {
+    private static final Position[] onBoard = new Position[Board.ROW_SIZE * Board.COL_SIZE];
+
+    static {
+        for (int i = 0; i < onBoard.length; i++)
+            onBoard[i] = new Position(i / Board.COL_SIZE, i % Board.COL_SIZE);
+    }
+
     private final int row;
     private final int col;
 
@@ -17,6 +27,19 @@ public class Position implements Comparable<Position> {
         this.col = col;
     }
 
+    /**
+     * Returns the position with the specified row and column.
+     * Positions on the board are shared instances; others are allocated.
+     * @param row Row index
+     * @param col Column index
+     * @return Position
+     */
+    public static Position of(int row, int col) {
+        if (row >= 0 && row < Board.ROW_SIZE && col >= 0 && col < Board.COL_SIZE)
+            return onBoard[row * Board.COL_SIZE + col];
+        return new Position(row, col);
+    }
+
     /**
      * Returns the position of current moved by specified offset.
      *
@@ -29,12 +52,13 @@ public class Position implements Comparable<Position> {
 
     /**
      * Returns the position of current moved by specified offset.
+     * Allocates only if the new position is off board.
      * @param row Row offset
      * @param col Col offset
      * @return Calculated new position
      */
     public Position movedBy(int row, int col) {
-        return new Position(this.row + row, this.col + col);
+        return of(this.row + row, this.col + col);
     }
 
     /**
@@ -69,6 +93,11 @@ public class Position implements Comparable<Position> {
         return row == p.row && col == p.col;
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * row + col;
+    }
+
     @Override
     public String toString() {
         return String.format("(%d, %d)", row, col);
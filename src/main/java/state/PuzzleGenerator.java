@@ -0,0 +1,362 @@
+package state;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates puzzles of a requested difficulty: start placements and goals
+ * whose optimal solution length and branching fall in the requested ranges.
+ * <p>
+ * Every candidate of a goal is solved at once by a retrograde {@link DistanceTable},
+ * so checking a candidate is one table lookup. The rules are those of {@link Solver},
+ * which are the rules of {@link Board} and {@link GameEngine}.
+ * <p>
+ * Puzzles that map onto each other by a rotation or reflection of the board
+ * are generated once. Only the canonical form of each puzzle, the smallest under the
+ * eight symmetries with pieces of the same type sorted, is accepted. This needs no
+ * shared set, and only goals that are the smallest square of their symmetry class are searched.
+ * <p>
+ * Goals and ranges of placements are split across a {@link ForkJoinPool}, and accepted
+ * puzzles are streamed to the output in chunks as CSV rows:
+ * goal, square of each piece, optimal number of moves, branching.
+ */
+public final class PuzzleGenerator {
+    private static final int CHUNK = 1 << 14;
+    private static final int[][] SYMMETRIES = symmetries();
+
+    /**
+     * Requested difficulty of the puzzles.
+     */
+    @Value
+    @Builder
+    public static class Criteria {
+        /**
+         * Minimum optimal number of moves.
+         */
+        @Builder.Default
+        int minMoves = 1;
+        /**
+         * Maximum optimal number of moves.
+         */
+        @Builder.Default
+        int maxMoves = Integer.MAX_VALUE;
+        /**
+         * Minimum branching, the mean number of legal moves along the solution.
+         */
+        @Builder.Default
+        double minBranching = 0;
+        /**
+         * Maximum branching.
+         */
+        @Builder.Default
+        double maxBranching = Double.MAX_VALUE;
+        /**
+         * Maximum number of puzzles to generate.
+         */
+        @Builder.Default
+        long limit = Long.MAX_VALUE;
+    }
+
+    /**
+     * Counts of a generation.
+     */
+    @Value
+    public static class Stats {
+        /**
+         * Number of examined placements.
+         */
+        long candidates;
+        /**
+         * Number of accepted puzzles.
+         */
+        long accepted;
+    }
+
+    private final List<PieceType> types;
+    private final Criteria criteria;
+    /**
+     * Indexes of the pieces of each type, for sorting pieces of the same type.
+     */
+    private final int[][] groups;
+
+    /**
+     * Creates a new generator.
+     * @param types Types of pieces, in the order of the piece list
+     * @param criteria Requested difficulty
+     */
+    public PuzzleGenerator(List<PieceType> types, Criteria criteria) {
+        if (types.isEmpty() || types.size() > Solver.MAX_PIECES)
+            throw new IllegalArgumentException("Unsupported number of pieces: " + types.size());
+        if (Board.ROW_SIZE != Board.COL_SIZE)
+            throw new IllegalStateException("Symmetries need a square board");
+        if (criteria.getMinMoves() < 1 || criteria.getMinMoves() > criteria.getMaxMoves())
+            throw new IllegalArgumentException("Invalid range of moves");
+        this.types = List.copyOf(types);
+        this.criteria = criteria;
+        var list = new ArrayList<int[]>();
+        for (var type : PieceType.values()) {
+            var group = new ArrayList<Integer>();
+            for (int i = 0; i < types.size(); i++) {
+                if (types.get(i) == type)
+                    group.add(i);
+            }
+            if (group.size() > 1)
+                list.add(group.stream().mapToInt(Integer::intValue).toArray());
+        }
+        this.groups = list.toArray(new int[0][]);
+    }
+
+    /**
+     * Returns the goals searched by the generator, one per symmetry class of squares.
+     * @return goal squares
+     */
+    public static List<Integer> canonicalGoals() {
+        var goals = new ArrayList<Integer>();
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+            boolean smallest = true;
+            for (var map : SYMMETRIES)
+                smallest &= map[sq] >= sq;
+            if (smallest)
+                goals.add(sq);
+        }
+        return goals;
+    }
+
+    /**
+     * Generates puzzles on the common pool.
+     * @param out Destination of the CSV rows
+     * @return counts of the generation
+     * @throws IOException if writing fails
+     */
+    public Stats generate(Writer out) throws IOException {
+        return generate(out, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generates puzzles on the pool.
+     * @param out Destination of the CSV rows
+     * @param pool Pool to run on
+     * @return counts of the generation
+     * @throws IOException if writing fails
+     */
+    public Stats generate(Writer out, ForkJoinPool pool) throws IOException {
+        var sb = new StringBuilder("goal");
+        for (var t : types)
+            sb.append(',').append(t.name().toLowerCase());
+        out.write(sb.append(",moves,branching\n").toString());
+
+        var run = new Run(out);
+        var goals = canonicalGoals();
+        var tasks = new ArrayList<GoalTask>(goals.size());
+        for (int goal : goals)
+            tasks.add(new GoalTask(run, goal));
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        return new Stats(run.candidates.sum(), Math.min(run.accepted.get(), criteria.getLimit()));
+    }
+
+    /**
+     * Shared state of one generation.
+     */
+    private static final class Run {
+        final Writer out;
+        final LongAdder candidates = new LongAdder();
+        final AtomicLong accepted = new AtomicLong();
+
+        Run(Writer out) {
+            this.out = out;
+        }
+    }
+
+    /**
+     * Searches the placements of one goal. Tasks are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private final class GoalTask extends RecursiveAction {
+        private final Run run;
+        private final int goal;
+
+        GoalTask(Run run, int goal) {
+            this.run = run;
+            this.goal = goal;
+        }
+
+        @Override
+        protected void compute() {
+            if (run.accepted.get() >= criteria.getLimit())
+                return;
+            var table = DistanceTable.compute(types, Bitboard.toPosition(goal));
+            var rules = new Solver(types, Bitboard.toPosition(goal));
+            invokeAll(new ChunkTask(run, table, rules, goal, 0, 1 << (Solver.SQUARE_BITS * types.size())));
+        }
+    }
+
+    /**
+     * Searches a range of placements of one goal. Tasks are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private final class ChunkTask extends RecursiveAction {
+        private final Run run;
+        private final DistanceTable table;
+        private final Solver rules;
+        private final int goal;
+        private final int from;
+        private final int to;
+
+        ChunkTask(Run run, DistanceTable table, Solver rules, int goal, int from, int to) {
+            this.run = run;
+            this.table = table;
+            this.rules = rules;
+            this.goal = goal;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChunkTask(run, table, rules, goal, from, mid),
+                        new ChunkTask(run, table, rules, goal, mid, to));
+                return;
+            }
+            if (run.accepted.get() >= criteria.getLimit())
+                return;
+
+            var sb = new StringBuilder();
+            int n = types.size();
+            var squares = new int[n];
+            int found = 0;
+            for (int s = from; s < to; s++) {
+                int d = table.distance(s);
+                if (d < criteria.getMinMoves() || d > criteria.getMaxMoves())
+                    continue;
+                if (!isCanonical(goal, s, squares))
+                    continue;
+                double branching = branching(table, rules, s);
+                if (branching < criteria.getMinBranching() || branching > criteria.getMaxBranching())
+                    continue;
+                sb.append(Bitboard.name(goal));
+                for (int i = 0; i < n; i++)
+                    sb.append(',').append(Bitboard.name(Solver.squareOf(s, i)));
+                sb.append(',').append(d).append(',').append(String.format(Locale.ROOT, "%.2f", branching)).append('\n');
+                found++;
+            }
+            run.candidates.add(to - from);
+            if (found == 0)
+                return;
+
+            // drop the rows beyond the limit
+            long before = run.accepted.getAndAdd(found);
+            long keep = Math.min(found, criteria.getLimit() - before);
+            if (keep <= 0)
+                return;
+            int end = sb.length();
+            for (long i = keep; i < found; i++)
+                end = sb.lastIndexOf("\n", end - 2) + 1;
+            try {
+                synchronized (run.out) {
+                    run.out.write(sb.toString(), 0, end);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the puzzle is the smallest of its symmetry class.
+     */
+    private boolean isCanonical(int goal, int state, int[] squares) {
+        int n = types.size();
+        long own = key(goal, state, squares, SYMMETRIES[0]);
+        if (own != ((long) goal << (Solver.SQUARE_BITS * n) | state))
+            return false;
+        for (int t = 1; t < SYMMETRIES.length; t++) {
+            if (key(goal, state, squares, SYMMETRIES[t]) < own)
+                return false;
+        }
+        return true;
+    }
+
+    private long key(int goal, int state, int[] squares, int[] map) {
+        int n = types.size();
+        for (int i = 0; i < n; i++)
+            squares[i] = map[Solver.squareOf(state, i)];
+        for (var group : groups) {
+            // insertion sort of the squares of the group
+            for (int a = 1; a < group.length; a++) {
+                int v = squares[group[a]];
+                int b = a - 1;
+                for (; b >= 0 && squares[group[b]] > v; b--)
+                    squares[group[b + 1]] = squares[group[b]];
+                squares[group[b + 1]] = v;
+            }
+        }
+        long key = map[goal];
+        for (int i = n - 1; i >= 0; i--)
+            key = key << Solver.SQUARE_BITS | squares[i];
+        return key;
+    }
+
+    /**
+     * Returns the mean number of legal moves along the first optimal line from the state.
+     */
+    static double branching(DistanceTable table, Solver rules, int state) {
+        int n = table.getTypes().size();
+        int d = table.distance(state);
+        long total = 0;
+        for (int step = d; step > 0; step--) {
+            int next = -1;
+            for (int i = 0; i < n; i++) {
+                if (!rules.isMovable(state, i))
+                    continue;
+                long moves = rules.nextMoves(state, i);
+                total += Long.bitCount(moves);
+                for (; moves != 0 && next < 0; moves &= moves - 1) {
+                    int s = Solver.withSquare(state, i, Long.numberOfTrailingZeros(moves));
+                    if (table.distance(s) == step - 1)
+                        next = s;
+                }
+            }
+            state = next;
+        }
+        return (double) total / d;
+    }
+
+    /**
+     * Returns the square maps of the eight symmetries of the square board, identity first.
+     */
+    private static int[][] symmetries() {
+        int last = Board.ROW_SIZE - 1;
+        var maps = new int[8][Bitboard.SQUARES];
+        for (int t = 0; t < maps.length; t++) {
+            for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+                int row = (t & 1) != 0 ? last - Bitboard.row(sq) : Bitboard.row(sq);
+                int col = (t & 2) != 0 ? last - Bitboard.col(sq) : Bitboard.col(sq);
+                maps[t][sq] = (t & 4) != 0 ? Bitboard.square(col, row) : Bitboard.square(row, col);
+            }
+        }
+        return maps;
+    }
+}
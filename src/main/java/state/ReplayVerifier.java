@@ -0,0 +1,146 @@
+package state;
+
+import java.util.function.Supplier;
+
+/**
+ * Checks a {@link MoveRecord} by replaying it under the rules of the engine
+ * and recomputes its score.
+ * <p>
+ * Every move must pass {@link GameEngine#isMovable(int)} and {@link GameEngine#getNextMoves(int)},
+ * and {@link GameEngine#updateState()} must report the goal after the last move.
+ * The score is recomputed from the number of moves and the recorded time,
+ * so a submitted score can be compared with {@link Result#getScore()}.
+ * Records longer than {@link #MAX_MILLIS} are rejected.
+ * <p>
+ * A verifier reuses one engine and is not thread-safe; use one per thread.
+ */
+public class ReplayVerifier {
+    /**
+     * Longest accepted recorded time of a game, one day in milliseconds.
+     */
+    public static final long MAX_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final GameEngine engine;
+
+    /**
+     * Creates a new verifier of the default puzzle.
+     */
+    public ReplayVerifier() {
+        this(GameEngine::new);
+    }
+
+    /**
+     * Creates a new verifier.
+     * @param engineFactory Creates the engine of the puzzle to verify
+     */
+    public ReplayVerifier(Supplier<GameEngine> engineFactory) {
+        this.engine = engineFactory.get();
+    }
+
+    /**
+     * Replays the record.
+     * @param record Record to verify
+     * @return result of the verification
+     */
+    public Result verify(MoveRecord record) {
+        var data = record.data();
+        engine.play();
+        long time = 0;
+        int moves = 0;
+        int pos = 0;
+        while (pos < data.length) {
+            int b = data[pos++] & 0xFF;
+
+            long delta = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (pos == data.length)
+                    return Result.invalid("Truncated time of move " + (moves + 1));
+                // 8 bytes of 7 bits hold any accepted delta, a 9th byte could make it negative
+                if (shift > 49)
+                    return Result.invalid("Time of move " + (moves + 1) + " is too long");
+                int v = data[pos++];
+                delta |= (long) (v & 0x7F) << shift;
+                if (v >= 0)
+                    break;
+            }
+            if (delta > MAX_MILLIS - time)
+                return Result.invalid("Time of move " + (moves + 1) + " is too long");
+            time += delta;
+
+            if (b == MoveRecord.END) {
+                if (pos != data.length)
+                    return Result.invalid("Data after the end of the game");
+                if (engine.getState() != GameEngine.State.GOAL)
+                    return Result.invalid("Puzzle is not solved");
+                return new Result(true, GameEngine.calculateScore(moves, time), moves, time, null);
+            }
+            if (!engine.replay(b >>> 6, b & 0x3F))
+                return Result.invalid("Illegal move " + (moves + 1));
+            moves++;
+        }
+        return Result.invalid("Missing end of the game");
+    }
+
+    /**
+     * Result of a verification.
+     */
+    public static final class Result {
+        private final boolean valid;
+        private final int score;
+        private final int moves;
+        private final long elapsedMillis;
+        private final String reason;
+
+        private Result(boolean valid, int score, int moves, long elapsedMillis, String reason) {
+            this.valid = valid;
+            this.score = score;
+            this.moves = moves;
+            this.elapsedMillis = elapsedMillis;
+            this.reason = reason;
+        }
+
+        private static Result invalid(String reason) {
+            return new Result(false, 0, 0, 0, reason);
+        }
+
+        /**
+         * Returns true if the record solves the puzzle under the rules.
+         * @return true if valid
+         */
+        public boolean isValid() {
+            return valid;
+        }
+
+        /**
+         * Gets the recomputed score.
+         * @return score, 0 if invalid
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * Gets the number of moves.
+         * @return number of moves, 0 if invalid
+         */
+        public int getMoves() {
+            return moves;
+        }
+
+        /**
+         * Gets the recorded time of the game.
+         * @return milliseconds, 0 if invalid
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Gets the reason of rejection.
+         * @return reason, or null if valid
+         */
+        public String getReason() {
+            return reason;
+        }
+    }
+}
@@ -15,20 +15,35 @@ import javafx.util.Duration;
  * Call start() to start scoring, addMove() after each moves, and end() to end scoring.
  * <p>
  * Time and number of moves are observable.
+ * <p>
+ * A scorer created with a {@link GameClock} is monotonic: it runs no timer,
+ * computes the elapsed time on demand and updates the time property only on
+ * {@link #refreshTime()}. Otherwise a JavaFX timeline adds one second to the time every second.
  */
 public class Scorer {
     private final LongProperty time = new SimpleLongProperty();
     private final IntegerProperty numOfMoves = new SimpleIntegerProperty();
     private final Timeline clock;
+    private final GameClock gameClock;
 
     /**
-     * Creates a new scorer.
+     * Creates a new scorer ticking every second.
      */
     public Scorer() {
         clock = new Timeline(new KeyFrame(Duration.ZERO, e -> {
             time.set(time.get() + 1000);
         }), new KeyFrame(Duration.seconds(1)));
         clock.setCycleCount(Animation.INDEFINITE);
+        gameClock = null;
+    }
+
+    /**
+     * Creates a new monotonic scorer on the clock.
+     * @param gameClock Clock measuring the game
+     */
+    public Scorer(GameClock gameClock) {
+        this.clock = null;
+        this.gameClock = gameClock;
     }
 
     /**
@@ -37,14 +52,22 @@ public class Scorer {
     public void start() {
         numOfMoves.set(0);
         time.set(0);
-        clock.play();
+        if (gameClock != null)
+            gameClock.start();
+        else
+            clock.play();
     }
 
     /**
      * Stops timer.
      */
     public void end() {
-        clock.pause();
+        if (gameClock != null) {
+            gameClock.stop();
+            refreshTime();
+        } else {
+            clock.pause();
+        }
     }
 
     /**
@@ -54,16 +77,33 @@ public class Scorer {
         numOfMoves.set(numOfMoves.get() + 1);
     }
 
+    /**
+     * Updates the time property with the elapsed time of a monotonic scorer.
+     * Call it from a view that needs a running clock.
+     */
+    public void refreshTime() {
+        if (gameClock != null)
+            time.set(gameClock.getElapsedMillis());
+    }
+
+    /**
+     * Returns the elapsed time.
+     * @return elapsed milliseconds
+     */
+    public long getElapsedMillis() {
+        return gameClock != null ? gameClock.getElapsedMillis() : time.get();
+    }
+
     /**
      * Returns score at the time and of the number of moves.
      * @return calculated score
      */
     public int getScore() {
-        return calculate(numOfMoves.get(), time.get());
+        return calculate(numOfMoves.get(), getElapsedMillis());
     }
 
     protected static int calculate(int moves, long time) {
-        return 2000 - ((int) time >> 7) - moves * 50;
+        return GameEngine.calculateScore(moves, time);
     }
 
     /**
@@ -0,0 +1,639 @@
+package state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Shortest-solution searches that scale beyond the breadth-first search of {@link SparseSolver}.
+ * <p>
+ * {@link Mode#IDA_STAR} is an iterative-deepening depth-first search bounded by an admissible
+ * heuristic. Its memory is the current path and a fixed-size {@link TranspositionTable}
+ * of the depths at which states were expanded, whatever the size of the board.
+ * {@link Mode#BIDIRECTIONAL} searches forward from the start and backward from all solved
+ * placements, one layer at a time from the smaller frontier, until the frontiers meet.
+ * It stops when the visited states exceed a budget.
+ * {@link Mode#BFS} runs {@link SparseSolver#solve(long)} for comparison.
+ * <p>
+ * The heuristic is the fewest moves any piece needs to reach the goal alone on an empty board.
+ * Knight and king distances come from tables precomputed toward the goal; sliding pieces
+ * need one move along a line and two otherwise. Before its last move, the piece must be attacked,
+ * so another piece must first reach a square attacking a square one move from the goal;
+ * distances of knights and kings to those squares are precomputed too, and these moves are
+ * made by the other piece. A piece that is not attacked cannot move before another piece does,
+ * so it needs at least one move of the others. Placements where no piece is attacked
+ * are dead ends. Every move moves one piece by one of its moves, so the bound never exceeds
+ * the real number of moves.
+ * <p>
+ * A search is not thread-safe. Use one search per thread.
+ */
+public class Search {
+    /**
+     * Search algorithm.
+     */
+    public enum Mode {
+        /**
+         * breadth-first search, memory grows with the reachable states.
+         */
+        BFS,
+        /**
+         * breadth-first search from both ends, memory bounded by a budget of states.
+         */
+        BIDIRECTIONAL,
+        /**
+         * iterative-deepening A*, memory bounded by the transposition table.
+         */
+        IDA_STAR
+    }
+
+    /**
+     * Default budget of visited states of the bidirectional search.
+     */
+    public static final int DEFAULT_MAX_STATES = 1 << 24;
+    /**
+     * Default size of the transposition table of IDA*.
+     */
+    public static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int FOUND = -1;
+
+    private final SparseSolver rules;
+    private final Geometry geometry;
+    private final PieceType[] types;
+    private final int goal;
+    private final int maxStates;
+    private final int maxDepth;
+    private final TranspositionTable table;
+    /**
+     * Distance of each square to the goal, per leaper type ordinal, or null for sliders.
+     */
+    private final int[][] distances = new int[PieceType.values().length][];
+    /**
+     * Distance of each square to the squares attacking the last step toward the goal,
+     * per type ordinal of the moving piece and of the leaper escorting it.
+     */
+    private final int[][][] escorts = new int[PieceType.values().length][PieceType.values().length][];
+    /**
+     * Target buffers of each depth of the depth-first search.
+     */
+    private int[][] buffers = new int[16][];
+    private final int maxTargets;
+    private long current;
+    private final IntPredicate occupied = sq -> isOccupied(current, sq);
+
+    private long nodes;
+    private long[] path = new long[16];
+    /**
+     * Length of the solution found by {@link #dfs}.
+     */
+    private int length;
+    private int iteration;
+
+    /**
+     * Creates a new search with the default budgets.
+     * @param rules Rules of the puzzle
+     */
+    public Search(SparseSolver rules) {
+        this(rules, DEFAULT_MAX_STATES, DEFAULT_TABLE_MEGABYTES,
+                2 * (rules.getGeometry().getRows() + rules.getGeometry().getCols()));
+    }
+
+    /**
+     * Creates a new search.
+     * @param rules Rules of the puzzle
+     * @param maxStates Budget of visited states of the bidirectional search
+     * @param tableMegabytes Size of the transposition table of IDA*
+     * @param maxDepth Maximum number of moves IDA* searches for
+     */
+    public Search(SparseSolver rules, int maxStates, int tableMegabytes, int maxDepth) {
+        this.rules = rules;
+        this.geometry = rules.getGeometry();
+        this.types = rules.getTypes().toArray(new PieceType[0]);
+        this.goal = rules.getGoal();
+        this.maxStates = maxStates;
+        this.maxDepth = maxDepth;
+        this.table = TranspositionTable.ofMegabytes(tableMegabytes);
+        int max = 0;
+        for (var t : types) {
+            max = Math.max(max, t.getMaxTargets(geometry));
+            if (!t.isSliding() && distances[t.ordinal()] == null)
+                distances[t.ordinal()] = distancesFrom(t, new int[]{goal});
+        }
+        this.maxTargets = max;
+        for (var mover : types) {
+            for (var escort : types) {
+                if (!escort.isSliding() && escorts[mover.ordinal()][escort.ordinal()] == null)
+                    escorts[mover.ordinal()][escort.ordinal()] = distancesFrom(escort, attackersOfLastStep(mover, escort));
+            }
+        }
+    }
+
+    /**
+     * Returns the squares from which the escort attacks a square one move of the mover from the goal.
+     */
+    private int[] attackersOfLastStep(PieceType mover, PieceType escort) {
+        var steps = new int[mover.getMaxTargets(geometry)];
+        var attackers = new int[escort.getMaxTargets(geometry)];
+        var seen = new boolean[geometry.squares()];
+        int count = mover.getTargets(geometry, goal, s -> false, steps);
+        var list = new int[16];
+        int size = 0;
+        for (int k = 0; k < count; k++) {
+            int n = escort.getTargets(geometry, steps[k], s -> false, attackers);
+            for (int a = 0; a < n; a++) {
+                if (seen[attackers[a]])
+                    continue;
+                seen[attackers[a]] = true;
+                if (size == list.length)
+                    list = Arrays.copyOf(list, size * 2);
+                list[size++] = attackers[a];
+            }
+        }
+        return Arrays.copyOf(list, size);
+    }
+
+    /**
+     * Breadth-first distances of a leaper from every square to the nearest source on an empty board.
+     * Leaper moves are symmetric, so the search runs from the sources.
+     */
+    private int[] distancesFrom(PieceType type, int[] sources) {
+        var dist = new int[geometry.squares()];
+        Arrays.fill(dist, INF);
+        var queue = new int[geometry.squares()];
+        var targets = new int[type.getMaxTargets(geometry)];
+        int head = 0;
+        int tail = 0;
+        for (int sq : sources) {
+            dist[sq] = 0;
+            queue[tail++] = sq;
+        }
+        while (head < tail) {
+            int sq = queue[head++];
+            int count = type.getTargets(geometry, sq, s -> false, targets);
+            for (int t = 0; t < count; t++) {
+                if (dist[targets[t]] == INF) {
+                    dist[targets[t]] = dist[sq] + 1;
+                    queue[tail++] = targets[t];
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Returns the fewest moves of a piece from the square to the goal on an empty board.
+     */
+    private int lowerBound(PieceType type, int square) {
+        if (square == goal)
+            return 0;
+        if (!type.isSliding())
+            return distances[type.ordinal()][square];
+        int dr = geometry.row(goal) - geometry.row(square);
+        int dc = geometry.col(goal) - geometry.col(square);
+        boolean straight = dr == 0 || dc == 0;
+        boolean diagonal = Math.abs(dr) == Math.abs(dc);
+        switch (type) {
+            case ROOK:
+                return straight ? 1 : 2;
+            case BISHOP:
+                // a bishop never changes the color of its square
+                return diagonal ? 1 : ((dr + dc) & 1) == 0 ? 2 : INF;
+            default:
+                return straight || diagonal ? 1 : 2;
+        }
+    }
+
+    /**
+     * Returns the admissible lower bound of the remaining moves.
+     * @param state Packed state
+     * @return number of moves, or {@link Integer#MAX_VALUE} if the state cannot reach the goal
+     */
+    int heuristic(long state) {
+        if (rules.isGoal(state))
+            return 0;
+        int best = INF;
+        boolean anyMovable = false;
+        for (int i = 0; i < types.length; i++) {
+            boolean movable = rules.isMovable(state, i);
+            anyMovable |= movable;
+            int d = lowerBound(types[i], rules.squareOf(state, i));
+            if (d == INF)
+                continue;
+            // moves of the other pieces before the last move of this one
+            int others = INF;
+            for (int j = 0; j < types.length && others > 0; j++) {
+                if (j == i)
+                    continue;
+                var escort = escorts[types[i].ordinal()][types[j].ordinal()];
+                others = Math.min(others, escort == null ? 0 : escort[rules.squareOf(state, j)]);
+            }
+            if (others == INF)
+                continue;
+            best = Math.min(best, d + Math.max(others, movable ? 0 : 1));
+        }
+        return anyMovable ? best : INF;
+    }
+
+    /**
+     * Solves the puzzle from the squares of the pieces.
+     * @param squares Square of each piece
+     * @param mode Search algorithm
+     * @return Result of the search
+     */
+    public Result solve(int[] squares, Mode mode) {
+        return solve(rules.encode(squares), mode);
+    }
+
+    /**
+     * Solves the puzzle from the packed state.
+     * @param start Packed start state
+     * @param mode Search algorithm
+     * @return Result of the search
+     */
+    public Result solve(long start, Mode mode) {
+        long begin = System.nanoTime();
+        nodes = 0;
+        Result result;
+        switch (mode) {
+            case BFS:
+                var bfs = rules.solve(start);
+                nodes = bfs.getExploredStates();
+                result = new Result(mode, bfs.isSolvable() ? bfs.getMoves() : null, true);
+                break;
+            case BIDIRECTIONAL:
+                result = bidirectional(start);
+                break;
+            default:
+                result = idaStar(start);
+                break;
+        }
+        result.nodes = nodes;
+        result.elapsedNanos = System.nanoTime() - begin;
+        return result;
+    }
+
+    private Result idaStar(long start) {
+        int bound = heuristic(start);
+        if (bound == INF)
+            return new Result(Mode.IDA_STAR, null, true);
+        path[0] = start;
+        table.clear();
+        while (true) {
+            iteration++;
+            table.newSearch();
+            int r = dfs(start, Zobrist.of(squares(start)), 0, bound, -1, -1);
+            if (r == FOUND)
+                return new Result(Mode.IDA_STAR, movesOf(Arrays.copyOf(path, length + 1)), true);
+            if (r == INF)
+                return new Result(Mode.IDA_STAR, null, true);
+            if (r > maxDepth)
+                return new Result(Mode.IDA_STAR, null, false);
+            bound = r;
+        }
+    }
+
+    /**
+     * Searches below the state within the bound.
+     * @return {@link #FOUND}, or the smallest estimate that exceeded the bound
+     */
+    private int dfs(long state, long key, int g, int bound, int lastPiece, int lastFrom) {
+        int h = heuristic(state);
+        if (h == INF)
+            return INF;
+        if (g + h > bound)
+            return g + h;
+        if (h == 0) {
+            length = g;
+            return FOUND;
+        }
+        // skip states expanded in this iteration with at least the remaining budget
+        long seen = table.get(key);
+        if (seen != TranspositionTable.MISS && (seen >>> 16) == (iteration & 0xFFFFFFFFL) && (seen & 0xFFFF) <= g)
+            return INF;
+        table.put(key, (iteration & 0xFFFFFFFFL) << 16 | Math.min(g, 0xFFFF), bound - g);
+        nodes++;
+
+        if (g + 1 == buffers.length)
+            buffers = Arrays.copyOf(buffers, buffers.length * 2);
+        if (buffers[g] == null)
+            buffers[g] = new int[maxTargets];
+        if (g + 1 == path.length)
+            path = Arrays.copyOf(path, path.length * 2);
+        var targets = buffers[g];
+        int min = INF;
+        for (int i = 0; i < types.length; i++) {
+            if (!rules.isMovable(state, i))
+                continue;
+            int from = rules.squareOf(state, i);
+            current = state;
+            int count = types[i].getTargets(geometry, from, occupied, targets);
+            for (int t = 0; t < count; t++) {
+                int to = targets[t];
+                if (isOccupied(state, to) || (i == lastPiece && to == lastFrom))
+                    continue;
+                long next = rules.withSquare(state, i, to);
+                path[g + 1] = next;
+                int r = dfs(next, Zobrist.move(key, i, from, to), g + 1, bound, i, from);
+                if (r == FOUND)
+                    return FOUND;
+                min = Math.min(min, r);
+            }
+        }
+        return min;
+    }
+
+    private Result bidirectional(long start) {
+        if (rules.isGoal(start))
+            return new Result(Mode.BIDIRECTIONAL, List.of(), true);
+
+        // solved placements: one piece on the goal, the others anywhere
+        double goals = types.length * Math.pow(geometry.squares() - 1, types.length - 1);
+        if (goals > maxStates)
+            return new Result(Mode.BIDIRECTIONAL, null, false);
+        var forward = new LongLongHashMap(1024);
+        var backward = new LongLongHashMap((int) goals);
+        forward.putIfAbsent(start, start);
+        var forwardLayer = new long[]{start};
+        var backwardLayer = seeds(backward);
+        int forwardDepth = 0;
+        int backwardDepth = 0;
+
+        while (forwardLayer.length > 0 && backwardLayer.length > 0) {
+            if (forward.size() + backward.size() > maxStates)
+                return new Result(Mode.BIDIRECTIONAL, null, false);
+            boolean fromStart = forwardLayer.length <= backwardLayer.length;
+            var own = fromStart ? forward : backward;
+            var other = fromStart ? backward : forward;
+            var layer = fromStart ? forwardLayer : backwardLayer;
+            int depth = (fromStart ? forwardDepth : backwardDepth) + 1;
+
+            var next = new long[Math.max(16, layer.length)];
+            int size = 0;
+            long meet = -1;
+            int best = INF;
+            for (long state : layer) {
+                nodes++;
+                for (int i = 0; i < types.length; i++) {
+                    int count = fromStart ? successors(state, i) : predecessors(state, i);
+                    for (int t = 0; t < count; t++) {
+                        long s = rules.withSquare(state, i, buffers[0][t]);
+                        if (!own.putIfAbsent(s, state))
+                            continue;
+                        if (size == next.length)
+                            next = Arrays.copyOf(next, size * 2);
+                        next[size++] = s;
+                        if (other.get(s) != LongLongHashMap.ABSENT) {
+                            int total = depth + chainLength(other, s);
+                            if (total < best) {
+                                best = total;
+                                meet = s;
+                            }
+                        }
+                    }
+                }
+            }
+            if (meet >= 0)
+                return new Result(Mode.BIDIRECTIONAL, join(forward, backward, meet), true);
+            if (fromStart) {
+                forwardLayer = Arrays.copyOf(next, size);
+                forwardDepth = depth;
+            } else {
+                backwardLayer = Arrays.copyOf(next, size);
+                backwardDepth = depth;
+            }
+        }
+        return new Result(Mode.BIDIRECTIONAL, null, true);
+    }
+
+    /**
+     * Puts every solved placement with a possible last move into the backward map.
+     */
+    private long[] seeds(LongLongHashMap backward) {
+        var seeds = new long[][]{new long[16]};
+        var size = new int[1];
+        var squares = new int[types.length];
+        for (int i = 0; i < types.length; i++) {
+            squares[i] = goal;
+            placeOthers(0, i, squares, backward, seeds, size);
+        }
+        return Arrays.copyOf(seeds[0], size[0]);
+    }
+
+    /**
+     * Places the pieces from the k-th on, except the one on the goal, on every free square.
+     */
+    private void placeOthers(int k, int onGoal, int[] squares, LongLongHashMap backward, long[][] seeds, int[] size) {
+        if (k == types.length) {
+            long state = rules.encode(squares);
+            if (hasPredecessor(state) && backward.putIfAbsent(state, state)) {
+                if (size[0] == seeds[0].length)
+                    seeds[0] = Arrays.copyOf(seeds[0], size[0] * 2);
+                seeds[0][size[0]++] = state;
+            }
+            return;
+        }
+        if (k == onGoal) {
+            placeOthers(k + 1, onGoal, squares, backward, seeds, size);
+            return;
+        }
+        for (int sq = 0; sq < geometry.squares(); sq++) {
+            if (sq == goal || isTaken(squares, k, onGoal, sq))
+                continue;
+            squares[k] = sq;
+            placeOthers(k + 1, onGoal, squares, backward, seeds, size);
+        }
+    }
+
+    private static boolean isTaken(int[] squares, int k, int onGoal, int sq) {
+        for (int j = 0; j < k; j++) {
+            if (j != onGoal && squares[j] == sq)
+                return true;
+        }
+        return false;
+    }
+
+    private boolean hasPredecessor(long state) {
+        for (int i = 0; i < types.length; i++) {
+            if (predecessors(state, i) > 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes the squares the piece can move to from the state into the first buffer.
+     * @return number of squares
+     */
+    private int successors(long state, int index) {
+        if (rules.isGoal(state) || !rules.isMovable(state, index))
+            return 0;
+        return moves(state, index, false);
+    }
+
+    /**
+     * Writes the squares the piece can have come from to the state into the first buffer.
+     * Moves are symmetric, so these are its targets from which it was attacked and
+     * that were not solved placements.
+     * @return number of squares
+     */
+    private int predecessors(long state, int index) {
+        return moves(state, index, true);
+    }
+
+    private int moves(long state, int index, boolean backward) {
+        if (buffers[0] == null)
+            buffers[0] = new int[maxTargets];
+        var targets = buffers[0];
+        current = state;
+        int count = types[index].getTargets(geometry, rules.squareOf(state, index), occupied, targets);
+        int n = 0;
+        for (int t = 0; t < count; t++) {
+            int to = targets[t];
+            if (isOccupied(state, to))
+                continue;
+            if (backward) {
+                long prev = rules.withSquare(state, index, to);
+                if (rules.isGoal(prev) || !rules.isMovable(prev, index))
+                    continue;
+            }
+            targets[n++] = to;
+        }
+        return n;
+    }
+
+    private boolean isOccupied(long state, int square) {
+        return rules.isOccupied(state, square);
+    }
+
+    private static int chainLength(LongLongHashMap map, long state) {
+        int length = 0;
+        long prev;
+        while ((prev = map.get(state)) != state) {
+            state = prev;
+            length++;
+        }
+        return length;
+    }
+
+    private List<Move> join(LongLongHashMap forward, LongLongHashMap backward, long meet) {
+        var states = new ArrayList<Long>();
+        for (long s = meet; ; s = forward.get(s)) {
+            states.add(s);
+            if (forward.get(s) == s)
+                break;
+        }
+        Collections.reverse(states);
+        for (long s = meet; backward.get(s) != s; ) {
+            s = backward.get(s);
+            states.add(s);
+        }
+        var array = new long[states.size()];
+        for (int i = 0; i < array.length; i++)
+            array[i] = states.get(i);
+        return movesOf(array);
+    }
+
+    private int[] squares(long state) {
+        var squares = new int[types.length];
+        for (int i = 0; i < squares.length; i++)
+            squares[i] = rules.squareOf(state, i);
+        return squares;
+    }
+
+    private List<Move> movesOf(long[] states) {
+        var moves = new ArrayList<Move>(states.length);
+        for (int k = 1; k < states.length; k++) {
+            for (int i = 0; i < types.length; i++) {
+                int sq = rules.squareOf(states[k], i);
+                if (sq != rules.squareOf(states[k - 1], i)) {
+                    moves.add(new Move(i, Position.of(geometry.row(sq), geometry.col(sq))));
+                    break;
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Result of a search.
+     */
+    public static final class Result {
+        private final Mode mode;
+        private final List<Move> moves;
+        private final boolean complete;
+        private long nodes;
+        private long elapsedNanos;
+
+        private Result(Mode mode, List<Move> moves, boolean complete) {
+            this.mode = mode;
+            this.moves = moves == null ? null : Collections.unmodifiableList(moves);
+            this.complete = complete;
+        }
+
+        /**
+         * Gets the search algorithm.
+         * @return mode
+         */
+        public Mode getMode() {
+            return mode;
+        }
+
+        /**
+         * Returns true if a solution was found.
+         * @return True if solvable
+         */
+        public boolean isSolvable() {
+            return moves != null;
+        }
+
+        /**
+         * Returns false if the search gave up at its budget before deciding.
+         * @return True if the result is exact
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * Returns a shortest move sequence.
+         * @return Moves of the solution, or null if none was found
+         */
+        public List<Move> getMoves() {
+            return moves;
+        }
+
+        /**
+         * Returns the number of expanded states.
+         * @return nodes
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Returns the time of the search.
+         * @return nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the expanded states per second.
+         * @return nodes per second
+         */
+        public double getNodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s in %d nodes, %.0f nodes/s", mode,
+                    moves == null ? (complete ? "unsolvable" : "gave up") : moves.size() + " moves",
+                    nodes, getNodesPerSecond());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package state;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of {@link Board#select}, including the listeners of the change.
+ */
+@Name("chess.Select")
+@Label("Select")
+@Description("Selection of a square on the board")
+@Category({"Chess Puzzle", "Game"})
+@StackTrace(false)
+class SelectEvent extends jdk.jfr.Event {
+    @Label("Square")
+    @Description("Selected square index")
+    int square;
+
+    @Label("Piece Type")
+    @Description("Type of the selected or moved piece, null if none")
+    String pieceType;
+
+    @Label("Moved")
+    boolean moved;
+
+    @Label("State")
+    @Description("Game state after the select")
+    String state;
+}
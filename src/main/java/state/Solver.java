@@ -0,0 +1,271 @@
+package state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the shortest solution of the puzzle without the GUI.
+ * <p>
+ * Uses breadth-first search over states packed into one int:
+ * the square of the i-th piece is stored in bits {@code 6 * i} to {@code 6 * i + 5}.
+ * The rules are the same as {@link GameEngine}: a piece may move only when
+ * another piece attacks it, and the puzzle is solved when any piece reaches the goal.
+ * <p>
+ * A solver is not thread-safe. Use one solver per thread.
+ */
+public class Solver {
+    /**
+     * Number of bits used for the square of a piece.
+     */
+    public static final int SQUARE_BITS = 6;
+    /**
+     * Maximum number of pieces a solver can handle.
+     */
+    public static final int MAX_PIECES = 3;
+
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+
+    private final PieceType[] types;
+    private final int goal;
+    private final int[] parent;
+    private final int[] queue;
+
+    /**
+     * Creates a new solver for the pieces of the default board.
+     */
+    public Solver() {
+        this(GameEngine.DEFAULT_TYPES, Bitboard.toPosition(GameEngine.DEFAULT_GOAL));
+    }
+
+    /**
+     * Creates a new solver for the specified piece types and goal.
+     * @param types Types of pieces, in the order of the piece list
+     * @param goal Goal position
+     */
+    public Solver(List<PieceType> types, Position goal) {
+        if (types.isEmpty() || types.size() > MAX_PIECES)
+            throw new IllegalArgumentException("Unsupported number of pieces: " + types.size());
+        if (Bitboard.square(goal) < 0)
+            throw new IllegalArgumentException("Goal is off board: " + goal);
+        this.types = types.toArray(new PieceType[0]);
+        this.goal = Bitboard.square(goal);
+        this.parent = new int[1 << (SQUARE_BITS * this.types.length)];
+        this.queue = new int[parent.length];
+        Arrays.fill(parent, -1);
+    }
+
+    /**
+     * Returns the types of the pieces.
+     * @param pieces Pieces on the board
+     * @return types of the pieces
+     */
+    public static List<PieceType> typesOf(List<Piece> pieces) {
+        var list = new ArrayList<PieceType>(pieces.size());
+        for (var p : pieces)
+            list.add(p.getType());
+        return list;
+    }
+
+    /**
+     * Packs the squares of the pieces into a state.
+     * @param pieces Pieces on the board
+     * @return Packed state
+     */
+    public static int encode(List<Piece> pieces) {
+        int state = 0;
+        for (int i = 0; i < pieces.size(); i++) {
+            int sq = Bitboard.square(pieces.get(i).getPosition());
+            if (sq < 0)
+                throw new IllegalArgumentException("Piece is off board: " + pieces.get(i).getPosition());
+            state |= sq << (SQUARE_BITS * i);
+        }
+        return state;
+    }
+
+    /**
+     * Returns the square of the i-th piece in the state.
+     * @param state Packed state
+     * @param index Piece index
+     * @return Square index
+     */
+    public static int squareOf(int state, int index) {
+        return (state >>> (SQUARE_BITS * index)) & SQUARE_MASK;
+    }
+
+    /**
+     * Returns the state with the i-th piece moved to the square.
+     * @param state Packed state
+     * @param index Piece index
+     * @param square Destination square
+     * @return Packed state
+     */
+    public static int withSquare(int state, int index, int square) {
+        int shift = SQUARE_BITS * index;
+        return (state & ~(SQUARE_MASK << shift)) | (square << shift);
+    }
+
+    /**
+     * Returns the mask of occupied squares.
+     * @param state Packed state
+     * @return Occupancy mask
+     */
+    public long occupancy(int state) {
+        long mask = 0L;
+        for (int i = 0; i < types.length; i++)
+            mask |= 1L << squareOf(state, i);
+        return mask;
+    }
+
+    /**
+     * Returns true if any piece is on the goal.
+     * @param state Packed state
+     * @return True if solved
+     */
+    public boolean isGoal(int state) {
+        return (occupancy(state) & (1L << goal)) != 0;
+    }
+
+    /**
+     * Returns true if the i-th piece is attacked by another piece.
+     * @param state Packed state
+     * @param index Piece index
+     * @return True if movable
+     */
+    public boolean isMovable(int state, int index) {
+        int sq = squareOf(state, index);
+        long occupancy = occupancy(state);
+        for (int i = 0; i < types.length; i++) {
+            if (i != index && (types[i].getAttacks(squareOf(state, i), occupancy) & (1L << sq)) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the mask of next squares of the i-th piece, ignoring movability.
+     * @param state Packed state
+     * @param index Piece index
+     * @return Mask of next squares
+     */
+    public long nextMoves(int state, int index) {
+        long occupancy = occupancy(state);
+        return types[index].getAttacks(squareOf(state, index), occupancy) & ~occupancy;
+    }
+
+    /**
+     * Solves the puzzle from the placement of the pieces.
+     * @param pieces Pieces on the board, of the solver's types
+     * @return Result of the search
+     */
+    public Result solve(List<Piece> pieces) {
+        if (pieces.size() != types.length)
+            throw new IllegalArgumentException("Expected " + types.length + " pieces, got " + pieces.size());
+        for (int i = 0; i < types.length; i++) {
+            if (pieces.get(i).getType() != types[i])
+                throw new IllegalArgumentException("Unexpected piece type at " + i + ": " + pieces.get(i).getType());
+        }
+        return solve(encode(pieces));
+    }
+
+    /**
+     * Solves the puzzle from the packed state.
+     * @param start Packed start state
+     * @return Result of the search
+     */
+    public Result solve(int start) {
+        if (Long.bitCount(occupancy(start)) != types.length)
+            throw new IllegalArgumentException("Pieces overlap");
+
+        int head = 0;
+        int tail = 0;
+        int found = -1;
+        parent[start] = start;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int state = queue[head++];
+            if (isGoal(state)) {
+                found = state;
+                break;
+            }
+            for (int i = 0; i < types.length; i++) {
+                if (!isMovable(state, i))
+                    continue;
+                long moves = nextMoves(state, i);
+                while (moves != 0) {
+                    int next = withSquare(state, i, Long.numberOfTrailingZeros(moves));
+                    moves &= moves - 1;
+                    if (parent[next] < 0) {
+                        parent[next] = state;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+
+        var result = found < 0 ? new Result(null, tail) : new Result(path(found), head);
+
+        // reset only visited entries
+        for (int i = 0; i < tail; i++)
+            parent[queue[i]] = -1;
+
+        return result;
+    }
+
+    private List<Move> path(int state) {
+        var moves = new ArrayList<Move>();
+        while (parent[state] != state) {
+            int prev = parent[state];
+            for (int i = 0; i < types.length; i++) {
+                int sq = squareOf(state, i);
+                if (sq != squareOf(prev, i)) {
+                    moves.add(new Move(i, Bitboard.toPosition(sq)));
+                    break;
+                }
+            }
+            state = prev;
+        }
+        Collections.reverse(moves);
+        return moves;
+    }
+
+    /**
+     * Result of a search.
+     */
+    public static final class Result {
+        private final List<Move> moves;
+        private final int exploredStates;
+
+        Result(List<Move> moves, int exploredStates) {
+            this.moves = moves == null ? null : Collections.unmodifiableList(moves);
+            this.exploredStates = exploredStates;
+        }
+
+        /**
+         * Returns true if the puzzle has a solution.
+         * @return True if solvable
+         */
+        public boolean isSolvable() {
+            return moves != null;
+        }
+
+        /**
+         * Returns a shortest move sequence.
+         * @return Moves of the solution, or null if not solvable
+         */
+        public List<Move> getMoves() {
+            return moves;
+        }
+
+        /**
+         * Returns the number of explored states.
+         * If the puzzle is not solvable, this is the number of all reachable states.
+         * @return Number of explored states
+         */
+        public int getExploredStates() {
+            return exploredStates;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Finds the shortest solution of the puzzle on boards of any {@link Geometry}.
+ * <p>
+ * Unlike {@link Solver}, which indexes arrays by state and is limited to 64 squares,
+ * states are packed into one long of {@link #squareBits()} bits per piece and visited states
+ * are kept in a hash map, so memory grows with the reachable states rather than with
+ * all placements. Moves are generated from the offsets of the piece types with bounds checks,
+ * and the rays of sliding pieces are walked square by square.
+ * The rules are the same as {@link GameEngine}.
+ * <p>
+ * A solver is not thread-safe. Use one solver per thread.
+ */
+public class SparseSolver {
+    private final Geometry geometry;
+    private final PieceType[] types;
+    private final int goal;
+    private final int bits;
+    private final long squareMask;
+    private final int[] targets;
+    /**
+     * State of which {@link #occupied} tells the occupancy.
+     */
+    private long current;
+    private final IntPredicate occupied = sq -> isOccupied(current, sq);
+
+    /**
+     * Creates a new solver.
+     * @param geometry Geometry of the board
+     * @param types Types of pieces, in the order of the piece list
+     * @param goal Goal square
+     */
+    public SparseSolver(Geometry geometry, List<PieceType> types, int goal) {
+        this.bits = Integer.SIZE - Integer.numberOfLeadingZeros(geometry.squares() - 1);
+        if (types.isEmpty() || types.size() * bits > Long.SIZE - 1)
+            throw new IllegalArgumentException("Unsupported number of pieces: " + types.size());
+        if (goal < 0 || goal >= geometry.squares())
+            throw new IllegalArgumentException("Goal is off board: " + goal);
+        this.geometry = geometry;
+        this.types = types.toArray(new PieceType[0]);
+        this.goal = goal;
+        this.squareMask = (1L << bits) - 1;
+        int max = 0;
+        for (var t : this.types)
+            max = Math.max(max, t.getMaxTargets(geometry));
+        this.targets = new int[max];
+    }
+
+    /**
+     * Gets the geometry of the board.
+     * @return geometry
+     */
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Gets the types of the pieces.
+     * @return piece types, in the order of the piece list
+     */
+    public List<PieceType> getTypes() {
+        return List.of(types);
+    }
+
+    /**
+     * Gets the goal square.
+     * @return goal
+     */
+    public int getGoal() {
+        return goal;
+    }
+
+    /**
+     * Returns the number of bits used for the square of a piece.
+     * @return bits per piece
+     */
+    public int squareBits() {
+        return bits;
+    }
+
+    /**
+     * Packs the squares of the pieces into a state.
+     * @param squares Square of each piece
+     * @return packed state
+     */
+    public long encode(int[] squares) {
+        if (squares.length != types.length)
+            throw new IllegalArgumentException("Expected " + types.length + " squares, got " + squares.length);
+        long state = 0;
+        for (int i = 0; i < squares.length; i++) {
+            if (squares[i] < 0 || squares[i] >= geometry.squares())
+                throw new IllegalArgumentException("Square is off board: " + squares[i]);
+            state |= (long) squares[i] << (bits * i);
+        }
+        return state;
+    }
+
+    /**
+     * Returns the square of the piece in the state.
+     * @param state Packed state
+     * @param index Index of the piece
+     * @return square
+     */
+    public int squareOf(long state, int index) {
+        return (int) ((state >>> (bits * index)) & squareMask);
+    }
+
+    /**
+     * Returns the state with the piece moved to the square.
+     */
+    long withSquare(long state, int index, int square) {
+        int shift = bits * index;
+        return (state & ~(squareMask << shift)) | ((long) square << shift);
+    }
+
+    /**
+     * Returns true if any piece of the state is on the square.
+     */
+    boolean isOccupied(long state, int square) {
+        for (int i = 0; i < types.length; i++) {
+            if (squareOf(state, i) == square)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if any piece is on the goal.
+     * @param state Packed state
+     * @return True if solved
+     */
+    public boolean isGoal(long state) {
+        return isOccupied(state, goal);
+    }
+
+    /**
+     * Returns true if the piece is attacked by another piece.
+     * @param state Packed state
+     * @param index Index of the piece
+     * @return True if movable
+     */
+    public boolean isMovable(long state, int index) {
+        int sq = squareOf(state, index);
+        current = state;
+        for (int i = 0; i < types.length; i++) {
+            if (i != index && types[i].attacks(geometry, squareOf(state, i), sq, occupied))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Solves the puzzle from the squares of the pieces.
+     * @param squares Square of each piece
+     * @return Result of the search
+     */
+    public Solver.Result solve(int[] squares) {
+        return solve(encode(squares));
+    }
+
+    /**
+     * Solves the puzzle from the packed state.
+     * @param start Packed start state
+     * @return Result of the search
+     */
+    public Solver.Result solve(long start) {
+        for (int i = 0; i < types.length; i++) {
+            for (int j = i + 1; j < types.length; j++) {
+                if (squareOf(start, i) == squareOf(start, j))
+                    throw new IllegalArgumentException("Pieces overlap");
+            }
+        }
+
+        var parent = new LongLongHashMap(1024);
+        var queue = new long[1024];
+        int head = 0;
+        int tail = 0;
+        long found = -1;
+        parent.putIfAbsent(start, start);
+        queue[tail++] = start;
+
+        while (head < tail) {
+            long state = queue[head++];
+            if (isGoal(state)) {
+                found = state;
+                break;
+            }
+            for (int i = 0; i < types.length; i++) {
+                if (!isMovable(state, i))
+                    continue;
+                current = state;
+                int count = types[i].getTargets(geometry, squareOf(state, i), occupied, targets);
+                for (int t = 0; t < count; t++) {
+                    if (isOccupied(state, targets[t]))
+                        continue;
+                    long next = withSquare(state, i, targets[t]);
+                    if (parent.putIfAbsent(next, state)) {
+                        if (tail == queue.length)
+                            queue = Arrays.copyOf(queue, queue.length * 2);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+
+        return found < 0 ? new Solver.Result(null, tail) : new Solver.Result(path(parent, found), head);
+    }
+
+    private List<Move> path(LongLongHashMap parent, long state) {
+        var moves = new ArrayList<Move>();
+        long prev;
+        while ((prev = parent.get(state)) != state) {
+            for (int i = 0; i < types.length; i++) {
+                int sq = squareOf(state, i);
+                if (sq != squareOf(prev, i)) {
+                    moves.add(new Move(i, Position.of(geometry.row(sq), geometry.col(sq))));
+                    break;
+                }
+            }
+            state = prev;
+        }
+        Collections.reverse(moves);
+        return moves;
+    }
+}
@@ -0,0 +1,181 @@
+package state;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Solves every legal start placement of the pieces for one or more goals.
+ * <p>
+ * Goals are split across a {@link ForkJoinPool}. Each goal is solved for all
+ * start placements at once by a retrograde {@link DistanceTable} pass.
+ * A start is legal if the pieces are on distinct squares and none is on the goal.
+ */
+public final class Sweep {
+
+    private Sweep() {
+    }
+
+    /**
+     * Returns all squares of the board as goals.
+     * @return list of positions
+     */
+    public static List<Position> allSquares() {
+        return Bitboard.toPositions(-1L >>> (Long.SIZE - Bitboard.SQUARES));
+    }
+
+    /**
+     * Solves all start placements for the goals on the common pool.
+     * @param types Types of pieces, in the order of the piece list
+     * @param goals Goal positions
+     * @return report of the sweep
+     */
+    public static Report run(List<PieceType> types, List<Position> goals) {
+        return run(types, goals, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Solves all start placements for the goals on the pool.
+     * @param types Types of pieces, in the order of the piece list
+     * @param goals Goal positions
+     * @param pool Pool to run on
+     * @return report of the sweep
+     */
+    public static Report run(List<PieceType> types, List<Position> goals, ForkJoinPool pool) {
+        var tables = pool.invoke(new GoalTask(List.copyOf(types), List.copyOf(goals), 0, goals.size()));
+        return new Report(tables);
+    }
+
+    /**
+     * Computes the tables of a range of goals. Tasks are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static final class GoalTask extends RecursiveTask<List<DistanceTable>> {
+        private final List<PieceType> types;
+        private final List<Position> goals;
+        private final int from;
+        private final int to;
+
+        GoalTask(List<PieceType> types, List<Position> goals, int from, int to) {
+            this.types = types;
+            this.goals = goals;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<DistanceTable> compute() {
+            if (to - from == 1)
+                return List.of(DistanceTable.compute(types, goals.get(from)));
+            if (to <= from)
+                return List.of();
+
+            int mid = (from + to) >>> 1;
+            var left = new GoalTask(types, goals, from, mid);
+            var right = new GoalTask(types, goals, mid, to);
+            left.fork();
+            var list = new ArrayList<>(right.compute());
+            list.addAll(0, left.join());
+            return list;
+        }
+    }
+
+    /**
+     * Result of a sweep: optimal length and solvability of every legal start.
+     */
+    public static final class Report {
+        private final List<DistanceTable> tables;
+
+        private Report(List<DistanceTable> tables) {
+            this.tables = Collections.unmodifiableList(tables);
+        }
+
+        /**
+         * Returns the distance table of each goal, in the order of the goals.
+         * @return list of tables
+         */
+        public List<DistanceTable> getTables() {
+            return tables;
+        }
+
+        /**
+         * Returns the number of legal starts over all goals.
+         * @return number of starts
+         */
+        public long count() {
+            long count = 0;
+            for (var table : tables) {
+                int n = table.getTypes().size();
+                for (int s = 0; s < 1 << (Solver.SQUARE_BITS * n); s++) {
+                    if (isLegalStart(table, s))
+                        count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Returns the number of solvable legal starts over all goals.
+         * @return number of solvable starts
+         */
+        public long countSolvable() {
+            long count = 0;
+            for (var table : tables) {
+                int n = table.getTypes().size();
+                for (int s = 0; s < 1 << (Solver.SQUARE_BITS * n); s++) {
+                    if (isLegalStart(table, s) && table.distance(s) != DistanceTable.UNSOLVABLE)
+                        count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Writes one CSV row per legal start:
+         * goal, square of each piece, optimal number of moves (-1 if unsolvable), solvability.
+         * @param out Destination
+         * @throws IOException if writing fails
+         */
+        public void writeCsv(Writer out) throws IOException {
+            if (tables.isEmpty())
+                return;
+            var types = tables.get(0).getTypes();
+            var sb = new StringBuilder("goal");
+            for (var t : types)
+                sb.append(',').append(t.name().toLowerCase());
+            out.write(sb.append(",moves,solvable\n").toString());
+
+            for (var table : tables) {
+                int n = table.getTypes().size();
+                String goal = Bitboard.name(Bitboard.square(table.getGoal()));
+                for (int s = 0; s < 1 << (Solver.SQUARE_BITS * n); s++) {
+                    if (!isLegalStart(table, s))
+                        continue;
+                    sb.setLength(0);
+                    sb.append(goal);
+                    for (int i = 0; i < n; i++)
+                        sb.append(',').append(Bitboard.name(Solver.squareOf(s, i)));
+                    int d = table.distance(s);
+                    sb.append(',').append(d).append(',').append(d != DistanceTable.UNSOLVABLE).append('\n');
+                    out.write(sb.toString());
+                }
+            }
+        }
+
+        private static boolean isLegalStart(DistanceTable table, int state) {
+            int goal = Bitboard.square(table.getGoal());
+            long occupied = 0L;
+            for (int i = 0; i < table.getTypes().size(); i++) {
+                int sq = Solver.squareOf(state, i);
+                if (sq == goal || (occupied & (1L << sq)) != 0)
+                    return false;
+                occupied |= 1L << sq;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package state;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size table of search results keyed by {@link Zobrist} keys.
+ * <p>
+ * Entries are two longs in one primitive array: the key, and the value packed with
+ * its depth and the generation of the search that stored it. Four consecutive entries
+ * form a bucket of one cache line. When a bucket is full, an entry of an older
+ * generation is replaced first, then the entry of the smallest depth, so results
+ * that were expensive to compute survive. Memory never grows after construction
+ * and no objects are allocated.
+ * <p>
+ * A table is not thread-safe.
+ */
+public final class TranspositionTable {
+    /**
+     * Value returned for keys that are not in the table.
+     */
+    public static final long MISS = -1L;
+    /**
+     * Largest value that can be stored.
+     */
+    public static final long MAX_VALUE = (1L << 48) - 1;
+    /**
+     * Largest depth that can be stored.
+     */
+    public static final int MAX_DEPTH = 0xFF;
+
+    private static final int BUCKET = 4;
+    private static final long VALUE_MASK = MAX_VALUE;
+    /**
+     * Stored instead of a key of 0, which marks empty slots.
+     */
+    private static final long ZERO_KEY = 0x5A5A5A5A5A5A5A5AL;
+
+    private final long[] table;
+    private final int bucketMask;
+    private int generation;
+    private int size;
+
+    /**
+     * Creates a new table.
+     * @param entries Number of entries, rounded up to a power of two of at least one bucket
+     */
+    public TranspositionTable(int entries) {
+        if (entries <= 0 || entries > 1 << 29)
+            throw new IllegalArgumentException("Invalid number of entries: " + entries);
+        int capacity = Math.max(BUCKET, Integer.highestOneBit(entries - 1) << 1);
+        this.table = new long[capacity * 2];
+        this.bucketMask = capacity / BUCKET - 1;
+    }
+
+    /**
+     * Creates a table of at most the specified size.
+     * @param megabytes Size of the table
+     * @return new table
+     */
+    public static TranspositionTable ofMegabytes(int megabytes) {
+        // 16 bytes per entry
+        return new TranspositionTable((int) Math.min(1 << 29, Long.highestOneBit(megabytes) << 16));
+    }
+
+    private int bucket(long key) {
+        // fold the high bits in, so keys differing only there spread over buckets
+        return (int) (key >>> 32 ^ key) & bucketMask;
+    }
+
+    private static long stored(long key) {
+        return key == 0 ? ZERO_KEY : key;
+    }
+
+    /**
+     * Returns the value of the key.
+     * @param key Zobrist key
+     * @return stored value, or {@link #MISS}
+     */
+    public long get(long key) {
+        int i = lookup(key);
+        return i < 0 ? MISS : table[i + 1] & VALUE_MASK;
+    }
+
+    /**
+     * Returns the depth of the key.
+     * @param key Zobrist key
+     * @return stored depth, or -1 if missing
+     */
+    public int getDepth(long key) {
+        int i = lookup(key);
+        return i < 0 ? -1 : (int) (table[i + 1] >>> 48) & MAX_DEPTH;
+    }
+
+    private int lookup(long key) {
+        long k = stored(key);
+        int base = bucket(key) * BUCKET * 2;
+        for (int i = base; i < base + BUCKET * 2; i += 2) {
+            if (table[i] == k)
+                return i;
+            if (table[i] == 0)
+                return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a value, replacing the entry of the key or the least valuable entry of its bucket.
+     * @param key Zobrist key
+     * @param value Value from 0 to {@link #MAX_VALUE}
+     * @param depth Cost of computing the value from 0 to {@link #MAX_DEPTH}, higher is kept longer
+     */
+    public void put(long key, long value, int depth) {
+        if (value < 0 || value > MAX_VALUE)
+            throw new IllegalArgumentException("Value out of range: " + value);
+        long k = stored(key);
+        long data = (long) (generation & 0xFF) << 56 | (long) Math.min(Math.max(depth, 0), MAX_DEPTH) << 48 | value;
+        int base = bucket(key) * BUCKET * 2;
+        int victim = base;
+        int victimScore = Integer.MAX_VALUE;
+        for (int i = base; i < base + BUCKET * 2; i += 2) {
+            if (table[i] == k || table[i] == 0) {
+                if (table[i] == 0)
+                    size++;
+                table[i] = k;
+                table[i + 1] = data;
+                return;
+            }
+            int score = score(table[i + 1]);
+            if (score < victimScore) {
+                victim = i;
+                victimScore = score;
+            }
+        }
+        table[victim] = k;
+        table[victim + 1] = data;
+    }
+
+    /**
+     * Worth of keeping an entry: its depth, or less than any depth if it is from an older generation.
+     */
+    private int score(long data) {
+        int depth = (int) (data >>> 48) & MAX_DEPTH;
+        return (int) (data >>> 56) == (generation & 0xFF) ? depth : depth - MAX_DEPTH - 1;
+    }
+
+    /**
+     * Starts a new search. Entries of earlier searches stay readable but are replaced first.
+     */
+    public void newSearch() {
+        generation++;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of used entries.
+     * @return number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of entries the table can hold.
+     * @return capacity
+     */
+    public int capacity() {
+        return table.length / 2;
+    }
+}
@@ -0,0 +1,21 @@
+package state;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of {@link GameEngine#updateState}, the check for the goal and for movable pieces.
+ */
+@Name("chess.UpdateState")
+@Label("Update State")
+@Description("Check of the game state after a move")
+@Category({"Chess Puzzle", "Game"})
+@StackTrace(false)
+class UpdateStateEvent extends jdk.jfr.Event {
+    @Label("State")
+    @Description("Game state after the check")
+    String state;
+}
@@ -0,0 +1,84 @@
+package state;
+
+/**
+ * Zobrist keys of piece placements.
+ * <p>
+ * The key of a placement is the XOR of one random key per piece and square,
+ * so moving a piece updates the key with two XORs instead of rehashing all pieces.
+ * Pieces are identified by their index, as in the packed states of the solvers.
+ * Keys are derived from the piece and square by a mixing function, so boards of
+ * any {@link Geometry} are supported; keys of the default board are precomputed.
+ */
+public final class Zobrist {
+    private static final int CACHED_PIECES = 8;
+    private static final long[] KEYS = new long[CACHED_PIECES * Bitboard.SQUARES];
+
+    static {
+        for (int piece = 0; piece < CACHED_PIECES; piece++) {
+            for (int sq = 0; sq < Bitboard.SQUARES; sq++)
+                KEYS[piece * Bitboard.SQUARES + sq] = mix(piece, sq);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of a piece on a square.
+     * @param piece Index of the piece
+     * @param square Square of the piece
+     * @return key
+     */
+    public static long key(int piece, int square) {
+        if (piece < CACHED_PIECES && square < Bitboard.SQUARES)
+            return KEYS[piece * Bitboard.SQUARES + square];
+        return mix(piece, square);
+    }
+
+    /**
+     * Returns the key of a placement.
+     * @param squares Square of each piece
+     * @return key
+     */
+    public static long of(int[] squares) {
+        long key = 0L;
+        for (int i = 0; i < squares.length; i++)
+            key ^= key(i, squares[i]);
+        return key;
+    }
+
+    /**
+     * Returns the key of a state packed as in {@link Solver}.
+     * @param state Packed state
+     * @param pieces Number of pieces
+     * @return key
+     */
+    public static long ofState(int state, int pieces) {
+        long key = 0L;
+        for (int i = 0; i < pieces; i++)
+            key ^= key(i, Solver.squareOf(state, i));
+        return key;
+    }
+
+    /**
+     * Returns the key after moving a piece.
+     * @param key Key before the move
+     * @param piece Index of the piece
+     * @param from Previous square
+     * @param to New square
+     * @return key after the move
+     */
+    public static long move(long key, int piece, int from, int to) {
+        return key ^ key(piece, from) ^ key(piece, to);
+    }
+
+    /**
+     * SplitMix64 finalizer of the piece and square.
+     */
+    private static long mix(int piece, int square) {
+        long z = ((long) piece << 32 | square) * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,220 @@
+package util;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Leaderboard in a compact binary file, read through a memory map without parsing.
+ * <p>
+ * Binary format (big-endian):
+ * <pre>
+ * int    magic ("CPSB")
+ * int    version
+ * int    number of records n
+ * int    size of the name pool in bytes
+ * n *    record, best score first:
+ *   int    score
+ *   int    offset of the name in the pool
+ *   long   timestamp in epoch milliseconds
+ * byte[] name pool, each name as an unsigned short length and UTF-8 bytes
+ * </pre>
+ * Records have a fixed size, so the entry at a rank is found in O(1)
+ * and the rank of a score in O(log n).
+ * Equal names share one entry of the pool.
+ */
+public final class BinaryScoreFile {
+    private static final int MAGIC = 0x43505342;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 16;
+
+    /**
+     * Order of the records: higher score first, earlier result first among equal scores.
+     */
+    public static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::getScore).reversed()
+            .thenComparingLong(Entry::getTimestamp);
+
+    /**
+     * Result of a game.
+     */
+    @Value
+    public static class Entry {
+        String name;
+        int score;
+        long timestamp;
+    }
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int poolOffset;
+
+    private BinaryScoreFile(ByteBuffer buffer, int size, int poolOffset) {
+        this.buffer = buffer;
+        this.size = size;
+        this.poolOffset = poolOffset;
+    }
+
+    /**
+     * Memory-maps a score file.
+     * @param path File to open
+     * @return opened file
+     * @throws IOException if the file cannot be read or is not a score file
+     */
+    public static BinaryScoreFile open(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC)
+                throw new IOException("Not a score file: " + path);
+            if (buffer.getInt() != VERSION)
+                throw new IOException("Unsupported score file version: " + path);
+            int size = buffer.getInt();
+            int poolSize = buffer.getInt();
+            long poolOffset = HEADER_BYTES + (long) size * RECORD_BYTES;
+            if (size < 0 || poolSize < 0 || poolOffset + poolSize != buffer.limit())
+                throw new IOException("Corrupt score file: " + path);
+            return new BinaryScoreFile(buffer, size, (int) poolOffset);
+        }
+    }
+
+    /**
+     * Writes entries to a score file, sorted by {@link #ORDER}.
+     * @param path File to write
+     * @param entries Entries in any order
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, List<Entry> entries) throws IOException {
+        var sorted = new ArrayList<>(entries);
+        sorted.sort(ORDER);
+
+        var offsets = new HashMap<String, Integer>();
+        var names = new ArrayList<byte[]>();
+        var records = ByteBuffer.allocate(sorted.size() * RECORD_BYTES);
+        int poolSize = 0;
+        for (var e : sorted) {
+            var offset = offsets.get(e.getName());
+            if (offset == null) {
+                var bytes = e.getName().getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > 0xFFFF)
+                    throw new IllegalArgumentException("Name is too long: " + e.getName());
+                offset = poolSize;
+                offsets.put(e.getName(), offset);
+                names.add(bytes);
+                poolSize += 2 + bytes.length;
+            }
+            records.putInt(e.getScore()).putInt(offset).putLong(e.getTimestamp());
+        }
+
+        var pool = ByteBuffer.allocate(poolSize);
+        for (var bytes : names)
+            pool.putShort((short) bytes.length).put(bytes);
+        var header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(sorted.size()).putInt(poolSize);
+
+        header.flip();
+        records.flip();
+        pool.flip();
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffers = new ByteBuffer[]{header, records, pool};
+            long remaining = HEADER_BYTES + records.limit() + poolSize;
+            while (remaining > 0)
+                remaining -= channel.write(buffers);
+        }
+    }
+
+    /**
+     * Returns the number of entries.
+     * @return number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    private int record(int rank) {
+        if (rank < 0 || rank >= size)
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + size);
+        return HEADER_BYTES + rank * RECORD_BYTES;
+    }
+
+    /**
+     * Returns the score at the rank.
+     * @param rank Rank from 0
+     * @return score
+     */
+    public int getScore(int rank) {
+        return buffer.getInt(record(rank));
+    }
+
+    /**
+     * Returns the player name at the rank.
+     * @param rank Rank from 0
+     * @return name
+     */
+    public String getName(int rank) {
+        int offset = poolOffset + buffer.getInt(record(rank) + 4);
+        int length = Short.toUnsignedInt(buffer.getShort(offset));
+        var bytes = new byte[length];
+        buffer.duplicate().position(offset + 2).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the timestamp at the rank.
+     * @param rank Rank from 0
+     * @return epoch milliseconds
+     */
+    public long getTimestamp(int rank) {
+        return buffer.getLong(record(rank) + 8);
+    }
+
+    /**
+     * Returns the entry at the rank.
+     * @param rank Rank from 0
+     * @return entry
+     */
+    public Entry get(int rank) {
+        return new Entry(getName(rank), getScore(rank), getTimestamp(rank));
+    }
+
+    /**
+     * Returns the best entries.
+     * @param n Maximum number of entries
+     * @return up to n entries, best first
+     */
+    public List<Entry> top(int n) {
+        int count = Math.min(n, size);
+        var list = new ArrayList<Entry>(count);
+        for (int i = 0; i < count; i++)
+            list.add(get(i));
+        return list;
+    }
+
+    /**
+     * Returns the rank a new result with the score would get,
+     * i.e. the number of entries with a higher score.
+     * @param score Score to look up
+     * @return rank from 0
+     */
+    public int rankOf(int score) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getScore(mid) > score)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
@@ -1,19 +1,59 @@
 package util;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Provides I/O for Json.
+ * <p>
+ * Durations and bytes of stream reads and writes are recorded in {@link Metrics#DEFAULT}
+ * and as flight recorder events.
+ * A lazy read lasts until its iterator or stream is closed.
  */
 public class JsonIO {
     private static final Gson gson = new Gson();
+    private static final Histogram READ_TIME = Metrics.DEFAULT.histogram("chess_json_read_seconds",
+            "Duration of json stream reads", 1e-9);
+    private static final LongAdder READ_BYTES = Metrics.DEFAULT.counter("chess_json_read_bytes_total",
+            "Bytes read from json streams");
+    private static final Histogram WRITE_TIME = Metrics.DEFAULT.histogram("chess_json_write_seconds",
+            "Duration of json stream writes", 1e-9);
+    private static final LongAdder WRITE_BYTES = Metrics.DEFAULT.counter("chess_json_write_bytes_total",
+            "Bytes written to json streams");
+
+    /**
+     * Converts an object to a single line of json.
+     * @param item object to convert
+     * @return json without line breaks
+     */
+    public static String toJson(Object item) {
+        return gson.toJson(item);
+    }
+
+    /**
+     * Converts json to an object.
+     * @param json json of an object
+     * @param clazz class of T
+     * @param <T> Object type to which json is converted
+     * @return converted object
+     */
+    public static <T> T fromJson(String json, Class<T> clazz) {
+        return gson.fromJson(json, clazz);
+    }
 
     /**
      * Reads Json file and returns list of objects of the specified type.
@@ -24,7 +64,11 @@ public class JsonIO {
      * @throws IOException
      */
     public static <T> List<T> readJsonStream(InputStream in, Class<T> clazz) throws IOException {
-        var reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        var event = new JsonIOEvent();
+        event.begin();
+        long start = System.nanoTime();
+        var counting = new CountingInputStream(in);
+        var reader = new JsonReader(new InputStreamReader(counting, StandardCharsets.UTF_8));
         List<T> list = new ArrayList<>();
         reader.beginArray();
         while (reader.hasNext()) {
@@ -33,9 +77,47 @@ public class JsonIO {
         }
         reader.endArray();
         reader.close();
+        READ_TIME.record(System.nanoTime() - start);
+        READ_BYTES.add(counting.count);
+        commit(event, "read", counting.count, list.size());
         return list;
     }
 
+    /**
+     * Reads Json file lazily. Objects are parsed one by one as the iterator advances,
+     * so arbitrarily large files can be read in constant memory.
+     * <p>
+     * The input is closed when the iterator is exhausted, fails or is closed;
+     * use it in try-with-resources if it may not be read to the end.
+     * I/O errors while iterating are thrown as {@link UncheckedIOException},
+     * and invalid items as {@link JsonParseException} naming the index of the item.
+     * @param in source of json
+     * @param clazz class of T
+     * @param <T> Object type to which json entry is converted
+     * @return iterator over objects of type clazz
+     * @throws IOException if the start of the array cannot be read
+     */
+    public static <T> CloseableIterator<T> iterateJsonStream(InputStream in, Class<T> clazz) throws IOException {
+        return new JsonArrayIterator<>(new CountingInputStream(in), clazz);
+    }
+
+    /**
+     * Reads Json file lazily as a sequential stream.
+     * <p>
+     * The input is closed when the stream is closed, so use it in try-with-resources.
+     * I/O errors while streaming are thrown as {@link UncheckedIOException}.
+     * @param in source of json
+     * @param clazz class of T
+     * @param <T> Object type to which json entry is converted
+     * @return stream of objects of type clazz
+     * @throws IOException if the start of the array cannot be read
+     */
+    public static <T> Stream<T> streamJsonStream(InputStream in, Class<T> clazz) throws IOException {
+        var iterator = new JsonArrayIterator<>(new CountingInputStream(in), clazz);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
     /**
      * Write list of objects to a json file.
      * @param out destination of json
@@ -43,13 +125,193 @@ public class JsonIO {
      * @throws IOException
      */
     public static void writeJsonStream(OutputStream out, List<?> list) throws IOException {
-        JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
-        writer.setIndent("  ");
-        writer.beginArray();
-        for (var item : list) {
-            gson.toJson(item, item.getClass(), writer);
-        }
-        writer.endArray();
-        writer.close();
+        writeJsonStream(out, list.iterator());
+    }
+
+    /**
+     * Write objects of a stream to a json file one by one.
+     * @param out destination of json
+     * @param stream objects to be stored in json
+     * @throws IOException
+     */
+    public static void writeJsonStream(OutputStream out, Stream<?> stream) throws IOException {
+        writeJsonStream(out, stream.iterator());
+    }
+
+    /**
+     * Write objects of an iterator to a json file one by one.
+     * The output is closed afterwards.
+     * @param out destination of json
+     * @param iterator objects to be stored in json
+     * @throws IOException
+     */
+    public static void writeJsonStream(OutputStream out, Iterator<?> iterator) throws IOException {
+        var event = new JsonIOEvent();
+        event.begin();
+        long start = System.nanoTime();
+        var counting = new CountingOutputStream(out);
+        int items = 0;
+        try (var writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(counting, StandardCharsets.UTF_8)))) {
+            writer.setIndent("  ");
+            writer.beginArray();
+            while (iterator.hasNext()) {
+                var item = iterator.next();
+                gson.toJson(item, item.getClass(), writer);
+                items++;
+            }
+            writer.endArray();
+        }
+        WRITE_TIME.record(System.nanoTime() - start);
+        WRITE_BYTES.add(counting.count);
+        commit(event, "write", counting.count, items);
+    }
+
+    private static void commit(JsonIOEvent event, String operation, long bytes, int items) {
+        if (!event.shouldCommit())
+            return;
+        event.operation = operation;
+        event.bytes = bytes;
+        event.items = items;
+        event.commit();
+    }
+
+    /**
+     * Counts the bytes read through it.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                count += n;
+            return n;
+        }
+    }
+
+    /**
+     * Counts the bytes written through it.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * Pulls objects of a json array from the reader.
+     */
+    /**
+     * Iterator that holds a resource until it is exhausted or closed.
+     * @param <T> type of the elements
+     */
+    public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+        /**
+         * Releases the resource. Later calls of {@link #hasNext()} return false.
+         * @throws UncheckedIOException if closing fails
+         */
+        @Override
+        void close();
+    }
+
+    private static class JsonArrayIterator<T> implements CloseableIterator<T> {
+        private final long start = System.nanoTime();
+        private final JsonIOEvent event = new JsonIOEvent();
+        private final CountingInputStream in;
+        private int items;
+        private final JsonReader reader;
+        private final Class<T> clazz;
+        private boolean closed;
+
+        JsonArrayIterator(CountingInputStream in, Class<T> clazz) throws IOException {
+            event.begin();
+            this.in = in;
+            this.reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            this.clazz = clazz;
+            try {
+                reader.beginArray();
+            } catch (IOException | RuntimeException e) {
+                reader.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed)
+                return false;
+            try {
+                if (reader.hasNext())
+                    return true;
+                reader.endArray();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            try {
+                T item = gson.fromJson(reader, clazz);
+                items++;
+                return item;
+            } catch (JsonParseException e) {
+                var failure = new JsonParseException("Invalid item " + items + " of a json array of "
+                        + clazz.getSimpleName(), e);
+                try {
+                    close();
+                } catch (UncheckedIOException closing) {
+                    failure.addSuppressed(closing);
+                }
+                throw failure;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            READ_TIME.record(System.nanoTime() - start);
+            READ_BYTES.add(in.count);
+            commit(event, "read", in.count, items);
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
     }
 }
@@ -0,0 +1,31 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a json stream read or write of {@link JsonIO}.
+ * A lazy read lasts until its iterator or stream is closed.
+ */
+@Name("chess.JsonIO")
+@Label("Json I/O")
+@Description("Read or write of a json stream")
+@Category({"Chess Puzzle", "I/O"})
+@StackTrace(false)
+class JsonIOEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    @Description("read or write")
+    String operation;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Items")
+    @Description("Number of json objects")
+    int items;
+}
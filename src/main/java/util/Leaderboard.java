@@ -0,0 +1,150 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Best results of many games, safe for concurrent submitters.
+ * <p>
+ * Results are kept in a bounded heap whose head is the worst retained result,
+ * so an insertion costs O(log K). Once the board is full, results that are
+ * not better than the cutoff are rejected without locking.
+ * Among equal results the earlier one ranks higher.
+ * <p>
+ * Listeners receive only the change of each accepted result.
+ *
+ * @param <T> type of the results
+ */
+public class Leaderboard<T> {
+    /**
+     * Receives changes of the leaderboard.
+     *
+     * @param <T> type of the results
+     */
+    @FunctionalInterface
+    public interface Listener<T> {
+        /**
+         * Called with the lock held when a result enters the board,
+         * so changes arrive in the order they happened.
+         * @param added Accepted result
+         * @param evicted Result that dropped off the board, or null if the board was not full
+         */
+        void changed(T added, T evicted);
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        final long seq;
+
+        Entry(T item, long seq) {
+            this.item = item;
+            this.seq = seq;
+        }
+    }
+
+    private final int capacity;
+    private final Comparator<? super T> order;
+    private final Comparator<Entry<T>> ranking;
+    private final PriorityQueue<Entry<T>> heap;
+    private final List<Listener<T>> listeners = new CopyOnWriteArrayList<>();
+    private long seq;
+    /**
+     * Worst retained result once the board is full, null before.
+     */
+    private volatile T cutoff;
+
+    /**
+     * Creates a new leaderboard.
+     * @param capacity Number of results to keep
+     * @param order Order of results, best first
+     */
+    public Leaderboard(int capacity, Comparator<? super T> order) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive");
+        this.capacity = capacity;
+        this.order = order;
+        this.ranking = Comparator.<Entry<T>, T>comparing(e -> e.item, order).thenComparingLong(e -> e.seq);
+        this.heap = new PriorityQueue<>(capacity + 1, ranking.reversed());
+    }
+
+    /**
+     * Returns true if the result would currently enter the board. Does not lock.
+     * @param item Result to check
+     * @return true if the result is better than the cutoff or the board is not full
+     */
+    public boolean wouldAccept(T item) {
+        var c = cutoff;
+        return c == null || order.compare(item, c) < 0;
+    }
+
+    /**
+     * Submits a result.
+     * @param item Result to submit
+     * @return true if the result entered the board
+     */
+    public boolean offer(T item) {
+        if (!wouldAccept(item))
+            return false;
+        synchronized (this) {
+            if (!wouldAccept(item))
+                return false;
+            heap.add(new Entry<>(item, seq++));
+            T evicted = null;
+            if (heap.size() > capacity)
+                evicted = heap.poll().item;
+            if (heap.size() == capacity)
+                cutoff = heap.peek().item;
+            for (var l : listeners)
+                l.changed(item, evicted);
+            return true;
+        }
+    }
+
+    /**
+     * Returns the retained results.
+     * @return copy of the results, best first
+     */
+    public synchronized List<T> snapshot() {
+        var entries = new ArrayList<>(heap);
+        entries.sort(ranking);
+        var list = new ArrayList<T>(entries.size());
+        for (var e : entries)
+            list.add(e.item);
+        return list;
+    }
+
+    /**
+     * Returns the number of retained results.
+     * @return number of results
+     */
+    public synchronized int size() {
+        return heap.size();
+    }
+
+    /**
+     * Returns the number of results the board keeps.
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Adds a listener.
+     * @param listener Listener to add
+     */
+    public void addListener(Listener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     * @param listener Listener to remove
+     */
+    public void removeListener(Listener<T> listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,276 @@
+package util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of counters and histograms.
+ * <p>
+ * Instruments are created once, e.g. in static fields, and updated without locks.
+ * The registry is read in the Prometheus text format by {@link #writePrometheus},
+ * and over JMX as one attribute per counter and per statistic of a histogram.
+ */
+@Slf4j
+public final class Metrics implements DynamicMBean {
+    /**
+     * Registry of the application.
+     */
+    public static final Metrics DEFAULT = new Metrics();
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /**
+     * Instruments of one name, by labels.
+     */
+    private static final class Family {
+        final String help;
+        final boolean summary;
+        /**
+         * Factor from recorded values to exported values, e.g. 1e-9 from nanoseconds to seconds.
+         */
+        final double scale;
+        final Map<String, Object> instruments = new ConcurrentSkipListMap<>();
+
+        Family(String help, boolean summary, double scale) {
+            this.help = help;
+            this.summary = summary;
+            this.scale = scale;
+        }
+    }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Returns a counter, creating it on first use.
+     * @param name Metric name, e.g. "chess_moves_total"
+     * @param help Description of the metric
+     * @param labels Label names and values in pairs
+     * @return counter
+     */
+    public LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder) instrument(name, help, false, 1, labels);
+    }
+
+    /**
+     * Returns a histogram, creating it on first use.
+     * @param name Metric name, e.g. "chess_select_seconds"
+     * @param help Description of the metric
+     * @param scale Factor from recorded values to exported values
+     * @param labels Label names and values in pairs
+     * @return histogram
+     */
+    public Histogram histogram(String name, String help, double scale, String... labels) {
+        return (Histogram) instrument(name, help, true, scale, labels);
+    }
+
+    private Object instrument(String name, String help, boolean summary, double scale, String[] labels) {
+        if (labels.length % 2 != 0)
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        var family = families.computeIfAbsent(name, k -> new Family(help, summary, scale));
+        if (family.summary != summary)
+            throw new IllegalArgumentException("Metric " + name + " has another type");
+        var sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (sb.length() > 0)
+                sb.append(',');
+            sb.append(labels[i]).append("=\"").append(labels[i + 1].replace("\"", "\\\"")).append('"');
+        }
+        return family.instruments.computeIfAbsent(sb.toString(),
+                k -> summary ? new Histogram() : new LongAdder());
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text format. Histograms are written as summaries.
+     * @param out Destination
+     * @throws IOException if writing fails
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        for (var e : families.entrySet()) {
+            var name = e.getKey();
+            var family = e.getValue();
+            out.write("# HELP " + name + " " + family.help + "\n");
+            out.write("# TYPE " + name + (family.summary ? " summary\n" : " counter\n"));
+            for (var i : family.instruments.entrySet()) {
+                var labels = i.getKey();
+                if (!family.summary) {
+                    out.write(name + braces(labels) + " " + ((LongAdder) i.getValue()).sum() + "\n");
+                    continue;
+                }
+                var h = (Histogram) i.getValue();
+                var prefix = labels.isEmpty() ? "" : labels + ",";
+                for (double q : QUANTILES) {
+                    out.write(name + "{" + prefix + "quantile=\"" + q + "\"} "
+                            + format(h.getValueAtQuantile(q) * family.scale) + "\n");
+                }
+                out.write(name + "_sum" + braces(labels) + " " + format(h.getSum() * family.scale) + "\n");
+                out.write(name + "_count" + braces(labels) + " " + h.getCount() + "\n");
+            }
+        }
+    }
+
+    /**
+     * Returns all metrics in the Prometheus text format.
+     * @return metrics text
+     */
+    public String toPrometheus() {
+        var out = new StringWriter();
+        try {
+            writePrometheus(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the metrics to a file, replacing it atomically so that readers never see a partial dump.
+     * @param file Destination file
+     * @throws IOException if writing fails
+     */
+    public void dump(Path file) throws IOException {
+        var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, toPrometheus(), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the metrics to a file periodically on a daemon thread.
+     * @param file Destination file
+     * @param period Period between dumps
+     * @param unit Unit of the period
+     * @return executor of the dumps, shut it down to stop
+     */
+    public ScheduledExecutorService dumpEvery(Path file, long period, TimeUnit unit) {
+        var executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                dump(file);
+            } catch (IOException e) {
+                log.error("Failed to write metrics to {}", file, e);
+            }
+        }, period, period, unit);
+        return executor;
+    }
+
+    /**
+     * Registers the registry with the platform MBean server, if not yet registered.
+     * @param name Object name, e.g. "chess:type=Metrics"
+     */
+    public void registerMBean(String name) {
+        try {
+            var objectName = new ObjectName(name);
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(objectName))
+                server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            log.warn("Failed to register metrics as {}", name, e);
+        }
+    }
+
+    private static String braces(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    private static String format(double value) {
+        return Double.toString(value);
+    }
+
+    /**
+     * Returns the JMX attributes: counters by name, and count, mean, p50, p99 and max of histograms.
+     */
+    private Map<String, Object> attributes() {
+        var map = new ConcurrentSkipListMap<String, Object>();
+        for (var e : families.entrySet()) {
+            var family = e.getValue();
+            for (var i : family.instruments.entrySet()) {
+                var key = i.getKey().isEmpty() ? e.getKey()
+                        : e.getKey() + "{" + i.getKey().replace("\"", "") + "}";
+                if (!family.summary) {
+                    map.put(key, ((LongAdder) i.getValue()).sum());
+                    continue;
+                }
+                var h = (Histogram) i.getValue();
+                map.put(key + "_count", h.getCount());
+                map.put(key + "_mean", h.getMean() * family.scale);
+                map.put(key + "_p50", h.getValueAtQuantile(0.5) * family.scale);
+                map.put(key + "_p99", h.getValueAtQuantile(0.99) * family.scale);
+                map.put(key + "_max", h.getMax() * family.scale);
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        var value = attributes().get(attribute);
+        if (value == null)
+            throw new AttributeNotFoundException(attribute);
+        return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) {
+        throw new UnsupportedOperationException("Metrics are read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        var all = attributes();
+        var list = new AttributeList();
+        for (var name : attributes) {
+            if (all.containsKey(name))
+                list.add(new Attribute(name, all.get(name)));
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        // no attribute is writable
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        var infos = new ArrayList<MBeanAttributeInfo>();
+        for (var e : attributes().entrySet()) {
+            infos.add(new MBeanAttributeInfo(e.getKey(), e.getValue().getClass().getName(),
+                    e.getKey(), true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Metrics of the chess puzzle",
+                infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
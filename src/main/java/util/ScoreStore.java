@@ -0,0 +1,322 @@
+package util;
+
+import com.google.gson.JsonParseException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable leaderboard made of a json snapshot and an append-only log.
+ * <p>
+ * Each result is appended to the log as one json line when it happens.
+ * A background thread syncs the log to disk in batches and periodically
+ * compacts it into the snapshot of the retained leaderboard.
+ * Startup replays the snapshot and then the log.
+ * <p>
+ * Files next to the snapshot {@code name}:
+ * <pre>
+ * name             snapshot, a json array as written by {@link JsonIO}
+ * name.log         results since the last compaction
+ * name.compacting  log being compacted
+ * name.next        complete snapshot not yet renamed to name
+ * </pre>
+ * Compaction renames the log to {@code .compacting}, writes {@code .next},
+ * deletes {@code .compacting} and renames {@code .next}. Recovery finishes
+ * an interrupted compaction, so no result is lost or replayed twice.
+ *
+ * @param <T> type of the results
+ */
+@Slf4j
+public class ScoreStore<T> implements Closeable {
+    /**
+     * Default interval of log syncs in milliseconds.
+     */
+    public static final long DEFAULT_SYNC_MILLIS = 100;
+    /**
+     * Default interval of compactions in milliseconds.
+     */
+    public static final long DEFAULT_COMPACT_MILLIS = 60_000;
+
+    private final Path snapshot;
+    private final Path logFile;
+    private final Path compacting;
+    private final Path next;
+    private final Class<T> type;
+    private final Comparator<? super T> order;
+    private final int retain;
+    private final List<T> retained = new ArrayList<>();
+    private final ScheduledExecutorService background;
+    private final Object compactLock = new Object();
+    private FileChannel channel;
+    private boolean dirty;
+    private boolean uncompacted;
+
+    /**
+     * Creates a new store with default intervals.
+     * @param snapshot Snapshot file
+     * @param type Class of the results
+     * @param order Order of the leaderboard, best first
+     * @param retain Number of results to retain
+     */
+    public ScoreStore(Path snapshot, Class<T> type, Comparator<? super T> order, int retain) {
+        this(snapshot, type, order, retain, DEFAULT_SYNC_MILLIS, DEFAULT_COMPACT_MILLIS);
+    }
+
+    /**
+     * Creates a new store.
+     * @param snapshot Snapshot file
+     * @param type Class of the results
+     * @param order Order of the leaderboard, best first
+     * @param retain Number of results to retain
+     * @param syncMillis Interval of log syncs in milliseconds
+     * @param compactMillis Interval of compactions in milliseconds
+     */
+    public ScoreStore(Path snapshot, Class<T> type, Comparator<? super T> order, int retain,
+                      long syncMillis, long compactMillis) {
+        this.snapshot = snapshot;
+        this.logFile = sibling(snapshot, ".log");
+        this.compacting = sibling(snapshot, ".compacting");
+        this.next = sibling(snapshot, ".next");
+        this.type = type;
+        this.order = order;
+        this.retain = retain;
+        this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, "score-store");
+            t.setDaemon(true);
+            return t;
+        });
+        background.scheduleWithFixedDelay(this::syncQuietly, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+        background.scheduleWithFixedDelay(this::compactQuietly, compactMillis, compactMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static Path sibling(Path path, String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+
+    /**
+     * Recovers the files and returns the retained leaderboard.
+     * Must be called before {@link #append}.
+     * @return retained results, best first
+     * @throws IOException if the files cannot be read
+     */
+    public synchronized List<T> load() throws IOException {
+        // finish an interrupted compaction
+        if (Files.exists(next)) {
+            Files.deleteIfExists(compacting);
+            Files.move(next, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        retained.clear();
+        if (Files.exists(snapshot)) {
+            try (var rows = JsonIO.streamJsonStream(new FileInputStream(snapshot.toFile()), type)) {
+                rows.forEach(this::insert);
+            }
+        }
+        if (Files.exists(compacting)) {
+            // the new snapshot was not complete; write it again
+            replay(compacting);
+            writeSnapshot(getRetained());
+        }
+
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long end = replay(logFile);
+        uncompacted = end > 0;
+        channel.truncate(end);
+        channel.position(end);
+        return getRetained();
+    }
+
+    /**
+     * Replays complete lines of the log.
+     * @return offset after the last complete line
+     */
+    private long replay(Path path) throws IOException {
+        var bytes = Files.readAllBytes(path);
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n')
+                continue;
+            var line = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+            try {
+                if (!line.isBlank())
+                    insert(JsonIO.fromJson(line, type));
+            } catch (JsonParseException e) {
+                log.warn("Skipping corrupt score entry in {}", path);
+            }
+            start = i + 1;
+        }
+        if (start < bytes.length)
+            log.warn("Dropping incomplete score entry at the end of {}", path);
+        return start;
+    }
+
+    private void insert(T item) {
+        int i = Collections.binarySearch(retained, item, order);
+        if (i < 0)
+            i = -i - 1;
+        else {
+            // keep insertion order among equal results
+            while (i < retained.size() && order.compare(retained.get(i), item) == 0)
+                i++;
+        }
+        if (i >= retain)
+            return;
+        retained.add(i, item);
+        if (retained.size() > retain)
+            retained.remove(retained.size() - 1);
+    }
+
+    /**
+     * Appends a result to the log. It is synced to disk with the next batch.
+     * @param item result to append
+     * @throws IOException if the log cannot be written, or the store is not loaded or is closed
+     */
+    public synchronized void append(T item) throws IOException {
+        if (channel == null)
+            throw new IOException("Score store " + snapshot + " is not loaded");
+        var buffer = ByteBuffer.wrap((JsonIO.toJson(item) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        dirty = true;
+        uncompacted = true;
+        insert(item);
+    }
+
+    /**
+     * Syncs appended results to disk.
+     * The sync runs outside the lock of the store, so appends are not blocked by a slow disk.
+     * @throws IOException if syncing fails
+     */
+    public void sync() throws IOException {
+        FileChannel log;
+        synchronized (this) {
+            if (channel == null || !dirty)
+                return;
+            log = channel;
+            dirty = false;
+        }
+        try {
+            log.force(false);
+        } catch (ClosedChannelException e) {
+            // the log was rotated or closed, which forced it first
+        } catch (IOException e) {
+            synchronized (this) {
+                if (channel == log)
+                    dirty = true;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the retained leaderboard to the snapshot and empties the log.
+     * Takes the compaction lock before the lock of the store, as {@link #close} does.
+     * @return number of results written to the snapshot, 0 if the log was empty
+     * @throws IOException if the files cannot be written
+     */
+    public int compact() throws IOException {
+        synchronized (compactLock) {
+            return compactLocked();
+        }
+    }
+
+    private int compactLocked() throws IOException {
+        // force most of the log before taking the lock, so the forced rotation below is short
+        sync();
+        List<T> rows;
+        synchronized (this) {
+            if (channel == null || !uncompacted)
+                return 0;
+            // rotate the log; results appended from now on go to a new log
+            channel.force(false);
+            channel.close();
+            Files.move(logFile, compacting, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            dirty = false;
+            uncompacted = false;
+            rows = getRetained();
+        }
+        writeSnapshot(rows);
+        log.debug("Compacted {} scores into {}", rows.size(), snapshot.getFileName());
+        return rows.size();
+    }
+
+    private void writeSnapshot(List<T> rows) throws IOException {
+        var tmp = sibling(snapshot, ".tmp");
+        JsonIO.writeJsonStream(new FileOutputStream(tmp.toFile()) {
+            @Override
+            public void close() throws IOException {
+                getFD().sync();
+                super.close();
+            }
+        }, rows);
+        Files.move(tmp, next, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(compacting);
+        Files.move(next, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            log.error("Failed to sync {}", logFile, e);
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException e) {
+            log.error("Failed to compact {}", logFile, e);
+        }
+    }
+
+    /**
+     * Returns the retained leaderboard.
+     * @return copy of the retained results, best first
+     */
+    public synchronized List<T> getRetained() {
+        return new ArrayList<>(retained);
+    }
+
+    /**
+     * Compacts the log and stops the background thread.
+     * @throws IOException if compacting fails
+     */
+    @Override
+    public void close() throws IOException {
+        background.shutdown();
+        try {
+            background.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (compactLock) {
+            compactLocked();
+            synchronized (this) {
+                if (channel == null)
+                    return;
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package app;
+
+import org.junit.jupiter.api.Test;
+import state.Board;
+import state.GameEngine;
+import state.Geometry;
+import state.PieceType;
+import state.Position;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CanvasBoardViewTest {
+    @Test
+    public void testSquareAt() {
+        var g = Geometry.DEFAULT;
+        assertEquals(new Position(7, 0), CanvasBoardView.squareAt(0, 0, 400, 400, g));
+        assertEquals(new Position(0, 7), CanvasBoardView.squareAt(399, 399, 400, 400, g));
+        assertEquals(new Position(5, 2), CanvasBoardView.squareAt(125, 110, 400, 400, g));
+        assertNull(CanvasBoardView.squareAt(400, 10, 400, 400, g));
+        assertNull(CanvasBoardView.squareAt(-1, 10, 400, 400, g));
+    }
+
+    @Test
+    public void testLargeBoard() {
+        var g = Geometry.of(10, 12);
+        var board = new Board(new GameEngine(g, GameEngine.DEFAULT_TYPES,
+                new int[]{g.square(8, 10), g.square(9, 8)}, g.square(9, 11)));
+        var view = new CanvasBoardView(board);
+        assertEquals(g.squares(), view.getDirty().cardinality());
+        view.resize(480, 400);
+        view.layout();
+        assertTrue(view.getDirty().isEmpty());
+        board.play();
+        board.select(new Position(8, 10));
+        assertTrue(view.getDirty().get(index(board, new Position(9, 11))));
+    }
+
+    @Test
+    public void testImagePath() {
+        assertEquals("/images/king.png", CanvasBoardView.imagePath(PieceType.KING));
+        assertEquals("/images/knight.png", CanvasBoardView.imagePath(PieceType.KNIGHT));
+        // no image of a rook yet
+        assertThrows(IllegalArgumentException.class, () -> CanvasBoardView.imagePath(PieceType.ROOK));
+    }
+
+    @Test
+    public void testDirtySquares() {
+        var board = new Board();
+        var view = new CanvasBoardView(board);
+        assertEquals(board.getGeometry().squares(), view.getDirty().cardinality());
+        view.resize(400, 400);
+        view.layout();
+        assertTrue(view.getDirty().isEmpty());
+
+        board.play();
+        view.layout();
+        Position from = null;
+        for (var piece : board.getPieceList()) {
+            from = piece.getPosition();
+            board.select(from);
+            if (!board.nextPositionsProperty().get().isEmpty())
+                break;
+        }
+        var targets = board.nextPositionsProperty().get();
+        assertFalse(targets.isEmpty());
+        var dirty = view.getDirty();
+        for (var p : targets)
+            assertTrue(dirty.get(index(board, p)));
+
+        view.layout();
+        var to = targets.get(0);
+        board.select(to);
+        dirty = view.getDirty();
+        assertTrue(dirty.get(index(board, from)));
+        assertTrue(dirty.get(index(board, to)));
+        assertTrue(dirty.cardinality() <= targets.size() + 1 + board.nextPositionsProperty().get().size());
+
+        view.layout();
+        view.setHint(List.of(to));
+        view.layout();
+        view.setHint(List.of());
+        assertEquals(1, view.getDirty().cardinality());
+    }
+
+    private static int index(Board board, Position p) {
+        return board.getGeometry().square(p.getRow(), p.getCol());
+    }
+}
@@ -0,0 +1,76 @@
+package app;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import state.Board;
+import state.DistanceTable;
+import state.PieceType;
+import state.Position;
+import util.JsonIO;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MainTest {
+    @Test
+    public void testRecording(@TempDir Path dir) throws Exception {
+        var file = dir.resolve("chess.jfr");
+        var args = Main.startRecording(new String[]{"--jfr", file.toString(), "--canvas"});
+        assertArrayEquals(new String[]{"--canvas"}, args);
+        var recording = FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .filter(r -> r.getName().equals("chess")).findFirst().orElseThrow();
+
+        // knight on c3 is attacked by the king on b3
+        var board = new Board();
+        board.play();
+        board.select(new Position(2, 2));
+        board.select(new Position(4, 3));
+        JsonIO.writeJsonStream(new ByteArrayOutputStream(), List.of("a"));
+        recording.stop();
+        recording.close();
+
+        var names = RecordingFile.readAllEvents(file).stream()
+                .map(e -> e.getEventType().getName()).distinct().collect(Collectors.toList());
+        assertTrue(names.contains("chess.Move"), names.toString());
+        assertTrue(names.contains("chess.JsonIO"), names.toString());
+        var move = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("chess.Move")).findFirst().orElseThrow();
+        assertEquals("KNIGHT", move.getString("pieceType"));
+    }
+
+    @Test
+    public void testLoadTable(@TempDir Path dir) throws Exception {
+        var file = dir.resolve("distance.bin");
+        assertNull(Main.loadTable(file));
+        Main.main(new String[]{"--write-table", file.toString()});
+        var table = Main.loadTable(file);
+        assertNotNull(table);
+
+        var board = new Board();
+        board.setDistanceTable(table);
+        board.play();
+        assertNotNull(board.hint());
+        assertTrue(board.getDistanceToGoal() > 0);
+
+        // the loaded table stays mapped, so the other tables go to other files
+        var other = dir.resolve("other.bin");
+        DistanceTable.compute(List.of(PieceType.KING, PieceType.KNIGHT), new Position(0, 0)).write(other);
+        assertNull(Main.loadTable(other));
+        var corrupt = dir.resolve("corrupt.bin");
+        Files.write(corrupt, new byte[32]);
+        assertNull(Main.loadTable(corrupt));
+    }
+
+    @Test
+    public void testNoRecording() throws Exception {
+        var args = new String[]{"--server", "8080"};
+        assertSame(args, Main.startRecording(args));
+    }
+}
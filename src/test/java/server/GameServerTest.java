@@ -0,0 +1,156 @@
+package server;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import state.Bitboard;
+import state.Piece;
+import state.PieceType;
+import state.Solver;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class GameServerTest {
+    SessionManager sessions = new SessionManager(1, TimeUnit.MINUTES);
+    GameServer server;
+
+    @BeforeAll
+    public void setUp() throws IOException {
+        server = new GameServer(new InetSocketAddress("127.0.0.1", 0), sessions, 4);
+        server.start();
+    }
+
+    @AfterAll
+    public void tearDown() {
+        server.close();
+    }
+
+    private HttpURLConnection request(String method, String path) throws IOException {
+        var url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+        var conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(method);
+        return conn;
+    }
+
+    private Session.View view(HttpURLConnection conn) throws IOException {
+        try (var reader = new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)) {
+            return new Gson().fromJson(reader, Session.View.class);
+        }
+    }
+
+    @Test
+    public void testPlayAndMove() throws IOException {
+        var conn = request("POST", "/sessions");
+        assertEquals(201, conn.getResponseCode());
+        var id = view(conn).getId();
+
+        conn = request("POST", "/sessions/" + id + "/play");
+        assertEquals("RUNNING", view(conn).getState());
+
+        // knight on c3 is attacked by the king on b3
+        view(request("POST", "/sessions/" + id + "/select?square=c3"));
+        var v = view(request("POST", "/sessions/" + id + "/select?square=d5"));
+        assertEquals(1, v.getMoves());
+        assertEquals("d5", v.getPieces().get(1).getSquare());
+
+        assertEquals(1, view(request("GET", "/sessions/" + id)).getMoves());
+        assertEquals(204, request("DELETE", "/sessions/" + id).getResponseCode());
+        assertEquals(404, request("GET", "/sessions/" + id).getResponseCode());
+    }
+
+    @Test
+    public void testSelectBeforePlay() throws IOException {
+        var id = view(request("POST", "/sessions")).getId();
+        assertEquals(409, request("POST", "/sessions/" + id + "/select?square=c3").getResponseCode());
+        assertEquals(0, get(id).getMoves());
+    }
+
+    @Test
+    public void testVerify() throws IOException {
+        var id = view(request("POST", "/sessions")).getId();
+        view(request("POST", "/sessions/" + id + "/play"));
+        Session.View v = null;
+        for (var move : new Solver().solve(List.of(new Piece(PieceType.KING, 2, 1), new Piece(PieceType.KNIGHT, 2, 2))).getMoves()) {
+            view(request("POST", "/sessions/" + id + "/select?square=" + get(id).getPieces().get(move.getPieceIndex()).getSquare()));
+            v = view(request("POST", "/sessions/" + id + "/select?square=" + Bitboard.name(Bitboard.square(move.getTo()))));
+        }
+        assertEquals("GOAL", v.getState());
+        assertNotNull(v.getRecord());
+        assertEquals(409, request("POST", "/sessions/" + id + "/select?square=g1").getResponseCode());
+        assertEquals(v.getMoves(), get(id).getMoves());
+
+        var conn = request("POST", "/verify");
+        conn.setDoOutput(true);
+        conn.getOutputStream().write(v.getRecord().getBytes(StandardCharsets.US_ASCII));
+        assertEquals(200, conn.getResponseCode());
+        try (var reader = new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)) {
+            Map<?, ?> result = new Gson().fromJson(reader, Map.class);
+            assertEquals(true, result.get("valid"));
+            assertEquals((double) v.getScore(), result.get("score"));
+        }
+
+        conn = request("POST", "/verify");
+        conn.setDoOutput(true);
+        conn.getOutputStream().write("not base64!".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(400, conn.getResponseCode());
+    }
+
+    @Test
+    public void testHint() throws IOException {
+        var id = view(request("POST", "/sessions")).getId();
+        view(request("POST", "/sessions/" + id + "/play"));
+        Session.View v = null;
+        for (int i = 0; i < 100; i++) {
+            var conn = request("GET", "/sessions/" + id + "/hint");
+            if (conn.getResponseCode() == 204)
+                break;
+            assertEquals(200, conn.getResponseCode());
+            Session.HintView hint;
+            try (var reader = new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)) {
+                hint = new Gson().fromJson(reader, Session.HintView.class);
+            }
+            view(request("POST", "/sessions/" + id + "/select?square=" + hint.getFrom()));
+            v = view(request("POST", "/sessions/" + id + "/select?square=" + hint.getTo()));
+        }
+        assertNotNull(v);
+        assertEquals("GOAL", v.getState());
+        assertEquals(new Solver().solve(List.of(new Piece(PieceType.KING, 2, 1), new Piece(PieceType.KNIGHT, 2, 2))).getMoves().size(),
+                v.getMoves());
+    }
+
+    private Session.View get(String id) throws IOException {
+        return view(request("GET", "/sessions/" + id));
+    }
+
+    @Test
+    public void testMetrics() throws IOException {
+        var id = view(request("POST", "/sessions")).getId();
+        view(request("POST", "/sessions/" + id + "/play"));
+        view(request("POST", "/sessions/" + id + "/select?square=c3"));
+        var conn = request("GET", "/metrics");
+        assertEquals(200, conn.getResponseCode());
+        var text = new String(conn.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(text.contains("# TYPE chess_moves_total counter"), text);
+        assertTrue(text.contains("chess_select_seconds_count{source=\"session\"}"), text);
+        assertEquals(405, request("POST", "/metrics").getResponseCode());
+    }
+
+    @Test
+    public void testBadSquare() throws IOException {
+        var id = view(request("POST", "/sessions")).getId();
+        assertEquals(400, request("POST", "/sessions/" + id + "/select?square=z9").getResponseCode());
+    }
+}
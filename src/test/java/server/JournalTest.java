@@ -0,0 +1,182 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import state.Bitboard;
+import state.GameEngine;
+import state.MoveRecord;
+import state.Piece;
+import state.PieceType;
+import state.ReplayVerifier;
+import state.Solver;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalTest {
+    @TempDir
+    Path dir;
+
+    private SessionManager manager(Journal journal) {
+        return new SessionManager(GameEngine::new, System::nanoTime, 10, TimeUnit.MINUTES, journal);
+    }
+
+    private static int square(Session session, int piece) {
+        return Bitboard.parseSquare(session.view().getPieces().get(piece).getSquare());
+    }
+
+    @Test
+    public void testRecoverSessions() throws IOException {
+        var journal = Journal.open(dir, 3, 1 << 16);
+        var sessions = manager(journal);
+        var playing = sessions.create();
+        playing.play();
+        var solution = new Solver().solve(List.of(new Piece(PieceType.KING, 2, 1), new Piece(PieceType.KNIGHT, 2, 2))).getMoves();
+        var first = solution.get(0);
+        var second = solution.get(1);
+        playing.select(square(playing, first.getPieceIndex()));
+        playing.select(Bitboard.square(first.getTo()));
+        var before = playing.select(square(playing, second.getPieceIndex()));
+        var closed = sessions.create();
+        sessions.remove(closed.getId());
+        var idle = sessions.create();
+        // crash: the journal is not closed
+        journal = null;
+
+        var reopened = Journal.open(dir, 3, 1 << 16);
+        var recovered = manager(reopened);
+        assertEquals(2, recovered.size());
+        assertNull(recovered.get(closed.getId()));
+        assertNull(recovered.get(idle.getId()).view().getState());
+
+        var v = recovered.get(playing.getId()).view();
+        assertEquals("RUNNING", v.getState());
+        assertEquals(1, v.getMoves());
+        assertEquals(before.getPieces().get(0).getSquare(), v.getPieces().get(0).getSquare());
+        assertEquals(before.getPieces().get(1).getSquare(), v.getPieces().get(1).getSquare());
+        // the piece of the next move is still selected
+        var session = recovered.get(playing.getId());
+        var after = session.select(Bitboard.square(second.getTo()));
+        assertEquals(2, after.getMoves());
+
+        // the recovered game is finished and its record covers the moves before the crash
+        for (var move : solution.subList(2, solution.size())) {
+            session.select(square(session, move.getPieceIndex()));
+            after = session.select(Bitboard.square(move.getTo()));
+        }
+        assertEquals("GOAL", after.getState());
+        assertNotNull(after.getRecord());
+        var result = new ReplayVerifier().verify(MoveRecord.fromBase64(after.getRecord()));
+        assertTrue(result.isValid(), result.getReason());
+        assertEquals(solution.size(), result.getMoves());
+        reopened.close();
+    }
+
+    @Test
+    public void testEvictAfterJournalError() throws IOException {
+        long[] now = {0};
+        var journal = Journal.open(dir, 3, 1 << 16);
+        var sessions = new SessionManager(GameEngine::new, () -> now[0], 10, TimeUnit.SECONDS, journal);
+        sessions.create();
+        sessions.create();
+        journal.close();
+        now[0] = TimeUnit.SECONDS.toNanos(11);
+        // closes cannot be written to the closed journal, but the sessions are evicted
+        assertEquals(2, sessions.evictIdle());
+        assertEquals(0, sessions.size());
+        assertEquals(0, sessions.evictIdle());
+    }
+
+    @Test
+    public void testRotation() throws IOException {
+        var engine = new GameEngine();
+        engine.play();
+        var ids = new UUID[50];
+        try (var journal = Journal.open(dir, 3, 4096)) {
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = UUID.randomUUID();
+                journal.append(Journal.Type.CREATE, ids[i], -1, engine);
+            }
+            // many events rotate through the ring several times
+            for (int round = 0; round < 200; round++)
+                journal.append(Journal.Type.SELECT, ids[round % ids.length], -1, engine);
+            long sequence = 0;
+            for (int i = 0; i < 10; i++)
+                sequence = journal.close(ids[i]);
+            journal.sync(sequence);
+        }
+
+        try (var journal = Journal.open(dir, 3, 4096)) {
+            var recovered = journal.getRecovered();
+            assertEquals(40, recovered.size());
+            assertFalse(recovered.containsKey(ids[0]));
+            assertEquals(GameEngine.State.RUNNING, recovered.get(ids[49]).getState());
+            assertEquals(engine.getSquare(1), recovered.get(ids[49]).getSquare(1));
+        }
+    }
+
+    @Test
+    public void testTornRecord() throws IOException {
+        var engine = new GameEngine();
+        var id = UUID.randomUUID();
+        var journal = Journal.open(dir, 3, 4096);
+        journal.append(Journal.Type.CREATE, id, -1, engine);
+        engine.play();
+        journal.append(Journal.Type.PLAY, id, -1, engine);
+        journal.close();
+
+        // corrupt the last record of the segment in use
+        try (var file = new RandomAccessFile(dir.resolve("journal-0.seg").toFile(), "rw")) {
+            int pos = 16;
+            int last = pos;
+            while (true) {
+                file.seek(pos);
+                int length = file.readInt();
+                if (length == 0)
+                    break;
+                last = pos;
+                pos += 8 + length;
+            }
+            file.seek(last + 9);
+            file.write(0x55);
+        }
+
+        try (var reopened = Journal.open(dir, 3, 4096)) {
+            assertNull(reopened.getRecovered().get(id).getState());
+        }
+    }
+
+    @Test
+    public void testSegmentTooSmall() throws IOException {
+        var engine = new GameEngine();
+        var written = new HashSet<UUID>();
+        try (var journal = Journal.open(dir, 3, 1024)) {
+            for (int i = 0; i < 20; i++) {
+                var id = UUID.randomUUID();
+                journal.append(Journal.Type.CREATE, id, -1, engine);
+                written.add(id);
+            }
+            assertThrows(UncheckedIOException.class, () -> {
+                for (int i = 0; i < 100; i++) {
+                    var id = UUID.randomUUID();
+                    journal.append(Journal.Type.SELECT, id, -1, engine);
+                    written.add(id);
+                }
+            });
+            // the failed rotation left the journal as it was
+            var id = written.iterator().next();
+            assertThrows(UncheckedIOException.class, () -> journal.append(Journal.Type.SELECT, id, -1, engine));
+        }
+        try (var reopened = Journal.open(dir, 3, 1 << 16)) {
+            assertEquals(written, reopened.getRecovered().keySet());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import state.GameEngine;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionManagerTest {
+    long now = 0;
+    SessionManager manager = new SessionManager(GameEngine::new, () -> now, 10, TimeUnit.SECONDS);
+
+    @Test
+    public void testCreateAndGet() {
+        var session = manager.create();
+        assertSame(session, manager.get(session.getId()));
+        assertNull(manager.get("unknown"));
+        assertEquals(1, manager.size());
+        assertTrue(manager.remove(session.getId()));
+        assertEquals(0, manager.size());
+    }
+
+    @Test
+    public void testEvictIdle() {
+        var idle = manager.create();
+        var active = manager.create();
+        now = TimeUnit.SECONDS.toNanos(8);
+        manager.get(active.getId());
+        now = TimeUnit.SECONDS.toNanos(12);
+        assertEquals(1, manager.evictIdle());
+        assertNull(manager.get(idle.getId()));
+        assertNotNull(manager.get(active.getId()));
+    }
+}
@@ -0,0 +1,44 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitboardTest {
+    @Test
+    public void testSquare() {
+        assertEquals(0, Bitboard.square(0, 0));
+        assertEquals(63, Bitboard.square(7, 7));
+        assertEquals(-1, Bitboard.square(8, 0));
+        assertEquals(0L, Bitboard.bit(new Position(-1, 3)));
+        assertEquals(new Position(2, 5), Bitboard.toPosition(Bitboard.square(2, 5)));
+    }
+
+    @Test
+    public void testCornerAttacks() {
+        assertEquals(3, Long.bitCount(PieceType.KING.getAttacks(Bitboard.square(0, 0))));
+        assertEquals(2, Long.bitCount(PieceType.KNIGHT.getAttacks(Bitboard.square(0, 0))));
+        assertEquals(8, Long.bitCount(PieceType.KNIGHT.getAttacks(Bitboard.square(4, 4))));
+    }
+
+    @Test
+    public void testAttacksMatchOffsets() {
+        for (var type : PieceType.values()) {
+            for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+                var piece = new Piece(type, Bitboard.row(sq), Bitboard.col(sq));
+                long expected = 0L;
+                for (var p : piece.getNextMoves())
+                    expected |= Bitboard.bit(p);
+                assertEquals(expected, type.getAttacks(sq));
+            }
+        }
+    }
+
+    @Test
+    public void testToPositions() {
+        long mask = Bitboard.bit(new Position(1, 2)) | Bitboard.bit(new Position(0, 7));
+        assertEquals(List.of(new Position(0, 7), new Position(1, 2)), Bitboard.toPositions(mask));
+    }
+}
@@ -2,6 +2,7 @@ package state;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -47,6 +48,78 @@ public class BoardTest {
         assertEquals(pos, piece.getPosition());
     }
 
+    @Test
+    public void testOneChangePerSelect() {
+        var changes = new ArrayList<BoardChange>();
+        board.addChangeListener(changes::add);
+        board.play();
+        assertEquals(1, changes.size());
+        assertEquals(GameEngine.State.RUNNING, changes.get(0).getNewState());
+        assertTrue(changes.get(0).isStateChanged());
+
+        // knight on c3 is attacked by the king on b3
+        var knight = board.getPieceList().get(1);
+        changes.clear();
+        board.select(knight.getPosition());
+        assertEquals(1, changes.size());
+        var change = changes.get(0);
+        assertTrue(change.getMoves().isEmpty());
+        assertTrue(change.isNextPositionsChanged());
+        assertEquals(board.nextPositionsProperty().get(), change.getNextPositions());
+        assertFalse(change.isStateChanged());
+
+        var from = knight.getPosition();
+        var to = change.getNextPositions().get(0);
+        var nextPositions = new ArrayList<List<Position>>();
+        board.nextPositionsProperty().addListener((obs, oldVal, newVal) -> nextPositions.add(newVal));
+        changes.clear();
+        board.select(to);
+        assertEquals(1, changes.size());
+        change = changes.get(0);
+        assertEquals(List.of(new BoardChange.PieceMove(1, from, to)), change.getMoves());
+        assertEquals(List.of(), change.getNextPositions());
+        assertEquals(1, nextPositions.size());
+
+        // selecting an empty square changes nothing
+        changes.clear();
+        board.select(new Position(7, 0));
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void testHint() {
+        board.play();
+        int d = board.getDistanceToGoal();
+        for (int i = d; i > 0; i--) {
+            var move = board.hint();
+            assertNotNull(move);
+            board.move(board.getPieceList().get(move.getPieceIndex()), move.getTo());
+            assertEquals(i - 1, board.getDistanceToGoal());
+        }
+        assertNull(board.hint());
+    }
+
+    @Test
+    public void testLargeBoard() {
+        var g = Geometry.of(10, 12);
+        var large = new Board(new GameEngine(g, GameEngine.DEFAULT_TYPES,
+                new int[]{g.square(8, 10), g.square(9, 8)}, g.square(9, 11)));
+        assertEquals(g, large.getGeometry());
+        assertEquals(new Position(9, 11), large.getGoal());
+        assertEquals(new Position(9, 8), large.getPieceList().get(1).getPosition());
+
+        large.play();
+        large.select(new Position(8, 10));
+        assertEquals(8, large.nextPositionsProperty().get().size());
+        assertTrue(large.nextPositionsProperty().get().contains(new Position(9, 11)));
+        var move = large.hint();
+        assertEquals(0, move.getPieceIndex());
+        large.select(move.getTo());
+        assertEquals(GameEngine.State.GOAL, large.stateProperty().get());
+        assertEquals(new Position(9, 11), large.getPieceList().get(0).getPosition());
+        assertTrue(large.nextPositionsProperty().get().isEmpty());
+    }
+
     @Test
     public void testGetKingNextMoves() {
         var king = new Piece(PieceType.KING, 0,0);
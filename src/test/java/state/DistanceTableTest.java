@@ -0,0 +1,76 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DistanceTableTest {
+    DistanceTable table = DistanceTable.compute(Solver.typesOf(Board.initialPieces), Board.GOAL_POS);
+
+    @Test
+    public void testMatchesSolver() {
+        var solver = new Solver();
+        for (int king = 0; king < Bitboard.SQUARES; king++) {
+            for (int knight = 0; knight < Bitboard.SQUARES; knight++) {
+                if (king == knight) continue;
+                int state = Solver.withSquare(Solver.withSquare(0, 0, king), 1, knight);
+                var result = solver.solve(state);
+                int expected = result.isSolvable() ? result.getMoves().size() : DistanceTable.UNSOLVABLE;
+                assertEquals(expected, table.distance(state));
+            }
+        }
+    }
+
+    @Test
+    public void testOverlappingIsUnsolvable() {
+        assertEquals(DistanceTable.UNSOLVABLE, table.distance(0));
+    }
+
+    @Test
+    public void testWriteAndLoad() throws IOException {
+        var file = Files.createTempFile("distance", ".bin");
+        try {
+            table.write(file);
+            var loaded = DistanceTable.load(file);
+            assertEquals(table.getTypes(), loaded.getTypes());
+            assertEquals(table.getGoal(), loaded.getGoal());
+            for (int s = 0; s < 1 << (2 * Solver.SQUARE_BITS); s++)
+                assertEquals(table.distance(s), loaded.distance(s));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLoadRejectsOtherFiles() throws IOException {
+        var file = Files.createTempFile("distance", ".bin");
+        try {
+            Files.write(file, new byte[32]);
+            assertThrows(IOException.class, () -> DistanceTable.load(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testBoardDistance() {
+        var board = new Board();
+        board.play();
+        assertEquals(new Solver().solve(board.getPieceList()).getMoves().size(), board.getDistanceToGoal());
+        var other = DistanceTable.compute(List.of(PieceType.KING, PieceType.KNIGHT), new Position(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> board.setDistanceTable(other));
+    }
+
+    @Test
+    public void testHintsUseTable() {
+        var hints = new HintEngine(Geometry.DEFAULT, table.getTypes(), Bitboard.square(table.getGoal()), 16);
+        hints.setTable(table);
+        assertSame(table, hints.getTable());
+        var other = DistanceTable.compute(List.of(PieceType.KING, PieceType.KNIGHT), new Position(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> hints.setTable(other));
+    }
+}
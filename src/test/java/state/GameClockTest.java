@@ -0,0 +1,41 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameClockTest {
+    long now = 5_000_000L;
+    GameClock clock = new GameClock(() -> now);
+
+    @Test
+    public void testElapsedWhileRunning() {
+        clock.start();
+        now += 2_500_000L;
+        assertTrue(clock.isRunning());
+        assertEquals(2, clock.getElapsedMillis());
+    }
+
+    @Test
+    public void testStopFreezesTime() {
+        clock.start();
+        now += 7_000_000L;
+        clock.stop();
+        now += 7_000_000L;
+        clock.stop();
+        assertFalse(clock.isRunning());
+        assertEquals(7, clock.getElapsedMillis());
+    }
+
+    @Test
+    public void testEngineStopsClockOnGoal() {
+        // king on f2 is attacked by knight on h3
+        var engine = new GameEngine(GameEngine.DEFAULT_TYPES, new int[]{Bitboard.square(1, 5), Bitboard.square(2, 7)}, GameEngine.DEFAULT_GOAL);
+        engine.play();
+        assertTrue(engine.getClock().isRunning());
+        engine.select(Bitboard.square(1, 5));
+        engine.select(GameEngine.DEFAULT_GOAL);
+        assertFalse(engine.getClock().isRunning());
+        assertEquals(GameEngine.calculateScore(1, engine.getClock().getElapsedMillis()), engine.getScore());
+    }
+}
@@ -0,0 +1,181 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+import util.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameEngineTest {
+    GameEngine engine = new GameEngine();
+
+    @Test
+    public void testPlayRestoresPlacement() {
+        engine.play();
+        engine.move(0, Bitboard.square(7, 7));
+        engine.play();
+        assertArrayEquals(GameEngine.defaultSquares(), new int[]{engine.getSquare(0), engine.getSquare(1)});
+        assertEquals(GameEngine.State.RUNNING, engine.getState());
+        assertEquals(0, engine.getMoveCount());
+        assertEquals(-1, engine.getSelected());
+    }
+
+    @Test
+    public void testSelectAndMove() {
+        engine.play();
+        int knight = engine.getSquare(1);
+        engine.select(knight);
+        assertEquals(1, engine.getSelected());
+        assertEquals("KNIGHT selected", engine.getMessage());
+        long moves = engine.getNextMoves();
+        assertNotEquals(0L, moves);
+
+        int to = Long.numberOfTrailingZeros(moves);
+        engine.select(to);
+        assertEquals(to, engine.getSquare(1));
+        assertEquals(1, engine.getMoveCount());
+        assertEquals(-1, engine.getSelected());
+    }
+
+    @Test
+    public void testDeselectOnOtherSquare() {
+        engine.play();
+        engine.select(engine.getSquare(1));
+        engine.select(-1);
+        assertEquals(-1, engine.getSelected());
+        assertEquals(0L, engine.getNextMoves());
+        assertEquals(0, engine.getMoveCount());
+    }
+
+    @Test
+    public void testNotMovable() {
+        var e = new GameEngine(GameEngine.DEFAULT_TYPES, new int[]{Bitboard.square(0, 0), Bitboard.square(7, 7)}, GameEngine.DEFAULT_GOAL);
+        e.play();
+        e.select(Bitboard.square(0, 0));
+        assertEquals("KING is not movable", e.getMessage());
+        assertEquals(0L, e.getNextMoves());
+        e.updateState();
+        assertEquals(GameEngine.State.OVER, e.getState());
+    }
+
+    @Test
+    public void testSlidingBlocked() {
+        // the king between the rook and the bishop blocks the rook's attack on the bishop
+        var e = new GameEngine(List.of(PieceType.ROOK, PieceType.KING, PieceType.BISHOP),
+                new int[]{Bitboard.square(0, 0), Bitboard.square(0, 2), Bitboard.square(0, 4)}, Bitboard.square(7, 7));
+        e.play();
+        assertFalse(e.isMovable(0));
+        assertTrue(e.isMovable(1));
+        assertFalse(e.isMovable(2));
+
+        e.select(Bitboard.square(0, 2));
+        e.select(Bitboard.square(1, 2));
+        assertEquals(GameEngine.State.RUNNING, e.getState());
+        assertTrue(e.isMovable(2));
+        e.select(Bitboard.square(0, 4));
+        long expected = 0L;
+        for (var p : new Position[]{Position.of(1, 3), Position.of(2, 2), Position.of(3, 1), Position.of(4, 0),
+                Position.of(1, 5), Position.of(2, 6), Position.of(3, 7)})
+            expected |= Bitboard.bit(p);
+        assertEquals(expected, e.getNextMoves());
+    }
+
+    @Test
+    public void testListenerAndGoal() {
+        var events = new ArrayList<String>();
+        // king on f2 is attacked by knight on h3
+        var e = new GameEngine(GameEngine.DEFAULT_TYPES, new int[]{Bitboard.square(1, 5), Bitboard.square(2, 7)}, GameEngine.DEFAULT_GOAL);
+        e.addListener(new GameEngine.Listener() {
+            @Override
+            public void pieceMoved(int piece, int from, int to) {
+                events.add("moved " + piece + " " + Bitboard.name(to));
+            }
+
+            @Override
+            public void stateChanged(GameEngine.State state) {
+                events.add(state.toString());
+            }
+        });
+        e.play();
+        e.select(Bitboard.square(1, 5));
+        e.select(GameEngine.DEFAULT_GOAL);
+        assertEquals(List.of("RUNNING", "moved 0 g1", "GOAL"), events);
+    }
+
+    @Test
+    public void testLargeBoard() {
+        var g = Geometry.of(10, 10);
+        // king on (8, 8) is attacked by the knight on (9, 6), beyond the 64 squares of a bitboard
+        var e = new GameEngine(g, GameEngine.DEFAULT_TYPES, new int[]{g.square(8, 8), g.square(9, 6)}, g.square(9, 9));
+        assertEquals(g, e.getGeometry());
+        var next = new ArrayList<int[]>();
+        e.addListener(new GameEngine.Listener() {
+            @Override
+            public void nextMovesChanged(int[] squares) {
+                next.add(squares);
+            }
+        });
+        e.play();
+        assertTrue(e.isMovable(0));
+        assertFalse(e.isMovable(1));
+
+        e.select(g.square(8, 8));
+        int[] expected = {g.square(7, 7), g.square(7, 8), g.square(7, 9), g.square(8, 7), g.square(8, 9),
+                g.square(9, 7), g.square(9, 8), g.square(9, 9)};
+        assertArrayEquals(expected, e.getNextSquares());
+        assertArrayEquals(expected, next.get(next.size() - 1));
+        assertEquals(0L, e.getNextMoves());
+        assertThrows(IllegalStateException.class, e::occupancy);
+
+        e.select(g.square(9, 9));
+        assertEquals(GameEngine.State.GOAL, e.getState());
+        assertEquals(1, e.getMoveCount());
+    }
+
+    @Test
+    public void testOffBoardSquares() {
+        var g = Geometry.of(10, 10);
+        assertThrows(IllegalArgumentException.class,
+                () -> new GameEngine(GameEngine.DEFAULT_TYPES, new int[]{0, g.square(9, 9)}, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GameEngine(g, GameEngine.DEFAULT_TYPES, new int[]{0, 1}, g.squares()));
+    }
+
+    @Test
+    public void testGoalCountedOnce() {
+        var goals = Metrics.DEFAULT.counter("chess_games_total", "Finished games by outcome", "state", "goal");
+        var solveMoves = Metrics.DEFAULT.histogram("chess_solve_moves", "Number of moves of solved games", 1);
+        long goalsBefore = goals.sum();
+        long solvesBefore = solveMoves.getCount();
+        var e = new GameEngine(GameEngine.DEFAULT_TYPES, new int[]{Bitboard.square(1, 5), Bitboard.square(2, 7)}, GameEngine.DEFAULT_GOAL);
+        e.play();
+        e.select(Bitboard.square(1, 5));
+        e.select(GameEngine.DEFAULT_GOAL);
+        assertEquals(GameEngine.State.GOAL, e.getState());
+        // a further move after the goal does not count as another solved game
+        e.select(GameEngine.DEFAULT_GOAL);
+        e.select(Bitboard.square(1, 6));
+        assertEquals(GameEngine.State.GOAL, e.getState());
+        assertEquals(goalsBefore + 1, goals.sum());
+        assertEquals(solvesBefore + 1, solveMoves.getCount());
+    }
+
+    @Test
+    public void testSelectIgnoredUnlessRunning() {
+        var e = new GameEngine(GameEngine.DEFAULT_TYPES, new int[]{Bitboard.square(1, 5), Bitboard.square(2, 7)}, GameEngine.DEFAULT_GOAL);
+        e.select(Bitboard.square(1, 5));
+        assertEquals(-1, e.getSelected());
+
+        e.play();
+        e.select(Bitboard.square(1, 5));
+        e.select(GameEngine.DEFAULT_GOAL);
+        assertEquals(GameEngine.State.GOAL, e.getState());
+        e.select(GameEngine.DEFAULT_GOAL);
+        assertEquals(-1, e.getSelected());
+        e.select(Bitboard.square(1, 6));
+        assertEquals(GameEngine.DEFAULT_GOAL, e.getSquare(0));
+        assertEquals(1, e.getMoveCount());
+    }
+}
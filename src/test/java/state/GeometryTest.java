@@ -0,0 +1,53 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeometryTest {
+    @Test
+    public void testSquares() {
+        var g = Geometry.of(1000, 600);
+        assertEquals(600_000, g.squares());
+        assertFalse(g.fitsBitboard());
+        assertEquals(599_999, g.square(999, 599));
+        assertEquals(-1, g.square(1000, 0));
+        assertEquals(-1, g.square(0, -1));
+        assertEquals(998, g.row(g.square(998, 7)));
+        assertEquals(7, g.col(g.square(998, 7)));
+    }
+
+    @Test
+    public void testOf() {
+        assertSame(Geometry.DEFAULT, Geometry.of(8, 8));
+        assertTrue(Geometry.DEFAULT.fitsBitboard());
+        assertEquals(Geometry.of(10, 12), Geometry.parse("10x12"));
+        assertEquals("10x12", Geometry.of(10, 12).toString());
+        assertThrows(IllegalArgumentException.class, () -> Geometry.of(0, 8));
+        assertThrows(IllegalArgumentException.class, () -> Geometry.of(8, 1001));
+        assertThrows(IllegalArgumentException.class, () -> Geometry.parse("8*8"));
+    }
+
+    @Test
+    public void testTargetsMatchBitboard() {
+        var random = new Random(7);
+        for (var type : PieceType.values()) {
+            var targets = new int[type.getMaxTargets(Geometry.DEFAULT)];
+            for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+                long occupancy = random.nextLong() & random.nextLong();
+                IntPredicate occupied = s -> (occupancy & (1L << s)) != 0;
+                int count = type.getTargets(Geometry.DEFAULT, sq, occupied, targets);
+                long mask = 0;
+                for (int t : Arrays.copyOf(targets, count))
+                    mask |= 1L << t;
+                assertEquals(type.getAttacks(sq, occupancy), mask);
+                for (int t = 0; t < Bitboard.SQUARES; t++)
+                    assertEquals((mask & (1L << t)) != 0, type.attacks(Geometry.DEFAULT, sq, t, occupied));
+            }
+        }
+    }
+}
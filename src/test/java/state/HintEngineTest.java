@@ -0,0 +1,147 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HintEngineTest {
+    @Test
+    public void testSmallBoard() {
+        var goal = Bitboard.toPosition(GameEngine.DEFAULT_GOAL);
+        var table = DistanceTable.compute(GameEngine.DEFAULT_TYPES, goal);
+        var solver = new Solver(GameEngine.DEFAULT_TYPES, goal);
+        var rules = new SparseSolver(Geometry.DEFAULT, GameEngine.DEFAULT_TYPES, GameEngine.DEFAULT_GOAL);
+        var hints = new HintEngine(Geometry.DEFAULT, GameEngine.DEFAULT_TYPES, GameEngine.DEFAULT_GOAL, 16);
+        int[][] starts = {GameEngine.defaultSquares(), {Bitboard.square(0, 0), Bitboard.square(7, 7)},
+                {Bitboard.square(4, 4), Bitboard.square(5, 6)}};
+        for (var start : starts) {
+            int s = (int) rules.encode(start);
+            int d = table.distance(s);
+            var move = hints.hint(start);
+            if (d == DistanceTable.UNSOLVABLE || d == 0) {
+                assertNull(move);
+                continue;
+            }
+            assertNotNull(move);
+            int next = Solver.withSquare(s, move.getPieceIndex(), Bitboard.square(move.getTo()));
+            assertEquals(d - 1, table.distance(next));
+            assertEquals(d, solver.solve(s).getMoves().size());
+        }
+        assertEquals(1, hints.getMisses());
+        assertEquals(0, hints.size());
+    }
+
+    @Test
+    public void testLargeBoard() {
+        var g = Geometry.of(1000, 1000);
+        int goal = g.square(40, 995);
+        var hints = new HintEngine(g, GameEngine.DEFAULT_TYPES, goal, 1 << 10);
+        var rules = new SparseSolver(g, GameEngine.DEFAULT_TYPES, goal);
+        var squares = new int[]{g.square(2, 990), g.square(2, 991)};
+        int length = rules.solve(squares).getMoves().size();
+
+        int moves = 0;
+        Move move;
+        while ((move = hints.hint(squares)) != null) {
+            squares[move.getPieceIndex()] = g.square(move.getTo().getRow(), move.getTo().getCol());
+            moves++;
+        }
+        assertTrue(rules.isGoal(rules.encode(squares)));
+        assertEquals(length, moves);
+        // one search, then every hint of the line is a lookup
+        assertEquals(1, hints.getMisses());
+        assertEquals(length - 1, hints.getHits());
+        assertEquals(length, hints.size());
+    }
+
+    @Test
+    public void testEviction() {
+        var g = Geometry.of(1000, 1000);
+        int goal = g.square(40, 995);
+        var hints = new HintEngine(g, GameEngine.DEFAULT_TYPES, goal, 16);
+        assertNotNull(hints.hint(new int[]{g.square(2, 990), g.square(2, 991)}));
+        assertTrue(hints.size() <= 16);
+    }
+
+    @Test
+    public void testConcurrentHints() throws Exception {
+        var g = Geometry.of(1000, 1000);
+        int goal = g.square(40, 995);
+        var hints = new HintEngine(g, GameEngine.DEFAULT_TYPES, goal, HintEngine.DEFAULT_CAPACITY);
+        var start = new int[]{g.square(2, 990), g.square(2, 991)};
+        var pool = Executors.newFixedThreadPool(4);
+        try {
+            var tasks = new ArrayList<Callable<Move>>();
+            for (int i = 0; i < 16; i++)
+                tasks.add(() -> hints.hint(start.clone()));
+            var expected = hints.hint(start.clone());
+            for (var f : pool.invokeAll(tasks))
+                assertEquals(expected, f.get());
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, hints.getMisses());
+        assertEquals(16, hints.getHits());
+    }
+
+    @Test
+    public void testShared() {
+        var types = List.of(PieceType.KING, PieceType.KNIGHT);
+        assertSame(HintEngine.shared(Geometry.DEFAULT, types, GameEngine.DEFAULT_GOAL),
+                HintEngine.shared(Geometry.DEFAULT, List.copyOf(types), GameEngine.DEFAULT_GOAL));
+        assertNotSame(HintEngine.shared(Geometry.DEFAULT, types, GameEngine.DEFAULT_GOAL),
+                HintEngine.shared(Geometry.of(10, 10), types, GameEngine.DEFAULT_GOAL));
+    }
+
+    @Test
+    public void testSharedIsBounded() {
+        var types = List.of(PieceType.KING, PieceType.KNIGHT);
+        var first = HintEngine.shared(Geometry.of(20, 20), types, 0);
+        for (int goal = 1; goal <= HintEngine.MAX_SHARED; goal++)
+            HintEngine.shared(Geometry.of(20, 20), types, goal);
+        assertNotSame(first, HintEngine.shared(Geometry.of(20, 20), types, 0));
+    }
+
+    @Test
+    public void testParallelSearches() throws Exception {
+        var g = Geometry.of(1000, 1000);
+        int goal = g.square(40, 995);
+        var hints = new HintEngine(g, GameEngine.DEFAULT_TYPES, goal, HintEngine.DEFAULT_CAPACITY);
+        var rules = new SparseSolver(g, GameEngine.DEFAULT_TYPES, goal);
+        int[][] starts = {{g.square(2, 990), g.square(2, 991)}, {g.square(30, 990), g.square(30, 991)},
+                {g.square(50, 985), g.square(51, 985)}, {g.square(20, 999), g.square(21, 998)}};
+        var pool = Executors.newFixedThreadPool(starts.length);
+        try {
+            var tasks = new ArrayList<Callable<Move>>();
+            for (var start : starts)
+                tasks.add(() -> hints.hint(start.clone()));
+            var futures = pool.invokeAll(tasks);
+            for (int i = 0; i < starts.length; i++) {
+                var move = futures.get(i).get();
+                var expected = rules.solve(starts[i]);
+                if (!expected.isSolvable()) {
+                    assertNull(move);
+                    continue;
+                }
+                assertEquals(expected.getMoves().size(), rules.solve(withMove(g, starts[i], move)).getMoves().size() + 1);
+            }
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(starts.length, hints.getMisses());
+    }
+
+    private static int[] withMove(Geometry g, int[] squares, Move move) {
+        var next = squares.clone();
+        next[move.getPieceIndex()] = g.square(move.getTo().getRow(), move.getTo().getCol());
+        return next;
+    }
+}
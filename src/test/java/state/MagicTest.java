@@ -0,0 +1,53 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MagicTest {
+    @Test
+    public void testLookupMatchesRays() {
+        var random = new Random(42);
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+            for (int i = 0; i < 1000; i++) {
+                long occupancy = random.nextLong() & random.nextLong();
+                assertEquals(Magic.walk(sq, occupancy, Magic.ROOK_DIRECTIONS), Magic.rook(sq, occupancy));
+                assertEquals(Magic.walk(sq, occupancy, Magic.BISHOP_DIRECTIONS), Magic.bishop(sq, occupancy));
+            }
+        }
+    }
+
+    @Test
+    public void testMagicsHaveNoCollisions() {
+        // fill() throws on a magic number that maps two different attacks to one entry
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+            long rookMask = Magic.rookMask(sq);
+            long bishopMask = Magic.bishopMask(sq);
+            assertEquals(1 << Long.bitCount(rookMask), Magic.fill(sq, Magic.ROOK_DIRECTIONS, rookMask,
+                    Magic.ROOK_MAGICS[sq], new long[1 << Long.bitCount(rookMask)], 0));
+            assertEquals(1 << Long.bitCount(bishopMask), Magic.fill(sq, Magic.BISHOP_DIRECTIONS, bishopMask,
+                    Magic.BISHOP_MAGICS[sq], new long[1 << Long.bitCount(bishopMask)], 0));
+        }
+    }
+
+    @Test
+    public void testInvalidMagicIsRejected() {
+        long mask = Magic.rookMask(0);
+        assertThrows(IllegalStateException.class, () -> Magic.fill(0, Magic.ROOK_DIRECTIONS, mask,
+                1L, new long[1 << Long.bitCount(mask)], 0));
+    }
+
+    @Test
+    public void testBlocking() {
+        // rook on a1 with pieces on a3 and c1
+        long occupancy = 1L << Bitboard.square(2, 0) | 1L << Bitboard.square(0, 2);
+        long attacks = PieceType.ROOK.getAttacks(Bitboard.square(0, 0), occupancy);
+        assertEquals(1L << Bitboard.square(1, 0) | 1L << Bitboard.square(2, 0)
+                | 1L << Bitboard.square(0, 1) | 1L << Bitboard.square(0, 2), attacks);
+        assertEquals(14, Long.bitCount(PieceType.ROOK.getAttacks(Bitboard.square(0, 0), 0L)));
+        assertEquals(27, Long.bitCount(PieceType.QUEEN.getAttacks(Bitboard.square(3, 3), 0L)));
+        assertEquals(PieceType.QUEEN.getAttacks(Bitboard.square(3, 3)), PieceType.QUEEN.getAttacks(Bitboard.square(3, 3), 0L));
+    }
+}
@@ -0,0 +1,77 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveRecordTest {
+    @Test
+    public void testEncoding() {
+        var record = new MoveRecord.Builder()
+                .move(1, Bitboard.square(3, 3), 100)
+                .move(0, Bitboard.square(1, 1), 5000)
+                .end(7)
+                .build();
+        assertEquals(2, record.getMoveCount());
+        // 1 + 1 bytes, 1 + 2 bytes, end 1 + 1 bytes
+        assertEquals(7, record.toBytes().length);
+        assertEquals(1 << 6 | 27, record.toBytes()[0]);
+
+        var decoded = MoveRecord.fromBase64(record.toBase64());
+        assertEquals(record, decoded);
+        assertEquals(2, decoded.getMoveCount());
+    }
+
+    @Test
+    public void testContinuePrefix() {
+        var prefix = new MoveRecord.Builder().move(1, Bitboard.square(3, 3), 100).move(0, 5, 300).build();
+        assertFalse(prefix.isEnded());
+        assertEquals(400, prefix.getElapsedMillis());
+        var record = new MoveRecord.Builder(prefix).move(1, 7, 1000).end(50).build();
+        assertTrue(record.isEnded());
+        assertEquals(3, record.getMoveCount());
+        assertEquals(1450, record.getElapsedMillis());
+        assertEquals(record, new MoveRecord.Builder().move(1, Bitboard.square(3, 3), 100).move(0, 5, 300)
+                .move(1, 7, 1000).end(50).build());
+        assertTrue(MoveRecord.fromBytes(record.toBytes()).isEnded());
+        assertThrows(IllegalArgumentException.class, () -> new MoveRecord.Builder(record));
+    }
+
+    @Test
+    public void testBuilderRejectsBadMoves() {
+        var builder = new MoveRecord.Builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.move(3, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.move(0, 64, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.move(0, 0, -1));
+        builder.end(0);
+        assertThrows(IllegalStateException.class, () -> builder.move(0, 0, 0));
+    }
+
+    @Test
+    public void testRecorder() {
+        var engine = new GameEngine();
+        var recorder = new MoveRecord.Recorder(engine);
+        var solution = new Solver().solve(Board.initialPieces);
+        var first = solution.getMoves().get(0);
+        engine.play();
+        engine.select(engine.getSquare(first.getPieceIndex()));
+        engine.select(Bitboard.square(first.getTo()));
+        assertEquals(GameEngine.State.RUNNING, engine.getState());
+        assertNull(recorder.getRecord());
+
+        // restarting discards the unfinished record
+        engine.play();
+        for (var move : solution.getMoves()) {
+            engine.select(engine.getSquare(move.getPieceIndex()));
+            engine.select(Bitboard.square(move.getTo()));
+        }
+        assertEquals(GameEngine.State.GOAL, engine.getState());
+
+        var record = recorder.getRecord();
+        assertEquals(solution.getMoves().size(), record.getMoveCount());
+        var result = new ReplayVerifier().verify(record);
+        assertTrue(result.isValid(), result.getReason());
+        assertEquals(engine.getClock().getElapsedMillis(), result.getElapsedMillis());
+        assertEquals(engine.getScore(), result.getScore());
+    }
+}
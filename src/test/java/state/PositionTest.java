@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import state.Position;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -35,4 +36,22 @@ public class PositionTest {
         var expected = Arrays.asList(pos2, pos3, pos4, pos5, pos1);
         assertEquals(expected, actual);
     }
+
+    @Test
+    public void testOfSharesOnBoardInstances() {
+        assertSame(Position.of(3, 4), Position.of(3, 4));
+        assertSame(Position.of(3, 4), Position.of(2, 2).movedBy(1, 2));
+        assertEquals(new Position(-1, 9), Position.of(-1, 9));
+    }
+
+    @Test
+    public void testHashCode() {
+        assertEquals(new Position(-3, -100).hashCode(), new Position(-3, -100).hashCode());
+        var set = new HashSet<Position>();
+        for (int i = 0; i < Board.ROW_SIZE; i++)
+            for (int j = 0; j < Board.COL_SIZE; j++)
+                set.add(new Position(i, j));
+        assertEquals(Board.ROW_SIZE * Board.COL_SIZE, set.size());
+        assertTrue(set.contains(Position.of(7, 7)));
+    }
 }
@@ -0,0 +1,101 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PuzzleGeneratorTest {
+    List<PieceType> types = GameEngine.DEFAULT_TYPES;
+
+    @Test
+    public void testCanonicalGoals() {
+        // a1-d1-d4 triangle of the 8x8 board
+        assertEquals(10, PuzzleGenerator.canonicalGoals().size());
+        assertTrue(PuzzleGenerator.canonicalGoals().contains(Bitboard.parseSquare("d4")));
+        assertFalse(PuzzleGenerator.canonicalGoals().contains(Bitboard.parseSquare("e1")));
+    }
+
+    @Test
+    public void testGenerate() throws IOException {
+        var criteria = PuzzleGenerator.Criteria.builder().minMoves(4).maxMoves(6).build();
+        var out = new StringWriter();
+        var stats = new PuzzleGenerator(types, criteria).generate(out);
+        var lines = out.toString().split("\n");
+        assertEquals("goal,king,knight,moves,branching", lines[0]);
+        assertEquals(stats.getAccepted() + 1, lines.length);
+        assertEquals(10L * 4096, stats.getCandidates());
+
+        // every row is solved optimally in the requested number of moves
+        var keys = new HashSet<String>();
+        for (int i = 1; i < lines.length; i++) {
+            var f = lines[i].split(",");
+            int moves = Integer.parseInt(f[3]);
+            assertTrue(moves >= 4 && moves <= 6);
+            var solver = new Solver(types, Bitboard.toPosition(Bitboard.parseSquare(f[0])));
+            var king = Bitboard.toPosition(Bitboard.parseSquare(f[1]));
+            var knight = Bitboard.toPosition(Bitboard.parseSquare(f[2]));
+            var result = solver.solve(List.of(new Piece(PieceType.KING, king.getRow(), king.getCol()),
+                    new Piece(PieceType.KNIGHT, knight.getRow(), knight.getCol())));
+            assertEquals(moves, result.getMoves().size());
+            assertTrue(keys.add(canonical(f[0], f[1], f[2])), "duplicate " + lines[i]);
+        }
+
+        // one row per symmetry class of all puzzles in the range
+        var expected = new HashSet<String>();
+        for (var table : Sweep.run(types, Sweep.allSquares()).getTables()) {
+            for (int s = 0; s < 1 << (2 * Solver.SQUARE_BITS); s++) {
+                int d = table.distance(s);
+                if (d >= 4 && d <= 6)
+                    expected.add(canonical(Bitboard.name(Bitboard.square(table.getGoal())),
+                            Bitboard.name(Solver.squareOf(s, 0)), Bitboard.name(Solver.squareOf(s, 1))));
+            }
+        }
+        assertEquals(expected, keys);
+    }
+
+    @Test
+    public void testBranchingAndLimit() throws IOException {
+        var criteria = PuzzleGenerator.Criteria.builder()
+                .minMoves(3).maxMoves(10).minBranching(3).maxBranching(5).limit(25).build();
+        var out = new StringWriter();
+        var stats = new PuzzleGenerator(List.of(PieceType.KNIGHT, PieceType.KNIGHT, PieceType.KING), criteria)
+                .generate(out);
+        assertEquals(25, stats.getAccepted());
+        var lines = out.toString().split("\n");
+        assertEquals(26, lines.length);
+        for (int i = 1; i < lines.length; i++) {
+            var f = lines[i].split(",");
+            double branching = Double.parseDouble(f[5]);
+            assertTrue(branching >= 3 && branching <= 5, lines[i]);
+            // knights of the same type are sorted
+            assertTrue(Bitboard.parseSquare(f[1]) < Bitboard.parseSquare(f[2]), lines[i]);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new PuzzleGenerator(types, PuzzleGenerator.Criteria.builder().minMoves(0).build()));
+    }
+
+    /**
+     * Smallest text of the puzzle under the symmetries of the board.
+     */
+    private static String canonical(String goal, String king, String knight) {
+        String best = null;
+        for (int t = 0; t < 8; t++) {
+            var s = map(goal, t) + map(king, t) + map(knight, t);
+            if (best == null || s.compareTo(best) < 0)
+                best = s;
+        }
+        return best;
+    }
+
+    private static String map(String name, int t) {
+        int sq = Bitboard.parseSquare(name);
+        int row = (t & 1) != 0 ? 7 - Bitboard.row(sq) : Bitboard.row(sq);
+        int col = (t & 2) != 0 ? 7 - Bitboard.col(sq) : Bitboard.col(sq);
+        return (t & 4) != 0 ? Bitboard.name(Bitboard.square(col, row)) : Bitboard.name(Bitboard.square(row, col));
+    }
+}
@@ -0,0 +1,84 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplayVerifierTest {
+    ReplayVerifier verifier = new ReplayVerifier();
+
+    private MoveRecord.Builder solution(long deltaMillis) {
+        var builder = new MoveRecord.Builder();
+        for (var move : new Solver().solve(Board.initialPieces).getMoves())
+            builder.move(move.getPieceIndex(), Bitboard.square(move.getTo()), deltaMillis);
+        return builder;
+    }
+
+    @Test
+    public void testValidRecord() {
+        var record = solution(1000).end(0).build();
+        var result = verifier.verify(record);
+        assertTrue(result.isValid(), result.getReason());
+        assertEquals(record.getMoveCount(), result.getMoves());
+        assertEquals(1000L * record.getMoveCount(), result.getElapsedMillis());
+        assertEquals(Scorer.calculate(record.getMoveCount(), 1000L * record.getMoveCount()), result.getScore());
+
+        // the verifier can be reused
+        assertEquals(result.getScore(), verifier.verify(record).getScore());
+    }
+
+    @Test
+    public void testIllegalMove() {
+        // the king on b3 cannot jump to h8
+        var record = new MoveRecord.Builder().move(0, Bitboard.square(7, 7), 10).end(0).build();
+        var result = verifier.verify(record);
+        assertFalse(result.isValid());
+        assertEquals("Illegal move 1", result.getReason());
+    }
+
+    @Test
+    public void testUnsolvedAndMalformed() {
+        var first = new Solver().solve(Board.initialPieces).getMoves().get(0);
+        var unsolved = new MoveRecord.Builder().move(first.getPieceIndex(), Bitboard.square(first.getTo()), 10).end(0).build();
+        assertEquals("Puzzle is not solved", verifier.verify(unsolved).getReason());
+
+        var bytes = solution(1000).end(0).build().toBytes();
+        assertEquals("Missing end of the game",
+                verifier.verify(MoveRecord.fromBytes(Arrays.copyOf(bytes, bytes.length - 2))).getReason());
+        assertFalse(verifier.verify(MoveRecord.fromBytes(Arrays.copyOf(bytes, bytes.length - 1))).isValid());
+        assertEquals("Data after the end of the game",
+                verifier.verify(MoveRecord.fromBytes(Arrays.copyOf(bytes, bytes.length + 1))).getReason());
+    }
+
+    @Test
+    public void testForgedTime() {
+        // a delta of almost 2^32 ms used to wrap to a negative time and a score of 9792
+        var forged = solution(0).end((1L << 32) - (1L << 20)).build();
+        var result = verifier.verify(forged);
+        assertFalse(result.isValid());
+        assertEquals("Time of move " + (forged.getMoveCount() + 1) + " is too long", result.getReason());
+
+        // nine bytes of varint can set the sign bit
+        var bytes = solution(0).build().toBytes();
+        var overlong = Arrays.copyOf(bytes, bytes.length + 10);
+        overlong[bytes.length] = (byte) MoveRecord.END;
+        Arrays.fill(overlong, bytes.length + 1, overlong.length - 1, (byte) 0xFF);
+        overlong[overlong.length - 1] = 0x01;
+        assertFalse(verifier.verify(MoveRecord.fromBytes(overlong)).isValid());
+
+        var slow = solution(0).end(ReplayVerifier.MAX_MILLIS).build();
+        assertTrue(verifier.verify(slow).isValid());
+        assertEquals(0, verifier.verify(slow).getScore());
+    }
+
+    @Test
+    public void testScoreIsClamped() {
+        assertEquals(GameEngine.MAX_SCORE, GameEngine.calculateScore(0, 0));
+        assertEquals(GameEngine.MAX_SCORE, GameEngine.calculateScore(0, -1_000_000));
+        assertEquals(0, GameEngine.calculateScore(1, (1L << 32) - (1L << 20)));
+        assertEquals(0, GameEngine.calculateScore(100, 0));
+        assertEquals(0, GameEngine.calculateScore(0, Long.MAX_VALUE));
+    }
+}
@@ -26,4 +26,22 @@ public class ScorerTest {
         scorer.addMove();
         assertEquals(1, scorer.moveProperty().get());
     }
+
+    @Test
+    public void testMonotonicScorer() {
+        long[] now = {0};
+        var scorer = new Scorer(new GameClock(() -> now[0]));
+        scorer.start();
+        now[0] = 1_234_567_890L;
+        assertEquals(1234, scorer.getElapsedMillis());
+        assertEquals(0, scorer.timeProperty().get());
+        scorer.refreshTime();
+        assertEquals(1234, scorer.timeProperty().get());
+
+        scorer.addMove();
+        scorer.end();
+        now[0] = 9_000_000_000L;
+        assertEquals(1234, scorer.getElapsedMillis());
+        assertEquals(Scorer.calculate(1, 1234), scorer.getScore());
+    }
 }
@@ -0,0 +1,78 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchTest {
+    SparseSolver rules = new SparseSolver(Geometry.DEFAULT, GameEngine.DEFAULT_TYPES, GameEngine.DEFAULT_GOAL);
+
+    @Test
+    public void testHeuristicIsAdmissible() {
+        var search = new Search(rules);
+        var table = DistanceTable.compute(GameEngine.DEFAULT_TYPES, Bitboard.toPosition(GameEngine.DEFAULT_GOAL));
+        for (int s = 0; s < 1 << (2 * Solver.SQUARE_BITS); s++) {
+            int d = table.distance(s);
+            if (d != DistanceTable.UNSOLVABLE)
+                assertTrue(search.heuristic(s) <= d, "state " + s);
+        }
+    }
+
+    @Test
+    public void testModesAgree() {
+        var search = new Search(rules);
+        int[][] starts = {GameEngine.defaultSquares(), {Bitboard.square(0, 0), Bitboard.square(7, 7)},
+                {Bitboard.square(4, 4), Bitboard.square(5, 6)}, {Bitboard.square(6, 1), Bitboard.square(4, 2)}};
+        for (var start : starts) {
+            var bfs = search.solve(start, Search.Mode.BFS);
+            for (var mode : List.of(Search.Mode.BIDIRECTIONAL, Search.Mode.IDA_STAR)) {
+                var result = search.solve(start, mode);
+                assertTrue(result.isComplete(), result.toString());
+                assertEquals(bfs.isSolvable(), result.isSolvable(), result.toString());
+                if (bfs.isSolvable()) {
+                    assertEquals(bfs.getMoves().size(), result.getMoves().size(), result.toString());
+                    assertSolves(start, result.getMoves());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSliders() {
+        var types = List.of(PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT);
+        var search = new Search(new SparseSolver(Geometry.DEFAULT, types, GameEngine.DEFAULT_GOAL));
+        int[] start = {Bitboard.square(0, 0), Bitboard.square(2, 2), Bitboard.square(4, 1)};
+        var bfs = search.solve(start, Search.Mode.BFS);
+        var bidirectional = search.solve(start, Search.Mode.BIDIRECTIONAL);
+        var ida = search.solve(start, Search.Mode.IDA_STAR);
+        assertEquals(bfs.getMoves().size(), bidirectional.getMoves().size());
+        assertEquals(bfs.getMoves().size(), ida.getMoves().size());
+    }
+
+    @Test
+    public void testLargeBoard() {
+        var g = Geometry.of(1000, 1000);
+        var large = new SparseSolver(g, GameEngine.DEFAULT_TYPES, g.square(40, 995));
+        var start = new int[]{g.square(2, 990), g.square(2, 991)};
+        var ida = new Search(large).solve(start, Search.Mode.IDA_STAR);
+        assertTrue(ida.isSolvable());
+        assertEquals(large.solve(start).getMoves().size(), ida.getMoves().size());
+        assertTrue(ida.getNodes() > 0);
+        assertTrue(ida.getNodesPerSecond() > 0);
+
+        // the solved placements exceed the budget of the bidirectional search
+        var bidirectional = new Search(large, 1 << 20, 1, 100).solve(start, Search.Mode.BIDIRECTIONAL);
+        assertFalse(bidirectional.isComplete());
+        assertFalse(bidirectional.isSolvable());
+    }
+
+    private static void assertSolves(int[] start, List<Move> moves) {
+        var engine = new GameEngine(GameEngine.DEFAULT_TYPES, start, GameEngine.DEFAULT_GOAL);
+        engine.play();
+        for (var move : moves)
+            assertTrue(engine.replay(move.getPieceIndex(), Bitboard.square(move.getTo())));
+        assertEquals(GameEngine.State.GOAL, engine.getState());
+    }
+}
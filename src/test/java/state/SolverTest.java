@@ -0,0 +1,62 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SolverTest {
+    Solver solver = new Solver();
+
+    @Test
+    public void testSolveDefaultPuzzle() {
+        var result = solver.solve(Board.initialPieces);
+        assertTrue(result.isSolvable());
+
+        // the solution must be playable on the board
+        var board = new Board();
+        board.play();
+        for (var move : result.getMoves()) {
+            board.select(board.getPieceList().get(move.getPieceIndex()).getPosition());
+            board.select(move.getTo());
+            assertEquals(move.getTo(), board.getPieceList().get(move.getPieceIndex()).getPosition());
+        }
+        assertEquals(GameEngine.State.GOAL, board.stateProperty().get());
+    }
+
+    @Test
+    public void testUnsolvable() {
+        var pieces = List.of(new Piece(PieceType.KING, 0, 0), new Piece(PieceType.KNIGHT, 7, 7));
+        var result = solver.solve(pieces);
+        assertFalse(result.isSolvable());
+        assertNull(result.getMoves());
+        assertEquals(1, result.getExploredStates());
+    }
+
+    @Test
+    public void testAlreadySolved() {
+        var pieces = List.of(new Piece(PieceType.KING, 0, 6), new Piece(PieceType.KNIGHT, 7, 7));
+        var result = solver.solve(pieces);
+        assertTrue(result.isSolvable());
+        assertEquals(0, result.getMoves().size());
+    }
+
+    @Test
+    public void testOneMove() {
+        // king on f2 is attacked by knight on h3
+        var pieces = List.of(new Piece(PieceType.KING, 1, 5), new Piece(PieceType.KNIGHT, 2, 7));
+        var result = solver.solve(pieces);
+        assertEquals(List.of(new Move(0, new Position(0, 6))), result.getMoves());
+    }
+
+    @Test
+    public void testEncode() {
+        int state = Solver.encode(Board.initialPieces);
+        assertEquals(Bitboard.square(2, 1), Solver.squareOf(state, 0));
+        assertEquals(Bitboard.square(2, 2), Solver.squareOf(state, 1));
+        int moved = Solver.withSquare(state, 1, 63);
+        assertEquals(63, Solver.squareOf(moved, 1));
+        assertEquals(Bitboard.square(2, 1), Solver.squareOf(moved, 0));
+    }
+}
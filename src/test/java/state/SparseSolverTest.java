@@ -0,0 +1,64 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SparseSolverTest {
+    @Test
+    public void testAgreesWithSolver() {
+        var sparse = new SparseSolver(Geometry.DEFAULT, GameEngine.DEFAULT_TYPES, GameEngine.DEFAULT_GOAL);
+        var solver = new Solver();
+        int[][] starts = {GameEngine.defaultSquares(), {Bitboard.square(0, 0), Bitboard.square(7, 7)},
+                {Bitboard.square(4, 4), Bitboard.square(5, 6)}};
+        for (var start : starts) {
+            var pieces = List.of(new Piece(PieceType.KING, Bitboard.row(start[0]), Bitboard.col(start[0])),
+                    new Piece(PieceType.KNIGHT, Bitboard.row(start[1]), Bitboard.col(start[1])));
+            var expected = solver.solve(pieces);
+            var result = sparse.solve(start);
+            assertEquals(expected.isSolvable(), result.isSolvable());
+            if (expected.isSolvable())
+                assertEquals(expected.getMoves().size(), result.getMoves().size());
+        }
+    }
+
+    @Test
+    public void testSlidersAgreeWithSolver() {
+        var types = List.of(PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT);
+        var sparse = new SparseSolver(Geometry.DEFAULT, types, GameEngine.DEFAULT_GOAL);
+        var solver = new Solver(types, Bitboard.toPosition(GameEngine.DEFAULT_GOAL));
+        int[] start = {Bitboard.square(0, 0), Bitboard.square(2, 2), Bitboard.square(4, 1)};
+        var pieces = List.of(new Piece(PieceType.ROOK, 0, 0), new Piece(PieceType.BISHOP, 2, 2),
+                new Piece(PieceType.KNIGHT, 4, 1));
+        var expected = solver.solve(pieces);
+        var result = sparse.solve(start);
+        assertEquals(expected.isSolvable(), result.isSolvable());
+        if (expected.isSolvable())
+            assertEquals(expected.getMoves().size(), result.getMoves().size());
+    }
+
+    @Test
+    public void testLargeBoard() {
+        var g = Geometry.of(1000, 1000);
+        var sparse = new SparseSolver(g, GameEngine.DEFAULT_TYPES, g.square(40, 995));
+        assertEquals(20, sparse.squareBits());
+        var result = sparse.solve(new int[]{g.square(2, 990), g.square(2, 991)});
+        assertTrue(result.isSolvable());
+
+        // the moves reach the goal on the large board
+        var last = result.getMoves().get(result.getMoves().size() - 1);
+        assertEquals(Position.of(40, 995), last.getTo());
+        assertTrue(result.getMoves().size() >= 19);
+    }
+
+    @Test
+    public void testInvalid() {
+        var g = Geometry.of(10, 10);
+        var sparse = new SparseSolver(g, GameEngine.DEFAULT_TYPES, 99);
+        assertThrows(IllegalArgumentException.class, () -> sparse.solve(new int[]{5, 5}));
+        assertThrows(IllegalArgumentException.class, () -> sparse.solve(new int[]{5, 100}));
+        assertThrows(IllegalArgumentException.class, () -> new SparseSolver(g, GameEngine.DEFAULT_TYPES, 100));
+    }
+}
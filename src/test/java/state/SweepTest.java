@@ -0,0 +1,42 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SweepTest {
+    List<PieceType> types = Solver.typesOf(Board.initialPieces);
+
+    @Test
+    public void testSingleGoal() throws IOException {
+        var report = Sweep.run(types, List.of(Board.GOAL_POS));
+        // distinct squares, none on the goal
+        assertEquals(63 * 62, report.count());
+
+        var out = new StringWriter();
+        report.writeCsv(out);
+        var lines = out.toString().split("\n");
+        assertEquals("goal,king,knight,moves,solvable", lines[0]);
+        assertEquals(report.count() + 1, lines.length);
+
+        int expected = new Solver().solve(Board.initialPieces).getMoves().size();
+        assertTrue(out.toString().contains("\ng1,b3,c3," + expected + ",true\n"));
+    }
+
+    @Test
+    public void testAllGoals() {
+        var goals = Sweep.allSquares();
+        assertEquals(Bitboard.SQUARES, goals.size());
+        var report = Sweep.run(types, goals);
+        assertEquals(goals.size(), report.getTables().size());
+        for (int i = 0; i < goals.size(); i++)
+            assertEquals(goals.get(i), report.getTables().get(i).getGoal());
+        assertEquals(64L * 63 * 62, report.count());
+        assertTrue(report.countSolvable() > 0);
+        assertTrue(report.countSolvable() < report.count());
+    }
+}
@@ -0,0 +1,69 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTest {
+    @Test
+    public void testPutAndGet() {
+        var table = new TranspositionTable(1000);
+        assertEquals(1024, table.capacity());
+        assertEquals(TranspositionTable.MISS, table.get(42L));
+        table.put(42L, 7, 3);
+        table.put(0L, 5, 1);
+        assertEquals(7, table.get(42L));
+        assertEquals(3, table.getDepth(42L));
+        assertEquals(5, table.get(0L));
+        table.put(42L, 8, 1);
+        assertEquals(8, table.get(42L));
+        assertEquals(2, table.size());
+        table.clear();
+        assertEquals(TranspositionTable.MISS, table.get(42L));
+        assertThrows(IllegalArgumentException.class, () -> table.put(1L, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> table.put(1L, TranspositionTable.MAX_VALUE + 1, 0));
+    }
+
+    @Test
+    public void testReplacement() {
+        // one bucket of four entries
+        var table = new TranspositionTable(4);
+        table.put(1L, 1, 5);
+        table.put(2L, 2, 1);
+        table.put(3L, 3, 9);
+        table.put(4L, 4, 7);
+        // the shallowest entry is replaced
+        table.put(5L, 5, 3);
+        assertEquals(TranspositionTable.MISS, table.get(2L));
+        assertEquals(5, table.get(5L));
+        assertEquals(4, table.size());
+
+        // entries of an older search are replaced first, even if deeper
+        table.newSearch();
+        table.put(6L, 6, 0);
+        table.put(7L, 7, 0);
+        assertEquals(6, table.get(6L));
+        assertEquals(7, table.get(7L));
+        assertEquals(9, table.getDepth(3L));
+        assertEquals(7, table.getDepth(4L));
+        assertEquals(-1, table.getDepth(5L));
+        assertEquals(-1, table.getDepth(1L));
+    }
+
+    @Test
+    public void testManyKeys() {
+        var table = TranspositionTable.ofMegabytes(1);
+        assertEquals(1 << 16, table.capacity());
+        int found = 0;
+        for (int s = 0; s < 40_000; s++)
+            table.put(Zobrist.ofState(s, 3), s, 0);
+        for (int s = 0; s < 40_000; s++) {
+            long v = table.get(Zobrist.ofState(s, 3));
+            if (v != TranspositionTable.MISS) {
+                assertEquals(s, v);
+                found++;
+            }
+        }
+        assertTrue(found > 30_000, "found " + found);
+    }
+}
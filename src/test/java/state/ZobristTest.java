@@ -0,0 +1,43 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZobristTest {
+    @Test
+    public void testIncrementalKey() {
+        var engine = new GameEngine();
+        engine.play();
+        long start = engine.getKey();
+        assertEquals(Zobrist.of(GameEngine.defaultSquares()), start);
+
+        // follow the solution and compare with the full key after each move
+        var pieces = new int[engine.getPieceCount()];
+        for (var move : new Solver().solve(Board.initialPieces).getMoves()) {
+            engine.select(engine.getSquare(move.getPieceIndex()));
+            engine.select(Bitboard.square(move.getTo()));
+            for (int i = 0; i < pieces.length; i++)
+                pieces[i] = engine.getSquare(i);
+            assertEquals(Zobrist.of(pieces), engine.getKey());
+        }
+        assertEquals(GameEngine.State.GOAL, engine.getState());
+        engine.play();
+        assertEquals(start, engine.getKey());
+        assertEquals(Zobrist.ofState(Solver.encode(Board.initialPieces), pieces.length), start);
+    }
+
+    @Test
+    public void testDistinctKeys() {
+        // all placements of two pieces have distinct keys
+        var keys = new HashSet<Long>();
+        for (int s = 0; s < 1 << (2 * Solver.SQUARE_BITS); s++)
+            assertTrue(keys.add(Zobrist.ofState(s, 2)));
+        // keys beyond the default board
+        var g = Geometry.of(1000, 1000);
+        assertNotEquals(Zobrist.key(0, g.square(999, 999)), Zobrist.key(1, g.square(999, 999)));
+        assertEquals(Zobrist.key(0, 5) ^ Zobrist.key(0, 9), Zobrist.move(0L, 0, 5, 9));
+    }
+}
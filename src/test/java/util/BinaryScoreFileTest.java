@@ -0,0 +1,66 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryScoreFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testWriteAndOpen() throws IOException {
+        var file = dir.resolve("score.bin");
+        BinaryScoreFile.write(file, List.of(
+                new BinaryScoreFile.Entry("alice", 1200, 30),
+                new BinaryScoreFile.Entry("bob", 1500, 10),
+                new BinaryScoreFile.Entry("alice", 1200, 20),
+                new BinaryScoreFile.Entry("ジョン", 800, 40)));
+
+        var scores = BinaryScoreFile.open(file);
+        assertEquals(4, scores.size());
+        assertEquals(new BinaryScoreFile.Entry("bob", 1500, 10), scores.get(0));
+        assertEquals(20, scores.getTimestamp(1));
+        assertEquals("alice", scores.getName(2));
+        assertEquals("ジョン", scores.getName(3));
+        assertEquals(800, scores.getScore(3));
+        assertEquals(2, scores.top(2).size());
+        assertEquals(4, scores.top(10).size());
+        assertThrows(IndexOutOfBoundsException.class, () -> scores.getScore(4));
+    }
+
+    @Test
+    public void testRankOf() throws IOException {
+        var file = dir.resolve("score.bin");
+        BinaryScoreFile.write(file, List.of(
+                new BinaryScoreFile.Entry("a", 1500, 0),
+                new BinaryScoreFile.Entry("b", 1200, 0),
+                new BinaryScoreFile.Entry("c", 1200, 0),
+                new BinaryScoreFile.Entry("d", 800, 0)));
+
+        var scores = BinaryScoreFile.open(file);
+        assertEquals(0, scores.rankOf(2000));
+        assertEquals(0, scores.rankOf(1500));
+        assertEquals(1, scores.rankOf(1300));
+        assertEquals(1, scores.rankOf(1200));
+        assertEquals(3, scores.rankOf(1000));
+        assertEquals(4, scores.rankOf(0));
+    }
+
+    @Test
+    public void testEmptyAndCorrupt() throws IOException {
+        var file = dir.resolve("score.bin");
+        BinaryScoreFile.write(file, List.of());
+        assertEquals(0, BinaryScoreFile.open(file).size());
+        assertEquals(0, BinaryScoreFile.open(file).rankOf(100));
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> BinaryScoreFile.open(file));
+    }
+}
@@ -0,0 +1,36 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistogramTest {
+    @Test
+    public void testBuckets() {
+        for (long v : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 100, 1000, 123456789, Long.MAX_VALUE}) {
+            int i = Histogram.index(v);
+            assertTrue(Histogram.upperBound(i) >= v, "value " + v);
+            assertTrue(i == 0 || Histogram.upperBound(i - 1) < v, "value " + v);
+            // relative error at most 1/8
+            assertTrue(Histogram.upperBound(i) - v <= v / 8, "value " + v);
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.index(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testQuantiles() {
+        var h = new Histogram();
+        assertEquals(0, h.getValueAtQuantile(0.5));
+        for (int v = 1; v <= 1000; v++)
+            h.record(v);
+        assertEquals(1000, h.getCount());
+        assertEquals(500500, h.getSum());
+        assertEquals(1000, h.getMax());
+        assertEquals(500.5, h.getMean(), 1e-9);
+        long p50 = h.getValueAtQuantile(0.5);
+        assertTrue(p50 >= 500 && p50 <= 500 * 9 / 8, "p50 " + p50);
+        long p99 = h.getValueAtQuantile(0.99);
+        assertTrue(p99 >= 990 && p99 <= 1000, "p99 " + p99);
+        assertEquals(1000, h.getValueAtQuantile(1));
+    }
+}
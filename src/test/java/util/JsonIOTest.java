@@ -1,14 +1,20 @@
 package util;
 
+import com.google.gson.JsonParseException;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import static org.junit.jupiter.api.Assertions.*;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -37,6 +43,67 @@ public class JsonIOTest {
         assertEquals("World", output.get(1).str);
     }
 
+    @Test
+    public void testStreaming() throws IOException {
+        JsonIO.writeJsonStream(new FileOutputStream(file), IntStream.range(0, 1000).mapToObj(i -> new TestObj(i, "n" + i)));
+
+        var in = new FileInputStream(file);
+        try (var stream = JsonIO.streamJsonStream(in, TestObj.class)) {
+            var top = stream.filter(o -> o.num % 2 == 0)
+                    .map(o -> o.num)
+                    .sorted((a, b) -> b - a)
+                    .limit(3)
+                    .collect(Collectors.toList());
+            assertEquals(List.of(998, 996, 994), top);
+        }
+        // the stream closed the file
+        assertThrows(IOException.class, in::read);
+    }
+
+    @Test
+    public void testIterator() throws IOException {
+        JsonIO.writeJsonStream(new FileOutputStream(file), List.of(new TestObj(7, "a"), new TestObj(8, "b")).iterator());
+
+        var it = JsonIO.iterateJsonStream(new FileInputStream(file), TestObj.class);
+        assertTrue(it.hasNext());
+        assertEquals(7, it.next().num);
+        assertEquals("b", it.next().str);
+        assertFalse(it.hasNext());
+        assertThrows(NoSuchElementException.class, it::next);
+    }
+
+    @Test
+    public void testIteratorClosesOnInvalidItem() throws IOException {
+        var closed = new boolean[1];
+        var in = new ByteArrayInputStream("[{\"num\":1},{\"num\":\"x\"}]".getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        var it = JsonIO.iterateJsonStream(in, TestObj.class);
+        assertEquals(1, it.next().num);
+        var e = assertThrows(JsonParseException.class, it::next);
+        assertTrue(e.getMessage().contains("item 1"), e.getMessage());
+        assertTrue(closed[0]);
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testIteratorClosedEarly() throws IOException {
+        var closed = new boolean[1];
+        var in = new ByteArrayInputStream("[{\"num\":1},{\"num\":2}]".getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        try (var it = JsonIO.iterateJsonStream(in, TestObj.class)) {
+            assertEquals(1, it.next().num);
+        }
+        assertTrue(closed[0]);
+    }
+
     public class TestObj {
         public int num;
         public String str;
@@ -0,0 +1,70 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeaderboardTest {
+    private static final Comparator<Integer> DESCENDING = Comparator.reverseOrder();
+
+    @Test
+    public void testOffer() {
+        var board = new Leaderboard<>(3, DESCENDING);
+        assertTrue(board.offer(500));
+        assertTrue(board.offer(1500));
+        assertTrue(board.offer(1000));
+        assertFalse(board.offer(200));
+        assertFalse(board.offer(500));
+        assertTrue(board.offer(1200));
+        assertEquals(List.of(1500, 1200, 1000), board.snapshot());
+        assertEquals(3, board.size());
+        assertFalse(board.wouldAccept(1000));
+        assertTrue(board.wouldAccept(1001));
+        assertThrows(IllegalArgumentException.class, () -> new Leaderboard<>(0, DESCENDING));
+    }
+
+    @Test
+    public void testListener() {
+        var board = new Leaderboard<String>(2, Comparator.comparing(String::length).reversed());
+        var changes = new ArrayList<String>();
+        board.addListener((added, evicted) -> changes.add(added + "/" + evicted));
+        board.offer("aa");
+        board.offer("bb");
+        board.offer("c");
+        board.offer("ddd");
+        // among equal results the earlier one ranks higher, so "bb" is evicted
+        assertEquals(List.of("aa/null", "bb/null", "ddd/bb"), changes);
+        assertEquals(List.of("ddd", "aa"), board.snapshot());
+    }
+
+    @Test
+    public void testConcurrentOffers() throws InterruptedException {
+        var board = new Leaderboard<>(10, DESCENDING);
+        var changes = new AtomicInteger();
+        board.addListener((added, evicted) -> changes.incrementAndGet());
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            pool.execute(() -> {
+                for (int i = offset; i < 80_000; i += 8)
+                    board.offer(i);
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        var expected = new ArrayList<Integer>();
+        for (int i = 79_999; i >= 79_990; i--)
+            expected.add(i);
+        assertEquals(expected, board.snapshot());
+        assertTrue(changes.get() >= 10);
+    }
+}
@@ -0,0 +1,76 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+    @Test
+    public void testPrometheus() {
+        var metrics = new Metrics();
+        metrics.counter("games_total", "Games", "state", "goal").add(3);
+        metrics.counter("games_total", "Games", "state", "over").increment();
+        assertSame(metrics.counter("games_total", "Games", "state", "goal"),
+                metrics.counter("games_total", "Games", "state", "goal"));
+        var h = metrics.histogram("select_seconds", "Select", 1e-9);
+        h.record(2_000_000_000L);
+
+        var text = metrics.toPrometheus();
+        assertTrue(text.contains("# TYPE games_total counter\n"), text);
+        assertTrue(text.contains("games_total{state=\"goal\"} 3\n"), text);
+        assertTrue(text.contains("games_total{state=\"over\"} 1\n"), text);
+        assertTrue(text.contains("# TYPE select_seconds summary\n"), text);
+        assertTrue(text.contains("select_seconds{quantile=\"0.5\"} 2.0\n"), text);
+        assertTrue(text.contains("select_seconds_sum 2.0\n"), text);
+        assertTrue(text.contains("select_seconds_count 1\n"), text);
+        assertThrows(IllegalArgumentException.class, () -> metrics.histogram("games_total", "Games", 1));
+    }
+
+    @Test
+    public void testDump(@TempDir Path dir) throws Exception {
+        var metrics = new Metrics();
+        metrics.counter("moves_total", "Moves").increment();
+        var file = dir.resolve("metrics.prom");
+        metrics.dump(file);
+        assertEquals(metrics.toPrometheus(), Files.readString(file));
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        var metrics = new Metrics();
+        metrics.counter("moves_total", "Moves").add(5);
+        metrics.histogram("solve_moves", "Moves of solved games", 1).record(12);
+        var name = "chess.test:type=Metrics";
+        metrics.registerMBean(name);
+        var server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(5L, server.getAttribute(new ObjectName(name), "moves_total"));
+            assertEquals(1L, server.getAttribute(new ObjectName(name), "solve_moves_count"));
+            assertEquals(12.0, server.getAttribute(new ObjectName(name), "solve_moves_max"));
+        } finally {
+            server.unregisterMBean(new ObjectName(name));
+        }
+    }
+
+    @Test
+    public void testJsonIO() throws Exception {
+        var bytesRead = Metrics.DEFAULT.counter("chess_json_read_bytes_total", "Bytes read from json streams");
+        var bytesWritten = Metrics.DEFAULT.counter("chess_json_write_bytes_total", "Bytes written to json streams");
+        long read = bytesRead.sum();
+        long written = bytesWritten.sum();
+        var out = new ByteArrayOutputStream();
+        JsonIO.writeJsonStream(out, List.of("a", "b"));
+        assertEquals(out.size(), bytesWritten.sum() - written);
+        JsonIO.readJsonStream(new ByteArrayInputStream(out.toByteArray()), String.class);
+        assertEquals(out.size(), bytesRead.sum() - read);
+    }
+}
@@ -0,0 +1,150 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoreStoreTest {
+    @TempDir
+    Path dir;
+
+    private ScoreStore<Row> open(Path file, int retain) {
+        // no background work during tests
+        return new ScoreStore<>(file, Row.class, Comparator.comparingInt((Row r) -> r.score).reversed(),
+                retain, 60_000, 60_000);
+    }
+
+    private static List<Integer> scores(List<Row> rows) {
+        return rows.stream().map(r -> r.score).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testAppendAndReload() throws IOException {
+        var file = dir.resolve("score.json");
+        var store = open(file, 3);
+        assertTrue(store.load().isEmpty());
+        for (int s : new int[]{500, 1500, 1000, 200, 1200})
+            store.append(new Row("p" + s, s));
+        assertEquals(List.of(1500, 1200, 1000), scores(store.getRetained()));
+        store.sync();
+
+        // reopen without compaction, as after a crash
+        var reopened = open(file, 3);
+        assertEquals(List.of(1500, 1200, 1000), scores(reopened.load()));
+        assertFalse(Files.exists(file));
+        reopened.close();
+    }
+
+    @Test
+    public void testCompact() throws IOException {
+        var file = dir.resolve("score.json");
+        var store = open(file, 2);
+        store.load();
+        store.append(new Row("a", 100));
+        store.append(new Row("b", 300));
+        store.append(new Row("c", 200));
+        assertEquals(2, store.compact());
+        assertEquals(0, store.compact());
+        assertTrue(Files.exists(file));
+        assertEquals(0, Files.size(dir.resolve("score.json.log")));
+        store.append(new Row("d", 250));
+        store.close();
+
+        var reopened = open(file, 2);
+        var rows = reopened.load();
+        assertEquals(List.of(300, 250), scores(rows));
+        assertEquals("b", rows.get(0).name);
+        reopened.close();
+    }
+
+    @Test
+    public void testAppendWhenNotLoaded() throws IOException {
+        var store = open(dir.resolve("score.json"), 2);
+        assertThrows(IOException.class, () -> store.append(new Row("a", 100)));
+        store.load();
+        store.append(new Row("a", 100));
+        store.close();
+        assertThrows(IOException.class, () -> store.append(new Row("b", 200)));
+    }
+
+    @Test
+    public void testCloseWhileCompacting() throws Exception {
+        var store = open(dir.resolve("score.json"), 2);
+        store.load();
+        var compactor = new Thread(() -> {
+            try {
+                for (int i = 0; i < 1000; i++) {
+                    store.append(new Row("a", i));
+                    store.compact();
+                }
+            } catch (IOException e) {
+                // closed
+            }
+        });
+        compactor.start();
+        store.close();
+        compactor.join(10_000);
+        assertFalse(compactor.isAlive());
+    }
+
+    @Test
+    public void testTornTail() throws IOException {
+        var file = dir.resolve("score.json");
+        var store = open(file, 10);
+        store.load();
+        store.append(new Row("a", 100));
+        store.sync();
+        Files.write(dir.resolve("score.json.log"), "{\"name\":\"b\",\"sc".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        var reopened = open(file, 10);
+        assertEquals(List.of(100), scores(reopened.load()));
+        reopened.append(new Row("c", 50));
+        reopened.sync();
+
+        var again = open(file, 10);
+        assertEquals(List.of(100, 50), scores(again.load()));
+        again.close();
+    }
+
+    @Test
+    public void testRecoverInterruptedCompaction() throws IOException {
+        var file = dir.resolve("score.json");
+        Files.writeString(file, "[{\"name\":\"a\",\"score\":100}]");
+        Files.writeString(dir.resolve("score.json.compacting"), "{\"name\":\"b\",\"score\":200}\n");
+        Files.writeString(dir.resolve("score.json.log"), "{\"name\":\"c\",\"score\":300}\n");
+
+        // crashed before the new snapshot was complete
+        var store = open(file, 10);
+        assertEquals(List.of(300, 200, 100), scores(store.load()));
+        store.close();
+        assertFalse(Files.exists(dir.resolve("score.json.compacting")));
+
+        // crashed after the new snapshot was complete
+        Files.writeString(dir.resolve("score.json.next"), "[{\"name\":\"b\",\"score\":200}]");
+        Files.writeString(dir.resolve("score.json.compacting"), "{\"name\":\"b\",\"score\":200}\n");
+        var reopened = open(file, 10);
+        assertEquals(List.of(200), scores(reopened.load()));
+        reopened.close();
+    }
+
+    public static class Row {
+        public String name;
+        public int score;
+
+        public Row(String name, int score) {
+            this.name = name;
+            this.score = score;
+        }
+    }
+}